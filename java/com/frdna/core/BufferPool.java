@@ -0,0 +1,137 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pools the byte and character buffers used to read and decode files.
+ *
+ * The buffers are heap buffers because the JDK decoders and encoders only
+ * use their array fast paths for heap buffers.  A buffer must be released at
+ * most once and must not be used after it is released.
+ */
+final class BufferPool {
+
+    /**
+     * The capacity of every pooled buffer.
+     */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_POOLED = 64;
+
+    private static final Queue<ByteBuffer> BYTES =
+            new ConcurrentLinkedQueue<ByteBuffer>();
+
+    private static final Queue<CharBuffer> CHARS =
+            new ConcurrentLinkedQueue<CharBuffer>();
+
+    private static final AtomicInteger POOLED_BYTES = new AtomicInteger();
+
+    private static final AtomicInteger POOLED_CHARS = new AtomicInteger();
+
+    private BufferPool() { }
+
+    /**
+     * Takes a byte buffer from the pool, or allocates one if the pool is
+     * empty.
+     *
+     * @return
+     *     a cleared byte buffer
+     */
+    static ByteBuffer bytes() {
+
+        ByteBuffer buffer = BufferPool.BYTES.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocate(BufferPool.BUFFER_SIZE);
+        }
+
+        BufferPool.POOLED_BYTES.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Takes a character buffer from the pool, or allocates one if the pool is
+     * empty.
+     *
+     * @return
+     *     a cleared character buffer
+     */
+    static CharBuffer chars() {
+
+        CharBuffer buffer = BufferPool.CHARS.poll();
+        if (buffer == null) {
+            return CharBuffer.allocate(BufferPool.BUFFER_SIZE);
+        }
+
+        BufferPool.POOLED_CHARS.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns a byte buffer to the pool.
+     *
+     * @param buffer
+     *     the buffer taken from the pool, or <code>null</code>
+     */
+    static void release(final ByteBuffer buffer) {
+
+        if (buffer == null) {
+            return;
+        }
+
+        if (BufferPool.POOLED_BYTES.incrementAndGet()
+                > BufferPool.MAX_POOLED) {
+            BufferPool.POOLED_BYTES.decrementAndGet();
+            return;
+        }
+
+        BufferPool.BYTES.offer(buffer);
+    }
+
+    /**
+     * Returns a character buffer to the pool.
+     *
+     * @param buffer
+     *     the buffer taken from the pool, or <code>null</code>
+     */
+    static void release(final CharBuffer buffer) {
+
+        if (buffer == null) {
+            return;
+        }
+
+        if (BufferPool.POOLED_CHARS.incrementAndGet()
+                > BufferPool.MAX_POOLED) {
+            BufferPool.POOLED_CHARS.decrementAndGet();
+            return;
+        }
+
+        BufferPool.CHARS.offer(buffer);
+    }
+}
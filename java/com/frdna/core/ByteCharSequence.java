@@ -0,0 +1,204 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A <code>CharSequence</code> view over bytes in a single byte charset.
+ *
+ * Characters are decoded as they are read, so no characters are copied
+ * until {@link #toString()} is called.  The bytes may be in a heap, direct
+ * or memory mapped buffer, so fields of a file can be checked with
+ * {@link Verify} and {@link Strings} without building a <code>String</code>
+ * for each one.  A view reads the buffer with absolute gets and never
+ * changes its position or limit, but it shows any later changes to the
+ * bytes.
+ */
+public final class ByteCharSequence implements CharSequence {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+    private final SingleByteCodec codec;
+
+    /**
+     * Creates a view over the bytes of a buffer from its position to its
+     * limit.
+     *
+     * @param buffer
+     *     the buffer holding the bytes
+     * @param charset
+     *     the single byte charset of the bytes
+     * @return
+     *     the view over the bytes
+     * @throws NullPointerException
+     *     if <code>buffer</code> or <code>charset</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>charset</code> is not a single byte charset
+     */
+    public static ByteCharSequence wrap(
+            final ByteBuffer buffer,
+            final Charset charset) {
+        Assert.notNull("buffer", buffer);
+        return ByteCharSequence.wrap(
+                buffer, buffer.position(), buffer.remaining(), charset);
+    }
+
+    /**
+     * Creates a view over <code>length</code> bytes of a buffer starting at
+     * <code>offset</code>.
+     *
+     * @param buffer
+     *     the buffer holding the bytes
+     * @param offset
+     *     the absolute index of the first byte
+     * @param length
+     *     the number of bytes in the view
+     * @param charset
+     *     the single byte charset of the bytes
+     * @return
+     *     the view over the bytes
+     * @throws NullPointerException
+     *     if <code>buffer</code> or <code>charset</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>charset</code> is not a single byte charset
+     * @throws IndexOutOfBoundsException
+     *     if the bytes are outside of the buffer's limit
+     */
+    public static ByteCharSequence wrap(
+            final ByteBuffer buffer,
+            final int offset,
+            final int length,
+            final Charset charset) {
+
+        Assert.notNull("buffer", buffer);
+
+        SingleByteCodec codec = SingleByteCodec.forCharset(charset);
+        if (codec == null) {
+            throw new IllegalArgumentException(
+                    charset + " is not a single byte charset");
+        }
+
+        if (offset < 0 || length < 0 || offset > buffer.limit() - length) {
+            throw new IndexOutOfBoundsException(
+                    "offset: " + offset + ", length: " + length);
+        }
+
+        return new ByteCharSequence(buffer, offset, length, codec);
+    }
+
+    /**
+     * Creates a view over <code>length</code> bytes starting at
+     * <code>offset</code>.
+     *
+     * @param buffer
+     *     the buffer holding the bytes
+     * @param offset
+     *     the absolute index of the first byte
+     * @param length
+     *     the number of bytes in the view
+     * @param codec
+     *     the codec used to decode the bytes
+     */
+    ByteCharSequence(
+            final ByteBuffer buffer,
+            final int offset,
+            final int length,
+            final SingleByteCodec codec) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.codec = codec;
+    }
+
+    /**
+     * Gets the number of characters in the view.
+     *
+     * @return
+     *     the number of characters
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Decodes the character at an index.
+     *
+     * @param index
+     *     the index of the character
+     * @return
+     *     the decoded character
+     * @throws IndexOutOfBoundsException
+     *     if <code>index</code> is outside of the view
+     */
+    public char charAt(final int index) {
+
+        if (index < 0 || index >= this.length) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+
+        return this.codec.decode(this.buffer.get(this.offset + index));
+    }
+
+    /**
+     * Creates a view over part of this view.  No bytes are copied.
+     *
+     * @param start
+     *     the inclusive start index
+     * @param end
+     *     the exclusive end index
+     * @return
+     *     the view over the characters from <code>start</code> to
+     *     <code>end</code>
+     * @throws IndexOutOfBoundsException
+     *     if <code>start</code> or <code>end</code> is outside of the view
+     */
+    public CharSequence subSequence(final int start, final int end) {
+
+        if (start < 0 || end > this.length || start > end) {
+            throw new IndexOutOfBoundsException(
+                    "start: " + start + ", end: " + end);
+        }
+
+        return new ByteCharSequence(
+                this.buffer, this.offset + start, end - start, this.codec);
+    }
+
+    /**
+     * Decodes the view to a <code>String</code>.
+     *
+     * @return
+     *     the decoded characters
+     */
+    @Override
+    public String toString() {
+
+        char[] chars = new char[this.length];
+        for (int i = 0; i < this.length; i++) {
+            chars[i] = this.codec.decode(this.buffer.get(this.offset + i));
+        }
+
+        return new String(chars);
+    }
+}
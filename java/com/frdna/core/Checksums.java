@@ -0,0 +1,285 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+
+/**
+ * Computes checksums and digests of a file.
+ *
+ * The file is memory mapped a chunk at a time.  CRC-32 checksums of the
+ * chunks are computed in parallel and combined in file order, which gives
+ * the same value as computing the checksum of the whole file in one pass.
+ */
+final class Checksums {
+
+    private static final int GF2_DIM = 32;
+
+    // the reversed CRC-32 polynomial
+    private static final long POLYNOMIAL = 0xEDB88320L;
+
+    private Checksums() { }
+
+    /**
+     * Computes the CRC-32 checksum of a file.
+     *
+     * @param channel
+     *     the channel of the file
+     * @param executor
+     *     the executor the chunks are checksummed on
+     * @return
+     *     the checksum
+     * @throws IOException
+     *     if the file cannot be read
+     */
+    static long crc32(final FileChannel channel, final Executor executor)
+            throws IOException {
+
+        long size = channel.size();
+        long chunkSize = Math.max(
+                ParallelReader.MIN_CHUNK_SIZE,
+                size / (Runtime.getRuntime().availableProcessors() * 4));
+        chunkSize = Math.min(chunkSize, ParallelReader.MAX_CHUNK_SIZE);
+
+        List<FutureTask<Long>> tasks = new ArrayList<FutureTask<Long>>();
+        List<Long> lengths = new ArrayList<Long>();
+        for (long start = 0; start < size; start += chunkSize) {
+            long length = Math.min(chunkSize, size - start);
+            tasks.add(Checksums.submit(executor, channel, start, length));
+            lengths.add(Long.valueOf(length));
+        }
+
+        long crc = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            crc = Checksums.combine(
+                    crc,
+                    Checksums.get(tasks.get(i)),
+                    lengths.get(i).longValue());
+        }
+
+        return crc;
+    }
+
+    /**
+     * Computes a message digest of a file.
+     *
+     * @param channel
+     *     the channel of the file
+     * @param digest
+     *     the digest to update with the bytes of the file
+     * @return
+     *     the digest of the file
+     * @throws IOException
+     *     if the file cannot be read
+     */
+    static byte[] digest(
+            final FileChannel channel,
+            final MessageDigest digest) throws IOException {
+
+        long size = channel.size();
+        ByteBuffer pooled = BufferPool.bytes();
+        byte[] buffer = pooled.array();
+
+        try {
+            for (long start = 0; start < size;
+                    start += ParallelReader.MAX_CHUNK_SIZE) {
+                ByteBuffer mapped = channel.map(
+                        FileChannel.MapMode.READ_ONLY,
+                        start,
+                        Math.min(ParallelReader.MAX_CHUNK_SIZE, size - start));
+                while (mapped.hasRemaining()) {
+                    int count = Math.min(buffer.length, mapped.remaining());
+                    mapped.get(buffer, 0, count);
+                    digest.update(buffer, 0, count);
+                }
+            }
+        } finally {
+            BufferPool.release(pooled);
+        }
+
+        return digest.digest();
+    }
+
+    /**
+     * Computes the CRC-32 checksum of part of a file.
+     *
+     * The mapped bytes are copied to a pooled array a buffer at a time
+     * because <code>CRC32</code> only reads arrays.
+     *
+     * @param channel
+     *     the channel of the file
+     * @param start
+     *     the offset of the first byte
+     * @param length
+     *     the number of bytes
+     * @return
+     *     the checksum of the bytes
+     * @throws IOException
+     *     if the file cannot be read
+     */
+    static long crc32(
+            final FileChannel channel,
+            final long start,
+            final long length) throws IOException {
+
+        ByteBuffer mapped = channel.map(
+                FileChannel.MapMode.READ_ONLY, start, length);
+        ByteBuffer pooled = BufferPool.bytes();
+        byte[] buffer = pooled.array();
+        CRC32 crc = new CRC32();
+
+        try {
+            while (mapped.hasRemaining()) {
+                int count = Math.min(buffer.length, mapped.remaining());
+                mapped.get(buffer, 0, count);
+                crc.update(buffer, 0, count);
+            }
+        } finally {
+            BufferPool.release(pooled);
+        }
+
+        return crc.getValue();
+    }
+
+    /**
+     * Combines the CRC-32 checksums of two consecutive blocks of bytes into
+     * the checksum of both blocks, using the method from zlib's
+     * <code>crc32_combine</code>.
+     *
+     * @param crc1
+     *     the checksum of the first block
+     * @param crc2
+     *     the checksum of the second block
+     * @param length2
+     *     the number of bytes in the second block
+     * @return
+     *     the checksum of the first block followed by the second
+     */
+    static long combine(final long crc1, final long crc2, final long length2) {
+
+        if (length2 <= 0) {
+            return crc1;
+        }
+
+        long[] even = new long[Checksums.GF2_DIM];
+        long[] odd = new long[Checksums.GF2_DIM];
+
+        // the operator for one zero bit
+        odd[0] = Checksums.POLYNOMIAL;
+        long row = 1;
+        for (int n = 1; n < Checksums.GF2_DIM; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+
+        // the operators for two and then four zero bits
+        Checksums.square(even, odd);
+        Checksums.square(odd, even);
+
+        // apply length2 zero bytes to crc1
+        long crc = crc1;
+        long length = length2;
+        do {
+            Checksums.square(even, odd);
+            if ((length & 1) != 0) {
+                crc = Checksums.times(even, crc);
+            }
+            length >>= 1;
+            if (length == 0) {
+                break;
+            }
+
+            Checksums.square(odd, even);
+            if ((length & 1) != 0) {
+                crc = Checksums.times(odd, crc);
+            }
+            length >>= 1;
+        } while (length != 0);
+
+        return crc ^ crc2;
+    }
+
+    private static long times(final long[] matrix, final long vector) {
+
+        long sum = 0;
+        long bits = vector;
+        for (int i = 0; bits != 0; i++, bits >>>= 1) {
+            if ((bits & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+
+        return sum;
+    }
+
+    private static void square(final long[] square, final long[] matrix) {
+        for (int n = 0; n < Checksums.GF2_DIM; n++) {
+            square[n] = Checksums.times(matrix, matrix[n]);
+        }
+    }
+
+    private static FutureTask<Long> submit(
+            final Executor executor,
+            final FileChannel channel,
+            final long start,
+            final long length) {
+
+        FutureTask<Long> task = new FutureTask<Long>(
+                new Callable<Long>() {
+                    public Long call() throws IOException {
+                        return Long.valueOf(
+                                Checksums.crc32(channel, start, length));
+                    }
+                });
+        executor.execute(task);
+        return task;
+    }
+
+    private static long get(final FutureTask<Long> task) throws IOException {
+
+        try {
+            return task.get().longValue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IoException("Interrupted while reading", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IoException("Unable to read", cause);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.UnmappableCharacterException;
+
+/**
+ * Encodes character sequences and writes them to a channel.
+ *
+ * The characters are copied into a pooled character buffer and encoded into
+ * a set of pooled byte buffers, which are written together with a single
+ * gathering write whenever they are all full.  The sequences written are
+ * treated as one stream, so a surrogate pair may be split across two of
+ * them.  A writer is not thread safe.
+ */
+final class ContentWriter {
+
+    private static final int GATHER_COUNT = 16;
+
+    private final CharsetEncoder encoder;
+    private final SingleByteCodec codec;
+    private final ByteBuffer[] buffers =
+            new ByteBuffer[ContentWriter.GATHER_COUNT];
+    private CharBuffer chars;
+    private int current;
+    private long written;
+
+    /**
+     * Creates a writer for a charset.
+     *
+     * @param charset
+     *     the charset the characters are encoded in
+     */
+    ContentWriter(final Charset charset) {
+
+        this.codec = Io.codec(charset);
+        if (this.codec == null) {
+            this.encoder = charset.newEncoder();
+        } else {
+            this.encoder = null;
+        }
+    }
+
+    /**
+     * Encodes the sequences and writes them to a channel.
+     *
+     * @param contents
+     *     the sequences to write, in order
+     * @param channel
+     *     the channel the bytes are written to
+     * @return
+     *     the number of bytes written
+     * @throws IOException
+     *     if the channel cannot be written or a character cannot be encoded
+     */
+    long write(
+            final Iterable<? extends CharSequence> contents,
+            final GatheringByteChannel channel) throws IOException {
+
+        this.chars = BufferPool.chars();
+        this.buffers[0] = BufferPool.bytes();
+        this.current = 0;
+        this.written = 0;
+
+        try {
+            for (CharSequence content : contents) {
+                int length = content.length();
+                int start = 0;
+                while (start < length) {
+                    int end = Math.min(
+                            length, start + this.chars.remaining());
+                    ContentWriter.copy(content, start, end, this.chars);
+                    this.encode(channel, false);
+                    start = end;
+                }
+            }
+
+            this.encode(channel, true);
+            this.gather(channel);
+            return this.written;
+        } finally {
+            BufferPool.release(this.chars);
+            for (int i = 0; i < this.buffers.length; i++) {
+                BufferPool.release(this.buffers[i]);
+                this.buffers[i] = null;
+            }
+            this.chars = null;
+        }
+    }
+
+    /**
+     * Encodes the characters in the character buffer, moving on to the next
+     * byte buffer whenever one fills.
+     */
+    private void encode(
+            final GatheringByteChannel channel,
+            final boolean endOfInput) throws IOException {
+
+        this.chars.flip();
+
+        if (this.codec != null) {
+            while (this.chars.hasRemaining()) {
+                this.encodeSingleByte();
+                if (this.chars.hasRemaining()) {
+                    this.next(channel);
+                }
+            }
+            this.chars.clear();
+            return;
+        }
+
+        CoderResult result = null;
+        do {
+            result = this.encoder.encode(
+                    this.chars, this.buffers[this.current], endOfInput);
+            ContentWriter.check(result);
+            if (result.isOverflow()) {
+                this.next(channel);
+            }
+        } while (result.isOverflow());
+
+        if (endOfInput) {
+            do {
+                result = this.encoder.flush(this.buffers[this.current]);
+                ContentWriter.check(result);
+                if (result.isOverflow()) {
+                    this.next(channel);
+                }
+            } while (result.isOverflow());
+        }
+
+        // keep any partial surrogate pair for the next pass
+        this.chars.compact();
+    }
+
+    /**
+     * Encodes as many characters as fit in the current byte buffer through
+     * the codec's table.
+     */
+    private void encodeSingleByte() throws CharacterCodingException {
+
+        ByteBuffer bytes = this.buffers[this.current];
+        char[] source = this.chars.array();
+        byte[] target = bytes.array();
+        int from = this.chars.arrayOffset() + this.chars.position();
+        int to = bytes.arrayOffset() + bytes.position();
+        int length = Math.min(this.chars.remaining(), bytes.remaining());
+
+        for (int i = 0; i < length; i++) {
+            int b = this.codec.encode(source[from + i]);
+            if (b < 0) {
+                throw new UnmappableCharacterException(1);
+            }
+            target[to + i] = (byte) b;
+        }
+
+        this.chars.position(this.chars.position() + length);
+        bytes.position(bytes.position() + length);
+    }
+
+    /**
+     * Moves on to the next byte buffer, writing all of them first if they
+     * are all full.
+     */
+    private void next(final GatheringByteChannel channel) throws IOException {
+
+        if (this.current == this.buffers.length - 1) {
+            this.gather(channel);
+            return;
+        }
+
+        this.current++;
+        if (this.buffers[this.current] == null) {
+            this.buffers[this.current] = BufferPool.bytes();
+        }
+    }
+
+    /**
+     * Writes the filled byte buffers with gathering writes and clears them.
+     */
+    private void gather(final GatheringByteChannel channel)
+            throws IOException {
+
+        int count = this.current + 1;
+        for (int i = 0; i < count; i++) {
+            this.buffers[i].flip();
+        }
+
+        for (int i = 0; i < count; i++) {
+            while (this.buffers[i].hasRemaining()) {
+                this.written += channel.write(this.buffers, i, count - i);
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            this.buffers[i].clear();
+        }
+        this.current = 0;
+    }
+
+    /**
+     * Copies characters from a sequence to the end of a buffer.
+     */
+    private static void copy(
+            final CharSequence content,
+            final int start,
+            final int end,
+            final CharBuffer chars) {
+
+        if (content instanceof String) {
+            ((String) content).getChars(
+                    start, end, chars.array(),
+                    chars.arrayOffset() + chars.position());
+        } else if (content instanceof StringBuilder) {
+            ((StringBuilder) content).getChars(
+                    start, end, chars.array(),
+                    chars.arrayOffset() + chars.position());
+        } else {
+            for (int i = start; i < end; i++) {
+                chars.put(content.charAt(i));
+            }
+            return;
+        }
+
+        chars.position(chars.position() + end - start);
+    }
+
+    /**
+     * Throws the exception for a failed encode.
+     */
+    private static void check(final CoderResult result)
+            throws CharacterCodingException {
+        if (result.isError()) {
+            result.throwException();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.math.BigDecimal;
+
+/**
+ * Gets and sets one property of a bean for a {@link RecordCodec} without
+ * reflection.
+ *
+ * A layout looks up the getter and setter of a property by reflection
+ * unless the field is given an accessor, in which case the accessor is
+ * called directly for every record.  An accessor of the kind that matches
+ * the field is extended:
+ *
+ * <pre>
+ * new RecordLayout&lt;Account&gt;(Account.class, charset)
+ *         .binary("id", 29, 4)
+ *         .accessor(new FieldAccessor.OfLong&lt;Account&gt;() {
+ *             public long getLong(final Account bean) {
+ *                 return bean.getId();
+ *             }
+ *             public void setLong(final Account bean, final long value) {
+ *                 bean.setId(value);
+ *             }
+ *         });
+ * </pre>
+ *
+ * A {@link OfLong} accessor avoids boxing the value as well.
+ *
+ * @param <T>
+ *     the type of the beans
+ */
+public abstract class FieldAccessor<T> {
+
+    FieldAccessor() { }
+
+    /**
+     * Gets and sets a whole number property, for display, zoned, packed and
+     * binary fields without a scale.
+     *
+     * @param <T>
+     *     the type of the beans
+     */
+    public abstract static class OfLong<T> extends FieldAccessor<T> {
+
+        /**
+         * Gets the value of the property.
+         *
+         * @param bean
+         *     the bean
+         * @return
+         *     the value
+         */
+        public abstract long getLong(T bean);
+
+        /**
+         * Sets the value of the property.
+         *
+         * @param bean
+         *     the bean
+         * @param value
+         *     the value read from the field
+         */
+        public abstract void setLong(T bean, long value);
+    }
+
+    /**
+     * Gets and sets a character property, for display fields.
+     *
+     * @param <T>
+     *     the type of the beans
+     */
+    public abstract static class OfString<T> extends FieldAccessor<T> {
+
+        /**
+         * Gets the value of the property.
+         *
+         * @param bean
+         *     the bean
+         * @return
+         *     the value, or <code>null</code> to write spaces
+         */
+        public abstract String getString(T bean);
+
+        /**
+         * Sets the value of the property.
+         *
+         * @param bean
+         *     the bean
+         * @param value
+         *     the value read from the field, without trailing spaces
+         */
+        public abstract void setString(T bean, String value);
+    }
+
+    /**
+     * Gets and sets a decimal property, for zoned and packed fields with a
+     * scale.
+     *
+     * @param <T>
+     *     the type of the beans
+     */
+    public abstract static class OfDecimal<T> extends FieldAccessor<T> {
+
+        /**
+         * Gets the value of the property.
+         *
+         * @param bean
+         *     the bean
+         * @return
+         *     the value, or <code>null</code> to write zero
+         */
+        public abstract BigDecimal getDecimal(T bean);
+
+        /**
+         * Sets the value of the property.
+         *
+         * @param bean
+         *     the bean
+         * @param value
+         *     the value read from the field
+         */
+        public abstract void setDecimal(T bean, BigDecimal value);
+    }
+}
@@ -0,0 +1,334 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the contents of files read with {@link Io#read(File,Charset)}.
+ *
+ * Entries are keyed by the canonical path of the file and the charset.  The
+ * modification time and length of the file are checked on every read and
+ * the file is read again when either has changed.  The total number of
+ * cached characters is bounded and the least recently used entries are
+ * evicted to stay within the bound.
+ *
+ * Reads do not lock, only eviction is serialized.
+ */
+public final class FileCache {
+
+    private final long maxChars;
+    private final ConcurrentMap<Key, Entry> entries =
+            new ConcurrentHashMap<Key, Entry>();
+    private final AtomicLong chars = new AtomicLong();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxChars
+     *     the most characters the cache holds, files with more characters are
+     *     read but not cached
+     * @throws IllegalArgumentException
+     *     if <code>maxChars</code> is negative
+     */
+    public FileCache(final long maxChars) {
+
+        if (maxChars < 0) {
+            throw new IllegalArgumentException(
+                    "maxChars must not be negative");
+        }
+
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Reads the contents of the file to a string, using the cached contents
+     * when the file has not changed.
+     *
+     * @param file
+     *     the file to be read
+     * @param charset
+     *     the charset to use to decode the content
+     * @return
+     *     the <code>String</code> contents of the file, or <code>null</code> if
+     *     the file is not found or is <code>null</code>
+     * @throws NullPointerException
+     *     if <code>charset</code> is <code>null</code>
+     * @throws IoException
+     *     if the file cannot be read
+     * @see Io#read(File,Charset)
+     */
+    public String read(final File file, final Charset charset) {
+
+        Assert.notNull("charset", charset);
+
+        if (file == null) {
+            return null;
+        }
+
+        Key key = new Key(FileCache.canonicalPath(file), charset);
+
+        // read the attributes first so a change during the read is detected
+        long lastModified = file.lastModified();
+        long length = file.length();
+
+        Entry entry = this.entries.get(key);
+        if (entry != null
+                && entry.lastModified == lastModified
+                && entry.length == length) {
+            entry.lastAccess = this.clock.incrementAndGet();
+            this.hits.incrementAndGet();
+            return entry.contents;
+        }
+
+        this.misses.incrementAndGet();
+        String contents = Io.read(file, charset);
+
+        if (contents == null) {
+            this.remove(key);
+            return null;
+        }
+
+        if (contents.length() > this.maxChars) {
+            this.remove(key);
+            return contents;
+        }
+
+        Entry loaded = new Entry(contents, lastModified, length);
+        loaded.lastAccess = this.clock.incrementAndGet();
+
+        Entry previous = this.entries.put(key, loaded);
+        long added = contents.length();
+        if (previous != null) {
+            added -= previous.contents.length();
+        }
+
+        if (this.chars.addAndGet(added) > this.maxChars) {
+            this.evict();
+        }
+
+        return contents;
+    }
+
+    /**
+     * Removes every entry from the cache.  The statistics are not reset.
+     */
+    public void clear() {
+        for (Key key : this.entries.keySet()) {
+            this.remove(key);
+        }
+    }
+
+    /**
+     * Gets the number of reads that were served from the cache.
+     *
+     * @return
+     *     the number of cache hits
+     */
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    /**
+     * Gets the number of reads that had to read the file.
+     *
+     * @return
+     *     the number of cache misses
+     */
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    /**
+     * Gets the number of entries evicted to stay within the bound.
+     *
+     * @return
+     *     the number of evictions
+     */
+    public long getEvictionCount() {
+        return this.evictions.get();
+    }
+
+    /**
+     * Gets the number of files in the cache.
+     *
+     * @return
+     *     the number of entries
+     */
+    public int getEntryCount() {
+        return this.entries.size();
+    }
+
+    /**
+     * Gets the number of characters in the cache.
+     *
+     * @return
+     *     the total length of the cached contents
+     */
+    public long getCharCount() {
+        return this.chars.get();
+    }
+
+    private void remove(final Key key) {
+        Entry removed = this.entries.remove(key);
+        if (removed != null) {
+            this.chars.addAndGet(-removed.contents.length());
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache is within its
+     * bound.
+     */
+    private void evict() {
+
+        synchronized (this.evictionLock) {
+            if (this.chars.get() <= this.maxChars) {
+                return;
+            }
+
+            // sort a snapshot of the access times, as hits keep changing them
+            List<Candidate> lru = new ArrayList<Candidate>();
+            for (Map.Entry<Key, Entry> entry : this.entries.entrySet()) {
+                lru.add(new Candidate(entry.getKey(), entry.getValue()));
+            }
+            Collections.sort(lru, Candidate.LEAST_RECENT_FIRST);
+
+            for (Candidate candidate : lru) {
+                if (this.chars.get() <= this.maxChars) {
+                    break;
+                }
+
+                if (this.entries.remove(candidate.key, candidate.entry)) {
+                    this.chars.addAndGet(-candidate.entry.contents.length());
+                    this.evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static String canonicalPath(final File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            throw new IoException("Unable to resolve " + file, e);
+        }
+    }
+
+    /**
+     * Identifies a file read in a charset.
+     */
+    private static final class Key {
+
+        private final String path;
+        private final Charset charset;
+
+        Key(final String path, final Charset charset) {
+            this.path = path;
+            this.charset = charset;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+            return this.path.equals(other.path)
+                    && this.charset.equals(other.charset);
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * this.path.hashCode()) + this.charset.hashCode();
+        }
+    }
+
+    /**
+     * The cached contents of a file and the attributes they were read with.
+     */
+    private static final class Entry {
+
+        private final String contents;
+        private final long lastModified;
+        private final long length;
+        private volatile long lastAccess = 0;
+
+        Entry(
+                final String contents,
+                final long lastModified,
+                final long length) {
+            this.contents = contents;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
+    /**
+     * An entry that may be evicted, with its last access time as it was
+     * when eviction started.
+     */
+    private static final class Candidate {
+
+        static final Comparator<Candidate> LEAST_RECENT_FIRST =
+                new Comparator<Candidate>() {
+                    public int compare(
+                            final Candidate lhs,
+                            final Candidate rhs) {
+                        if (lhs.lastAccess < rhs.lastAccess) {
+                            return -1;
+                        }
+                        if (lhs.lastAccess > rhs.lastAccess) {
+                            return 1;
+                        }
+                        return 0;
+                    }
+                };
+
+        private final Key key;
+        private final Entry entry;
+        private final long lastAccess;
+
+        Candidate(final Key key, final Entry entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = entry.lastAccess;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.io.File;
+
+/**
+ * The size, last modified time and CRC-32 checksum of a file, used to tell
+ * if the file has changed.
+ *
+ * Comparing the size and time is cheap, so the file is only checksummed
+ * again when its size is the same but its time is not.
+ */
+public final class FileFingerprint {
+
+    private final long size;
+    private final long lastModified;
+    private final long checksum;
+
+    /**
+     * Creates a fingerprint.
+     *
+     * @param size
+     *     the number of bytes in the file
+     * @param lastModified
+     *     the last modified time of the file
+     * @param checksum
+     *     the CRC-32 checksum of the file
+     */
+    public FileFingerprint(
+            final long size,
+            final long lastModified,
+            final long checksum) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Gets the number of bytes in the file.
+     *
+     * @return
+     *     the size of the file
+     */
+    public long getSize() {
+        return this.size;
+    }
+
+    /**
+     * Gets the last modified time of the file.
+     *
+     * @return
+     *     the time in milliseconds since the epoch
+     */
+    public long getLastModified() {
+        return this.lastModified;
+    }
+
+    /**
+     * Gets the CRC-32 checksum of the file.
+     *
+     * @return
+     *     the checksum
+     */
+    public long getChecksum() {
+        return this.checksum;
+    }
+
+    /**
+     * Tests if a file differs from the file this fingerprint was taken of.
+     *
+     * The file is not changed when its size and last modified time are the
+     * same.  It is changed when its size is different or it does not exist.
+     * Otherwise it is checksummed and is changed if the checksum is
+     * different.
+     *
+     * @param file
+     *     the file to test
+     * @return
+     *     <code>true</code> if the file has changed
+     * @throws NullPointerException
+     *     if <code>file</code> is <code>null</code>
+     * @throws IoException
+     *     if the file cannot be read
+     */
+    public boolean isChanged(final File file) {
+
+        Assert.notNull("file", file);
+
+        if (!file.isFile() || file.length() != this.size) {
+            return true;
+        }
+
+        if (file.lastModified() == this.lastModified) {
+            return false;
+        }
+
+        return Io.checksum(file) != this.checksum;
+    }
+
+    /**
+     * Describes the fingerprint.
+     *
+     * @return
+     *     the size, last modified time and checksum
+     */
+    @Override
+    public String toString() {
+        return "size=" + this.size
+                + ", lastModified=" + this.lastModified
+                + ", checksum=" + Long.toHexString(this.checksum);
+    }
+}
@@ -0,0 +1,222 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads fixed length records from a buffer or a file.
+ *
+ * Files are memory mapped a window at a time, so files of any size can be
+ * read.  The same {@link Record} is returned for every record and is moved
+ * to the next record by {@link #next()}.
+ */
+public final class FixedRecordReader
+        implements Iterator<Record>, Iterable<Record>, Closeable {
+
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final int recordLength;
+    private final Record record;
+    private ByteBuffer buffer;
+    private long mapped = 0;
+
+    /**
+     * Creates a reader over the records in a buffer.  The records are read
+     * from the buffer's position to its limit.
+     *
+     * @param buffer
+     *     the buffer holding the records
+     * @param recordLength
+     *     the number of bytes in each record
+     * @param charset
+     *     the single byte charset of the character fields
+     * @throws NullPointerException
+     *     if <code>buffer</code> or <code>charset</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>recordLength</code> is not positive or
+     *     <code>charset</code> is not a single byte charset
+     */
+    public FixedRecordReader(
+            final ByteBuffer buffer,
+            final int recordLength,
+            final Charset charset) {
+        this(null, buffer, recordLength, charset);
+        Assert.notNull("buffer", buffer);
+    }
+
+    /**
+     * Creates a reader over the records in a file.  The channel is closed
+     * when the reader is closed.
+     *
+     * @param channel
+     *     the channel of the file holding the records
+     * @param recordLength
+     *     the number of bytes in each record
+     * @param charset
+     *     the single byte charset of the character fields
+     * @throws NullPointerException
+     *     if <code>channel</code> or <code>charset</code> is
+     *     <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>recordLength</code> is not positive or
+     *     <code>charset</code> is not a single byte charset
+     */
+    public FixedRecordReader(
+            final FileChannel channel,
+            final int recordLength,
+            final Charset charset) {
+        this(channel, ByteBuffer.allocate(0), recordLength, charset);
+        Assert.notNull("channel", channel);
+    }
+
+    private FixedRecordReader(
+            final FileChannel channel,
+            final ByteBuffer buffer,
+            final int recordLength,
+            final Charset charset) {
+
+        if (recordLength < 1) {
+            throw new IllegalArgumentException(
+                    "recordLength must be positive");
+        }
+
+        this.channel = channel;
+        this.buffer = buffer;
+        this.recordLength = recordLength;
+        this.record = new Record(charset);
+    }
+
+    /**
+     * Returns this reader so that it can be used in a for each loop.
+     *
+     * @return
+     *     this reader
+     */
+    public Iterator<Record> iterator() {
+        return this;
+    }
+
+    /**
+     * Tests if there is another record.
+     *
+     * @return
+     *     <code>true</code> if there is another record
+     * @throws IoException
+     *     if the file cannot be mapped or ends with a partial record
+     */
+    public boolean hasNext() {
+
+        if (this.buffer.remaining() < this.recordLength) {
+            this.map();
+        }
+
+        if (this.buffer.remaining() >= this.recordLength) {
+            return true;
+        }
+
+        if (this.buffer.hasRemaining()) {
+            throw new IoException(
+                    "Found a partial record of " + this.buffer.remaining()
+                    + " bytes, expected " + this.recordLength);
+        }
+
+        return false;
+    }
+
+    /**
+     * Moves the record to the next record.
+     *
+     * @return
+     *     the record, which is the same instance for every call
+     * @throws NoSuchElementException
+     *     if there are no more records
+     * @throws IoException
+     *     if the file cannot be mapped or ends with a partial record
+     */
+    public Record next() {
+
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        int position = this.buffer.position();
+        this.record.wrap(this.buffer, position, this.recordLength);
+        this.buffer.position(position + this.recordLength);
+        return this.record;
+    }
+
+    /**
+     * Records cannot be removed.
+     *
+     * @throws UnsupportedOperationException
+     *     always
+     */
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Closes the file, if the reader was created for one.
+     */
+    public void close() {
+        Io.closeQuietly(this.channel);
+    }
+
+    /**
+     * Maps the next window of whole records from the file.
+     */
+    private void map() {
+
+        if (this.channel == null) {
+            return;
+        }
+
+        try {
+            long size = this.channel.size();
+
+            // start the window at the first unread byte
+            long start = this.mapped - this.buffer.remaining();
+            long records = Math.max(
+                    1, FixedRecordReader.WINDOW_SIZE / this.recordLength);
+            long length = Math.min(
+                    size - start, records * this.recordLength);
+
+            if (length <= this.buffer.remaining()) {
+                return;
+            }
+
+            this.buffer = this.channel.map(
+                    FileChannel.MapMode.READ_ONLY, start, length);
+            this.mapped = start + length;
+        } catch (IOException e) {
+            throw new IoException("Unable to map " + this.channel, e);
+        }
+    }
+}
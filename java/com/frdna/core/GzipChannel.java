@@ -0,0 +1,416 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Inflates gzip compressed bytes as they are read from a channel.
+ *
+ * The compressed bytes are read through a pooled buffer and inflated by a
+ * pooled <code>Inflater</code>, so opening many compressed files allocates
+ * little.  Files holding several gzip members one after another are read as
+ * one stream.  The channel is closed and the inflater is returned to the
+ * pool when this channel is closed.
+ */
+final class GzipChannel implements ReadableByteChannel {
+
+    private static final int MAGIC_1 = 0x1F;
+    private static final int MAGIC_2 = 0x8B;
+    private static final int DEFLATE = 8;
+
+    private static final int FHCRC = 0x02;
+    private static final int FEXTRA = 0x04;
+    private static final int FNAME = 0x08;
+    private static final int FCOMMENT = 0x10;
+
+    private static final int FRESERVED = 0xE0;
+
+    // deflate cannot expand data by more than about 1032 to 1
+    private static final long MAX_RATIO = 1032;
+
+    // MTIME, XFL and OS
+    private static final int HEADER_SKIP = 6;
+
+    private static final int MAX_POOLED = 16;
+
+    private static final Queue<Inflater> INFLATERS =
+            new ConcurrentLinkedQueue<Inflater>();
+
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer input = BufferPool.bytes();
+    private final CRC32 crc = new CRC32();
+    private Inflater inflater;
+    private boolean endOfInput = false;
+    private boolean endOfStream = false;
+
+    /**
+     * Creates a channel that inflates the bytes read from another.
+     *
+     * @param channel
+     *     the channel the compressed bytes are read from, positioned at the
+     *     start of a gzip header
+     * @throws IOException
+     *     if the gzip header cannot be read
+     */
+    GzipChannel(final ReadableByteChannel channel) throws IOException {
+
+        this.channel = channel;
+        this.inflater = GzipChannel.inflater();
+
+        // start with nothing read
+        this.input.flip();
+
+        try {
+            this.readHeader();
+        } catch (IOException e) {
+            this.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Tests if a file starts with a gzip header.  The magic bytes must be
+     * followed by the deflate method and flags with no reserved bits set, so
+     * binary data that happens to start with the magic bytes is not taken
+     * for gzip.  The position of the channel is not changed.
+     *
+     * @param channel
+     *     the channel of the file
+     * @return
+     *     <code>true</code> if the file is gzip compressed
+     * @throws IOException
+     *     if the file cannot be read
+     */
+    static boolean isGzip(final FileChannel channel) throws IOException {
+
+        ByteBuffer header = ByteBuffer.allocate(4);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) == -1) {
+                return false;
+            }
+        }
+
+        return (header.get(0) & 0xFF) == GzipChannel.MAGIC_1
+                && (header.get(1) & 0xFF) == GzipChannel.MAGIC_2
+                && header.get(2) == GzipChannel.DEFLATE
+                && (header.get(3) & GzipChannel.FRESERVED) == 0;
+    }
+
+    /**
+     * Reads the uncompressed size of the last member of a gzip file from its
+     * trailer.  The size is stored modulo 2^32 and a corrupt trailer can
+     * hold any value, so it is only a hint and is capped at the most that
+     * deflate can expand the file to.
+     *
+     * @param channel
+     *     the channel of the file
+     * @return
+     *     the uncompressed size, or <code>0</code> if the file is too short
+     *     to hold a trailer
+     * @throws IOException
+     *     if the file cannot be read
+     */
+    static long sizeHint(final FileChannel channel) throws IOException {
+
+        long size = channel.size();
+        if (size < 4) {
+            return 0;
+        }
+
+        ByteBuffer trailer = ByteBuffer.allocate(4);
+        while (trailer.hasRemaining()) {
+            if (channel.read(trailer, size - 4 + trailer.position()) == -1) {
+                return 0;
+            }
+        }
+
+        return Math.min(
+                GzipChannel.littleEndian(trailer.array(), 0),
+                size * GzipChannel.MAX_RATIO);
+    }
+
+    /**
+     * Inflates bytes into a buffer.
+     *
+     * @param dst
+     *     the buffer the inflated bytes are written to
+     * @return
+     *     the number of bytes written, or <code>-1</code> at the end of the
+     *     stream
+     * @throws IOException
+     *     if the channel cannot be read or the bytes are not valid gzip
+     */
+    public int read(final ByteBuffer dst) throws IOException {
+
+        if (this.inflater == null) {
+            throw new ClosedChannelException();
+        }
+
+        if (this.endOfStream) {
+            return -1;
+        }
+
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+
+        int count = 0;
+        while (count == 0 && !this.endOfStream) {
+            if (this.inflater.needsInput()) {
+                this.fill();
+                if (!this.input.hasRemaining()) {
+                    throw new EOFException("Unexpected end of gzip stream");
+                }
+                this.inflater.setInput(
+                        this.input.array(),
+                        this.input.arrayOffset() + this.input.position(),
+                        this.input.remaining());
+            }
+
+            count = this.inflate(dst);
+
+            if (this.inflater.finished()) {
+                this.readTrailer();
+            } else if (this.inflater.needsDictionary()) {
+                throw new ZipException("Gzip stream needs a dictionary");
+            }
+        }
+
+        if (count == 0) {
+            return -1;
+        }
+
+        return count;
+    }
+
+    /**
+     * Tests if the channel is open.
+     *
+     * @return
+     *     <code>true</code> until the channel is closed
+     */
+    public boolean isOpen() {
+        return this.inflater != null;
+    }
+
+    /**
+     * Closes the underlying channel and returns the buffer and inflater to
+     * their pools.
+     *
+     * @throws IOException
+     *     if the underlying channel cannot be closed
+     */
+    public void close() throws IOException {
+
+        if (this.inflater == null) {
+            return;
+        }
+
+        GzipChannel.release(this.inflater);
+        BufferPool.release(this.input);
+        this.inflater = null;
+        this.channel.close();
+    }
+
+    /**
+     * Inflates into the buffer and marks the input consumed by the inflater
+     * as read.
+     */
+    private int inflate(final ByteBuffer dst) throws IOException {
+
+        int before = this.inflater.getRemaining();
+        int count = 0;
+
+        try {
+            if (dst.hasArray()) {
+                count = this.inflater.inflate(
+                        dst.array(),
+                        dst.arrayOffset() + dst.position(),
+                        dst.remaining());
+                this.crc.update(
+                        dst.array(), dst.arrayOffset() + dst.position(), count);
+                dst.position(dst.position() + count);
+            } else {
+                byte[] bytes = new byte[dst.remaining()];
+                count = this.inflater.inflate(bytes);
+                this.crc.update(bytes, 0, count);
+                dst.put(bytes, 0, count);
+            }
+        } catch (DataFormatException e) {
+            ZipException zipException = new ZipException(e.getMessage());
+            zipException.initCause(e);
+            throw zipException;
+        }
+
+        this.input.position(this.input.position()
+                + before - this.inflater.getRemaining());
+        return count;
+    }
+
+    /**
+     * Reads and checks the header of a gzip member.
+     */
+    private void readHeader() throws IOException {
+
+        if (this.readByte() != GzipChannel.MAGIC_1
+                || this.readByte() != GzipChannel.MAGIC_2) {
+            throw new ZipException("Not in gzip format");
+        }
+
+        if (this.readByte() != GzipChannel.DEFLATE) {
+            throw new ZipException("Unsupported gzip compression method");
+        }
+
+        int flags = this.readByte();
+        this.skip(GzipChannel.HEADER_SKIP);
+
+        if ((flags & GzipChannel.FEXTRA) != 0) {
+            this.skip(this.readByte() | (this.readByte() << 8));
+        }
+
+        if ((flags & GzipChannel.FNAME) != 0) {
+            this.skipString();
+        }
+
+        if ((flags & GzipChannel.FCOMMENT) != 0) {
+            this.skipString();
+        }
+
+        if ((flags & GzipChannel.FHCRC) != 0) {
+            this.skip(2);
+        }
+
+        this.crc.reset();
+    }
+
+    /**
+     * Reads and checks the trailer of a gzip member, then starts the next
+     * member if there is one.
+     */
+    private void readTrailer() throws IOException {
+
+        byte[] trailer = new byte[8];
+        for (int i = 0; i < trailer.length; i++) {
+            trailer[i] = (byte) this.readByte();
+        }
+
+        if (GzipChannel.littleEndian(trailer, 0) != this.crc.getValue()) {
+            throw new ZipException("Corrupt gzip stream, bad CRC");
+        }
+
+        if (GzipChannel.littleEndian(trailer, 4)
+                != (this.inflater.getBytesWritten() & 0xFFFFFFFFL)) {
+            throw new ZipException("Corrupt gzip stream, bad length");
+        }
+
+        this.fill();
+        if (!this.input.hasRemaining()) {
+            this.endOfStream = true;
+            return;
+        }
+
+        this.inflater.reset();
+        this.readHeader();
+    }
+
+    /**
+     * Reads more compressed bytes if the input buffer is empty.
+     */
+    private void fill() throws IOException {
+
+        while (!this.input.hasRemaining() && !this.endOfInput) {
+            this.input.clear();
+            if (this.channel.read(this.input) == -1) {
+                this.endOfInput = true;
+            }
+            this.input.flip();
+        }
+    }
+
+    private int readByte() throws IOException {
+
+        this.fill();
+        if (!this.input.hasRemaining()) {
+            throw new EOFException("Unexpected end of gzip stream");
+        }
+
+        return this.input.get() & 0xFF;
+    }
+
+    private void skip(final int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            this.readByte();
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (this.readByte() != 0) {
+            continue;
+        }
+    }
+
+    private static long littleEndian(final byte[] bytes, final int offset) {
+        return (bytes[offset] & 0xFFL)
+                | ((bytes[offset + 1] & 0xFFL) << 8)
+                | ((bytes[offset + 2] & 0xFFL) << 16)
+                | ((bytes[offset + 3] & 0xFFL) << 24);
+    }
+
+    private static Inflater inflater() {
+
+        Inflater inflater = GzipChannel.INFLATERS.poll();
+        if (inflater == null) {
+            return new Inflater(true);
+        }
+
+        GzipChannel.POOLED.decrementAndGet();
+        return inflater;
+    }
+
+    private static void release(final Inflater inflater) {
+
+        inflater.reset();
+
+        if (GzipChannel.POOLED.incrementAndGet() > GzipChannel.MAX_POOLED) {
+            GzipChannel.POOLED.decrementAndGet();
+            inflater.end();
+            return;
+        }
+
+        GzipChannel.INFLATERS.offer(inflater);
+    }
+}
@@ -24,18 +24,63 @@ package com.frdna.core;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.Reader;
-import java.nio.channels.Channels;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import com.frdna.loginator.Log;
 
 public final class Io {
 
+    /**
+     * The file length, in bytes, at which {@link #read(File,Charset)} stops
+     * streaming the file through a reader and memory maps it instead.
+     */
+    public static final long MAPPED_READ_THRESHOLD = 1024 * 1024;
+
     private static final long serialVersionUID = 6163685685362618031L;
 
+    private static final int READ_ALL_THREADS = 16;
+
+    private static final long TRANSFER_SIZE = 64L * 1024 * 1024;
+
+    // runs tasks in the calling thread
+    private static final Executor CALLER_RUNS = new Executor() {
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    };
+
+    private static final ConcurrentMap<String, Charset> CHARSETS =
+            new ConcurrentHashMap<String, Charset>();
+
     private Io() { }
 
     /**
@@ -87,7 +132,7 @@ public final class Io {
      *  @see #read(File)
      */
     public static String read(final String fileName, final String charset) {
-        return Io.read(fileName, Charset.forName(charset));
+        return Io.read(fileName, Io.charset(charset));
     }
 
     /**
@@ -144,12 +189,15 @@ public final class Io {
      * @see #read(File,Charset)
      */
     public static String read(final File file, final String charset) {
-        return Io.read(file, Charset.forName(charset));
+        return Io.read(file, Io.charset(charset));
     }
 
     /**
      * Reads the contents of the file to a string.
      *
+     * A file that starts with a gzip header is inflated as it is read, as it
+     * is by the other methods that decode a file.
+     *
      * @param file
      *     the file to be read
      * @param charset
@@ -172,45 +220,1954 @@ public final class Io {
             return null;
         }
 
-        Reader reader = null;
+        if (file.length() >= Io.MAPPED_READ_THRESHOLD && !Io.isGzip(file)) {
+            return Io.readMapped(file, charset);
+        }
+
+        return Io.readStreamed(file, charset);
+    }
+
+    /**
+     * Reads the contents of the file to a string by memory mapping the file.
+     *
+     * The output is sized once from the length of the file and the bytes are
+     * decoded straight from the mapped buffer into it, which avoids the
+     * repeated copying of streaming a large file through a reader.
+     * {@link #read(File,Charset)} reads files of at least
+     * {@link #MAPPED_READ_THRESHOLD} bytes this way and streams smaller
+     * files, which are cheaper to read than to map.
+     *
+     * @param file
+     *     the file to be read
+     * @param charset
+     *     the charset to use to decode the content
+     * @return
+     *     the <code>String</code> contents of the file, or <code>null</code> if
+     *     the file is not found or is <code>null</code>
+     * @throws NullPointerException
+     *     if <code>charset</code> is <code>null</code>
+     * @throws IoException
+     *     if the file cannot be read or is too large for a <code>String</code>
+     */
+    public static String readMapped(final File file, final Charset charset) {
+
+        Assert.notNull("charset", charset);
+
+        if (file == null) {
+            return null;
+        }
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        FileInputStream fileInputStream = null;
 
         try {
-            FileInputStream fileInputStream = new FileInputStream(file);
+            fileInputStream = new FileInputStream(file);
             FileChannel fileChannel = fileInputStream.getChannel();
-            reader = Channels.newReader(
-                    fileChannel, charset.newDecoder(), 1024);
-            return Io.read(reader);
+            long size = fileChannel.size();
+            CharBuffer chars = CharBuffer.allocate(
+                    Io.maxChars(file, charset, size));
+            MappedByteBuffer bytes = fileChannel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, size);
+            Io.decode(charset, bytes, chars);
+            return new String(chars.array(), 0, chars.position());
         } catch (IOException e) {
             throw new IoException("Unable to read " + file, e);
         } finally {
-            Io.closeQuietly(reader);
+            Io.closeQuietly(fileInputStream);
         }
     }
 
     /**
-     * Reads the contents from <code>reader</code> into a <code>String</code>.
+     * Memory maps a file and views its bytes as characters.
+     *
+     * No characters are decoded until they are read from the view, so the
+     * fields of a large file can be checked without copying them.  The file
+     * stays mapped until the view is garbage collected.
      *
-     * @param reader
-     *     the reader the contents will be read from
+     * @param file
+     *     the file to be read
+     * @param charset
+     *     the single byte charset of the file
      * @return
-     *     the <code>String</code> value read from <code>reader</code>
-     * @throws IOException
-     *     if <code>reader</code> throws an exception
+     *     a view over the characters of the file, or <code>null</code> if the
+     *     file is not found or is <code>null</code>
+     * @throws NullPointerException
+     *     if <code>charset</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>charset</code> is not a single byte charset
+     * @throws IoException
+     *     if the file cannot be read or is larger than 2 GB
+     * @see ByteCharSequence
+     */
+    public static ByteCharSequence mapChars(
+            final File file,
+            final Charset charset) {
+
+        Assert.notNull("charset", charset);
+
+        if (file == null) {
+            return null;
+        }
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        FileChannel fileChannel = Io.open(file);
+
+        try {
+            long size = fileChannel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IoException(file + " is too large to map");
+            }
+
+            return ByteCharSequence.wrap(
+                    fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size),
+                    charset);
+        } catch (IOException e) {
+            throw new IoException("Unable to read " + file, e);
+        } finally {
+            Io.closeQuietly(fileChannel);
+        }
+    }
+
+    /**
+     * Reads the contents of the file to a string through pooled buffers.
+     *
+     * @param file
+     *     the file to be read
+     * @param charset
+     *     the charset to use to decode the content
+     * @return
+     *     the <code>String</code> contents of the file, or <code>null</code> if
+     *     the file is not found
+     */
+    static String readStreamed(final File file, final Charset charset) {
+
+        StringBuilder contents = new StringBuilder();
+        if (Io.read(file, charset, contents) == -1) {
+            return null;
+        }
+
+        return contents.toString();
+    }
+
+    /**
+     * Reads the contents of the file and appends them to a
+     * <code>StringBuilder</code>.
+     *
+     * @param file
+     *     the file to be read
+     * @param charset
+     *     the charset to use to decode the content
+     * @param destination
+     *     the builder the contents are appended to
+     * @return
+     *     the number of characters appended, or <code>-1</code> if the file is
+     *     not found or is <code>null</code>
+     * @throws NullPointerException
+     *     if <code>charset</code> or <code>destination</code> is
+     *     <code>null</code>
+     * @see #read(File,Charset,StringBuilder,long)
+     */
+    public static int read(
+            final File file,
+            final Charset charset,
+            final StringBuilder destination) {
+        return Io.read(file, charset, destination, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads the contents of the file and appends them to a
+     * <code>StringBuilder</code>.
+     *
+     * The builder is grown once from the length of the file and the file is
+     * decoded through pooled buffers, so reading many files allocates little
+     * more than the builder.
+     *
+     * @param file
+     *     the file to be read
+     * @param charset
+     *     the charset to use to decode the content
+     * @param destination
+     *     the builder the contents are appended to
+     * @param maxBytes
+     *     the largest file, in bytes, that will be read
+     * @return
+     *     the number of characters appended, or <code>-1</code> if the file is
+     *     not found or is <code>null</code>
+     * @throws NullPointerException
+     *     if <code>charset</code> or <code>destination</code> is
+     *     <code>null</code>
+     * @throws IoException
+     *     if the file cannot be read or is larger than <code>maxBytes</code>
+     */
+    public static int read(
+            final File file,
+            final Charset charset,
+            final StringBuilder destination,
+            final long maxBytes) {
+
+        Assert.notNull("charset", charset);
+        Assert.notNull("destination", destination);
+
+        if (file == null) {
+            return -1;
+        }
+
+        if (!file.exists()) {
+            return -1;
+        }
+
+        FileChannel fileChannel = Io.open(file);
+        ReadableByteChannel channel = fileChannel;
+        CharBuffer chars = BufferPool.chars();
+
+        try {
+            long size = fileChannel.size();
+            Io.checkSize(file, size, maxBytes);
+
+            if (GzipChannel.isGzip(fileChannel)) {
+                size = Math.min(GzipChannel.sizeHint(fileChannel), maxBytes);
+                channel = new GzipChannel(fileChannel);
+            }
+
+            int start = destination.length();
+            destination.ensureCapacity(
+                    start + Io.maxChars(file, charset, size));
+            Io.decode(file, channel, charset, chars, destination, maxBytes);
+            return destination.length() - start;
+        } catch (IOException e) {
+            throw new IoException("Unable to read " + file, e);
+        } finally {
+            BufferPool.release(chars);
+            Io.closeQuietly(channel);
+        }
+    }
+
+    /**
+     * Reads the contents of the file into a <code>CharBuffer</code>.
+     *
+     * The characters are decoded straight into <code>destination</code>
+     * starting at its position, which is advanced past them.
+     *
+     * @param file
+     *     the file to be read
+     * @param charset
+     *     the charset to use to decode the content
+     * @param destination
+     *     the buffer the contents are decoded into
+     * @return
+     *     the number of characters decoded, or <code>-1</code> if the file is
+     *     not found or is <code>null</code>
+     * @throws NullPointerException
+     *     if <code>charset</code> or <code>destination</code> is
+     *     <code>null</code>
+     * @throws IoException
+     *     if the file cannot be read or does not fit in
+     *     <code>destination</code>
+     */
+    public static int read(
+            final File file,
+            final Charset charset,
+            final CharBuffer destination) {
+
+        Assert.notNull("charset", charset);
+        Assert.notNull("destination", destination);
+
+        if (file == null) {
+            return -1;
+        }
+
+        if (!file.exists()) {
+            return -1;
+        }
+
+        ReadableByteChannel channel = Io.openInflated(file);
+
+        try {
+            int start = destination.position();
+            Io.decode(
+                    file, channel, charset, destination, null,
+                    Long.MAX_VALUE);
+            return destination.position() - start;
+        } catch (IOException e) {
+            throw new IoException("Unable to read " + file, e);
+        } finally {
+            Io.closeQuietly(channel);
+        }
+    }
+
+    /**
+     * Reads the bytes of the file into an array.
+     *
+     * @param file
+     *     the file to be read
+     * @param destination
+     *     the array the bytes are read into, starting at index zero
+     * @return
+     *     the number of bytes read, or <code>-1</code> if the file is not found
+     *     or is <code>null</code>
+     * @throws NullPointerException
+     *     if <code>destination</code> is <code>null</code>
+     * @throws IoException
+     *     if the file cannot be read or does not fit in
+     *     <code>destination</code>
+     */
+    public static int read(final File file, final byte[] destination) {
+        Assert.notNull("destination", destination);
+        return Io.read(file, ByteBuffer.wrap(destination));
+    }
+
+    /**
+     * Reads the bytes of the file into a <code>ByteBuffer</code>.
+     *
+     * The bytes are read into <code>destination</code> starting at its
+     * position, which is advanced past them.
+     *
+     * @param file
+     *     the file to be read
+     * @param destination
+     *     the buffer the bytes are read into
+     * @return
+     *     the number of bytes read, or <code>-1</code> if the file is not found
+     *     or is <code>null</code>
+     * @throws NullPointerException
+     *     if <code>destination</code> is <code>null</code>
+     * @throws IoException
+     *     if the file cannot be read or does not fit in
+     *     <code>destination</code>
      */
-    private static String read(final Reader reader) throws IOException {
+    public static int read(final File file, final ByteBuffer destination) {
+
+        Assert.notNull("destination", destination);
+
+        if (file == null) {
+            return -1;
+        }
+
+        if (!file.exists()) {
+            return -1;
+        }
+
+        FileChannel fileChannel = Io.open(file);
 
-        StringBuilder stringBuilder = new StringBuilder();
+        try {
+            Io.checkSize(file, fileChannel.size(), destination.remaining());
 
-        int read = 0;
-        char[] buffer = new char[1024];
+            int start = destination.position();
+            int read = 0;
+            while (destination.hasRemaining() && read != -1) {
+                read = fileChannel.read(destination);
+            }
 
-        do {
-            read = reader.read(buffer);
-            if (read > 0) {
-                stringBuilder.append(buffer, 0, read);
+            // the file grew after its size was checked
+            if (read != -1 && fileChannel.position() < fileChannel.size()) {
+                Io.checkSize(file, fileChannel.size(), 0);
             }
-        } while (read != -1);
 
-        return stringBuilder.toString();
+            return destination.position() - start;
+        } catch (IOException e) {
+            throw new IoException("Unable to read " + file, e);
+        } finally {
+            Io.closeQuietly(fileChannel);
+        }
+    }
+
+    /**
+     * Reads the contents of the file to a string, decoding chunks of the file
+     * in parallel on a shared pool with a thread per processor.
+     *
+     * @param file
+     *     the file to be read
+     * @param charset
+     *     the charset to use to decode the content
+     * @return
+     *     the <code>String</code> contents of the file, or <code>null</code> if
+     *     the file is not found or is <code>null</code>
+     * @throws NullPointerException
+     *     if <code>charset</code> is <code>null</code>
+     * @see #readParallel(File,Charset,Executor)
+     */
+    public static String readParallel(
+            final File file,
+            final Charset charset) {
+
+        return Io.readParallel(file, charset, ProcessorPool.EXECUTOR);
+    }
+
+    /**
+     * Reads the contents of the file to a string, decoding chunks of the file
+     * in parallel.
+     *
+     * The file is memory mapped and split into chunks at line boundaries.
+     * Only single byte charsets and UTF-8 are split, the file is decoded as a
+     * single chunk for any other charset or if it is gzip compressed.
+     *
+     * @param file
+     *     the file to be read
+     * @param charset
+     *     the charset to use to decode the content
+     * @param executor
+     *     the executor the chunks are decoded on
+     * @return
+     *     the <code>String</code> contents of the file, or <code>null</code> if
+     *     the file is not found or is <code>null</code>
+     * @throws NullPointerException
+     *     if <code>charset</code> or <code>executor</code> is
+     *     <code>null</code>
+     * @throws IoException
+     *     if the file cannot be read or is too large for a <code>String</code>
+     */
+    public static String readParallel(
+            final File file,
+            final Charset charset,
+            final Executor executor) {
+
+        Assert.notNull("charset", charset);
+        Assert.notNull("executor", executor);
+
+        if (file == null) {
+            return null;
+        }
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        // a compressed file cannot be split
+        if (Io.isGzip(file)) {
+            return Io.readStreamed(file, charset);
+        }
+
+        FileChannel fileChannel = Io.open(file);
+
+        try {
+            return new ParallelReader(fileChannel, charset).read(executor);
+        } catch (IOException e) {
+            throw new IoException("Unable to read " + file, e);
+        } finally {
+            Io.closeQuietly(fileChannel);
+        }
+    }
+
+    /**
+     * Reads the contents of the file to an ordered list of chunks, decoding
+     * the chunks in parallel.
+     *
+     * Each chunk holds whole lines unless a line is longer than a chunk.
+     * Files too large for a <code>String</code> can be read this way.
+     *
+     * @param file
+     *     the file to be read
+     * @param charset
+     *     the charset to use to decode the content
+     * @param executor
+     *     the executor the chunks are decoded on
+     * @return
+     *     the chunks of the file in order, or <code>null</code> if the file
+     *     is not found or is <code>null</code>
+     * @throws NullPointerException
+     *     if <code>charset</code> or <code>executor</code> is
+     *     <code>null</code>
+     * @see #readParallel(File,Charset,Executor)
+     */
+    public static List<CharSequence> readChunks(
+            final File file,
+            final Charset charset,
+            final Executor executor) {
+
+        Assert.notNull("charset", charset);
+        Assert.notNull("executor", executor);
+
+        if (file == null) {
+            return null;
+        }
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        if (Io.isGzip(file)) {
+            return Collections.<CharSequence>singletonList(
+                    Io.readStreamed(file, charset));
+        }
+
+        FileChannel fileChannel = Io.open(file);
+
+        try {
+            return new ParallelReader(fileChannel, charset).readChunks(
+                    executor);
+        } catch (IOException e) {
+            throw new IoException("Unable to read " + file, e);
+        } finally {
+            Io.closeQuietly(fileChannel);
+        }
+    }
+
+    /**
+     * Reads the contents of a group of files concurrently on a shared pool
+     * of 16 threads.
+     *
+     * @param files
+     *     the files to be read
+     * @param charset
+     *     the charset to use to decode the content
+     * @return
+     *     the <code>String</code> contents of each file in the order of
+     *     <code>files</code>, with <code>null</code> for files that are not
+     *     found
+     * @throws NullPointerException
+     *     if <code>files</code> or <code>charset</code> is <code>null</code>
+     * @throws IoException
+     *     if any file cannot be read
+     * @see #readAll(Collection,Charset,Executor,Map)
+     */
+    public static Map<File, String> readAll(
+            final Collection<File> files,
+            final Charset charset) {
+
+        return Io.readAll(files, charset, ReadPool.EXECUTOR, null);
+    }
+
+    /**
+     * Reads the contents of a group of files concurrently.
+     *
+     * Every file is read with {@link #read(File,Charset)}, so a file that is
+     * not found is read as <code>null</code>.  When <code>failures</code> is
+     * given, each file that cannot be read is left out of the result and
+     * added to <code>failures</code> with its exception.  Otherwise the first
+     * failure is thrown once all of the files have been read.
+     *
+     * @param files
+     *     the files to be read
+     * @param charset
+     *     the charset to use to decode the content
+     * @param executor
+     *     the executor the files are read on
+     * @param failures
+     *     the map the failures are added to or <code>null</code> to throw the
+     *     first failure
+     * @return
+     *     the <code>String</code> contents of each file in the order of
+     *     <code>files</code>, with <code>null</code> for files that are not
+     *     found
+     * @throws NullPointerException
+     *     if <code>files</code>, <code>charset</code> or
+     *     <code>executor</code> is <code>null</code>
+     * @throws IoException
+     *     if any file cannot be read and <code>failures</code> is
+     *     <code>null</code>
+     */
+    public static Map<File, String> readAll(
+            final Collection<File> files,
+            final Charset charset,
+            final Executor executor,
+            final Map<File, IoException> failures) {
+
+        Assert.notNull("files", files);
+        Assert.notNull("charset", charset);
+        Assert.notNull("executor", executor);
+
+        Map<File, FutureTask<String>> tasks =
+                new LinkedHashMap<File, FutureTask<String>>();
+
+        for (final File file : files) {
+            if (tasks.containsKey(file)) {
+                continue;
+            }
+
+            FutureTask<String> task = new FutureTask<String>(
+                    new Callable<String>() {
+                        public String call() {
+                            return Io.read(file, charset);
+                        }
+                    });
+            tasks.put(file, task);
+            executor.execute(task);
+        }
+
+        Map<File, String> contents = new LinkedHashMap<File, String>();
+        IoException failure = null;
+
+        for (Map.Entry<File, FutureTask<String>> task : tasks.entrySet()) {
+            try {
+                contents.put(task.getKey(), task.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IoException("Interrupted while reading", e);
+            } catch (ExecutionException e) {
+                IoException cause = Io.ioException(task.getKey(), e);
+                if (failures != null) {
+                    failures.put(task.getKey(), cause);
+                } else if (failure == null) {
+                    failure = cause;
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        return contents;
+    }
+
+    /**
+     * Converts a file from one charset to another.
+     *
+     * The file is streamed through fixed size buffers, so it is never held
+     * in memory.  When both charsets are single byte charsets, such as Cp037
+     * and ISO-8859-1, bytes are translated through a table without being
+     * decoded.  If the conversion fails, the target may be left partially
+     * written.
+     *
+     * @param source
+     *     the file to be converted
+     * @param sourceCharset
+     *     the charset of <code>source</code>
+     * @param target
+     *     the file the converted contents are written to, which is replaced
+     *     if it exists
+     * @param targetCharset
+     *     the charset of <code>target</code>
+     * @return
+     *     the number of bytes written to <code>target</code>
+     * @throws NullPointerException
+     *     if any argument is <code>null</code>
+     * @throws IoException
+     *     if <code>source</code> and <code>target</code> are the same file,
+     *     <code>source</code> cannot be read, <code>target</code> cannot be
+     *     written or a character cannot be converted
+     */
+    public static long transcode(
+            final File source,
+            final Charset sourceCharset,
+            final File target,
+            final Charset targetCharset) {
+
+        Assert.notNull("source", source);
+        Assert.notNull("sourceCharset", sourceCharset);
+        Assert.notNull("target", target);
+        Assert.notNull("targetCharset", targetCharset);
+
+        // opening the target would truncate the source
+        if (Io.isSameFile(source, target)) {
+            throw new IoException("Unable to transcode " + source
+                    + " to itself as " + target);
+        }
+
+        ReadableByteChannel in = Io.openInflated(source);
+        FileOutputStream out = null;
+
+        try {
+            out = new FileOutputStream(target);
+            return new Transcoder(sourceCharset, targetCharset).transcode(
+                    in, out.getChannel());
+        } catch (IOException e) {
+            throw new IoException(
+                    "Unable to transcode " + source + " to " + target, e);
+        } finally {
+            Io.closeQuietly(in);
+            Io.closeQuietly(out);
+        }
+    }
+
+    /**
+     * Writes a character sequence to a file, replacing its contents.
+     *
+     * @param file
+     *     the file to be written
+     * @param contents
+     *     the characters to write
+     * @param charset
+     *     the charset to use to encode the content
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if any argument is <code>null</code>
+     * @see #write(File,Iterable,Charset,boolean)
+     */
+    public static long write(
+            final File file,
+            final CharSequence contents,
+            final Charset charset) {
+        Assert.notNull("contents", contents);
+        return Io.write(
+                file, Collections.singletonList(contents), charset, false);
+    }
+
+    /**
+     * Writes character sequences to a file, replacing its contents.
+     *
+     * @param file
+     *     the file to be written
+     * @param contents
+     *     the character sequences to write, in order
+     * @param charset
+     *     the charset to use to encode the content
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if any argument is <code>null</code>
+     * @see #write(File,Iterable,Charset,boolean)
+     */
+    public static long write(
+            final File file,
+            final Iterable<? extends CharSequence> contents,
+            final Charset charset) {
+        return Io.write(file, contents, charset, false);
+    }
+
+    /**
+     * Writes character sequences to a file, replacing its contents.
+     *
+     * The characters are encoded into pooled buffers that are written to the
+     * file with gathering writes, so a large output is written in a few
+     * large system calls.  When <code>atomic</code> is <code>true</code> the
+     * contents are written to a temporary file in the same directory, forced
+     * to the disk and renamed over <code>file</code>, so readers see either
+     * the old contents or all of the new contents.  On platforms where a
+     * rename cannot replace an existing file, the old file is renamed aside
+     * first, the same as {@link #move(File,File)}.  The replace is then not
+     * atomic, as for a moment <code>file</code> does not exist, but the old
+     * contents are restored if the new ones cannot take their place.
+     * Otherwise a failure may leave <code>file</code> partially written.
+     *
+     * @param file
+     *     the file to be written
+     * @param contents
+     *     the character sequences to write, in order
+     * @param charset
+     *     the charset to use to encode the content
+     * @param atomic
+     *     <code>true</code> to replace <code>file</code> with a rename
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if any argument is <code>null</code>
+     * @throws IoException
+     *     if <code>file</code> cannot be written or a character cannot be
+     *     encoded
+     */
+    public static long write(
+            final File file,
+            final Iterable<? extends CharSequence> contents,
+            final Charset charset,
+            final boolean atomic) {
+
+        Assert.notNull("file", file);
+        Assert.notNull("contents", contents);
+        Assert.notNull("charset", charset);
+
+        if (!atomic) {
+            return Io.write(file, contents, charset, file, false);
+        }
+
+        File temp = null;
+        boolean renamed = false;
+
+        try {
+            temp = Io.createTempFile(file);
+            long written = Io.write(temp, contents, charset, file, false);
+            if (!Io.replace(temp, file)) {
+                throw new IoException(
+                        "Unable to rename " + temp + " to " + file);
+            }
+            renamed = true;
+            return written;
+        } catch (IOException e) {
+            throw new IoException("Unable to write " + file, e);
+        } finally {
+            if (temp != null && !renamed) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Appends a character sequence to the end of a file, creating the file
+     * if it does not exist.
+     *
+     * @param file
+     *     the file to be written
+     * @param contents
+     *     the characters to write
+     * @param charset
+     *     the charset to use to encode the content
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if any argument is <code>null</code>
+     * @see #append(File,Iterable,Charset)
+     */
+    public static long append(
+            final File file,
+            final CharSequence contents,
+            final Charset charset) {
+        Assert.notNull("contents", contents);
+        return Io.append(file, Collections.singletonList(contents), charset);
+    }
+
+    /**
+     * Appends character sequences to the end of a file, creating the file if
+     * it does not exist.
+     *
+     * The characters are encoded and written the same way as
+     * {@link #write(File,Iterable,Charset,boolean)}.  A failure may leave
+     * part of the contents appended.
+     *
+     * @param file
+     *     the file to be written
+     * @param contents
+     *     the character sequences to write, in order
+     * @param charset
+     *     the charset to use to encode the content
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if any argument is <code>null</code>
+     * @throws IoException
+     *     if <code>file</code> cannot be written or a character cannot be
+     *     encoded
+     */
+    public static long append(
+            final File file,
+            final Iterable<? extends CharSequence> contents,
+            final Charset charset) {
+
+        Assert.notNull("file", file);
+        Assert.notNull("contents", contents);
+        Assert.notNull("charset", charset);
+
+        return Io.write(file, contents, charset, file, true);
+    }
+
+    /**
+     * Copies a file, replacing the target if it exists.
+     *
+     * @param source
+     *     the file to be copied
+     * @param target
+     *     the file the bytes are copied to
+     * @return
+     *     the number of bytes copied
+     * @throws NullPointerException
+     *     if any argument is <code>null</code>
+     * @see #copy(File,File,boolean)
+     */
+    public static long copy(final File source, final File target) {
+        return Io.copy(source, target, false);
+    }
+
+    /**
+     * Copies a file, replacing the target if it exists.
+     *
+     * The bytes are copied with <code>FileChannel.transferTo</code> a chunk
+     * at a time, so the operating system copies them without them passing
+     * through the heap and files larger than 2 GB are copied in full.  If
+     * the copy fails, the target may be left partially written.
+     *
+     * @param source
+     *     the file to be copied
+     * @param target
+     *     the file the bytes are copied to
+     * @param preserveTimestamp
+     *     <code>true</code> to give <code>target</code> the last modified
+     *     time of <code>source</code>
+     * @return
+     *     the number of bytes copied
+     * @throws NullPointerException
+     *     if any argument is <code>null</code>
+     * @throws IoException
+     *     if <code>source</code> and <code>target</code> are the same file,
+     *     <code>source</code> cannot be read in full or <code>target</code>
+     *     cannot be written
+     */
+    public static long copy(
+            final File source,
+            final File target,
+            final boolean preserveTimestamp) {
+
+        Assert.notNull("source", source);
+        Assert.notNull("target", target);
+
+        // opening the target would truncate the source
+        if (Io.isSameFile(source, target)) {
+            throw new IoException(
+                    "Unable to copy " + source + " to itself as " + target);
+        }
+
+        FileInputStream in = null;
+        FileOutputStream out = null;
+        long copied = 0;
+
+        try {
+            in = new FileInputStream(source);
+            out = new FileOutputStream(target);
+            FileChannel sourceChannel = in.getChannel();
+            FileChannel targetChannel = out.getChannel();
+            long size = sourceChannel.size();
+
+            while (copied < size) {
+                long count = sourceChannel.transferTo(
+                        copied,
+                        Math.min(Io.TRANSFER_SIZE, size - copied),
+                        targetChannel);
+                if (count <= 0) {
+                    break;
+                }
+                copied += count;
+            }
+
+            if (copied < size) {
+                throw new IoException("Only copied " + copied + " of " + size
+                        + " bytes of " + source + " to " + target);
+            }
+
+            out.close();
+            out = null;
+        } catch (IOException e) {
+            throw new IoException(
+                    "Unable to copy " + source + " to " + target, e);
+        } finally {
+            Io.closeQuietly(in);
+            Io.closeQuietly(out);
+        }
+
+        if (preserveTimestamp
+                && !target.setLastModified(source.lastModified())) {
+            throw new IoException(
+                    "Unable to set the last modified time of " + target);
+        }
+
+        return copied;
+    }
+
+    /**
+     * Moves a file, replacing the target if it exists.
+     *
+     * @param source
+     *     the file to be moved
+     * @param target
+     *     the new location of the file
+     * @throws NullPointerException
+     *     if any argument is <code>null</code>
+     * @see #move(File,File,boolean)
+     */
+    public static void move(final File source, final File target) {
+        Io.move(source, target, false);
+    }
+
+    /**
+     * Moves a file, replacing the target if it exists.
+     *
+     * The file is renamed when it can be.  Otherwise, as when the target is
+     * on another file system, it is copied with
+     * {@link #copy(File,File,boolean)} to a temporary file next to the
+     * target, which is renamed over the target once the copy is complete,
+     * and the source is deleted.  The target is only replaced once the new
+     * contents are in place, so it is left unchanged if the move fails.  A
+     * renamed file always keeps its last modified time.
+     *
+     * @param source
+     *     the file to be moved
+     * @param target
+     *     the new location of the file
+     * @param preserveTimestamp
+     *     <code>true</code> to keep the last modified time of
+     *     <code>source</code> when the file has to be copied
+     * @throws NullPointerException
+     *     if any argument is <code>null</code>
+     * @throws IoException
+     *     if <code>source</code> is not a file or cannot be moved
+     */
+    public static void move(
+            final File source,
+            final File target,
+            final boolean preserveTimestamp) {
+
+        Assert.notNull("source", source);
+        Assert.notNull("target", target);
+
+        if (!source.isFile()) {
+            throw new IoException("Unable to move " + source
+                    + " as it is not a file");
+        }
+
+        if (Io.isSameFile(source, target)) {
+            return;
+        }
+
+        File temp = null;
+        boolean replaced = false;
+
+        try {
+            if (Io.replace(source, target)) {
+                return;
+            }
+
+            temp = Io.createTempFile(target);
+            Io.copy(source, temp, preserveTimestamp);
+            if (!Io.replace(temp, target)) {
+                throw new IoException(
+                        "Unable to rename " + temp + " to " + target);
+            }
+            replaced = true;
+        } catch (IOException e) {
+            throw new IoException(
+                    "Unable to move " + source + " to " + target, e);
+        } finally {
+            if (temp != null && !replaced) {
+                temp.delete();
+            }
+        }
+
+        if (!source.delete()) {
+            throw new IoException("Unable to delete " + source
+                    + " after copying it to " + target);
+        }
+    }
+
+    /**
+     * Computes the CRC-32 checksum of a file, checksumming chunks of large
+     * files in parallel on a shared pool with a thread per processor.
+     *
+     * @param file
+     *     the file to be checksummed
+     * @return
+     *     the checksum, which is the same as <code>java.util.zip.CRC32</code>
+     *     computes over the whole file
+     * @throws NullPointerException
+     *     if <code>file</code> is <code>null</code>
+     * @see #checksum(File,Executor)
+     */
+    public static long checksum(final File file) {
+
+        Assert.notNull("file", file);
+
+        if (file.length() <= ParallelReader.MIN_CHUNK_SIZE) {
+            return Io.checksum(file, Io.CALLER_RUNS);
+        }
+
+        return Io.checksum(file, ProcessorPool.EXECUTOR);
+    }
+
+    /**
+     * Computes the CRC-32 checksum of a file, checksumming chunks of the file
+     * in parallel.
+     *
+     * The file is memory mapped and split into chunks whose checksums are
+     * combined in file order, so the result does not depend on how the file
+     * was split.
+     *
+     * @param file
+     *     the file to be checksummed
+     * @param executor
+     *     the executor the chunks are checksummed on
+     * @return
+     *     the checksum, which is the same as <code>java.util.zip.CRC32</code>
+     *     computes over the whole file
+     * @throws NullPointerException
+     *     if <code>file</code> or <code>executor</code> is <code>null</code>
+     * @throws IoException
+     *     if the file cannot be read
+     */
+    public static long checksum(final File file, final Executor executor) {
+
+        Assert.notNull("file", file);
+        Assert.notNull("executor", executor);
+
+        FileChannel fileChannel = Io.open(file);
+
+        try {
+            return Checksums.crc32(fileChannel, executor);
+        } catch (IOException e) {
+            throw new IoException("Unable to read " + file, e);
+        } finally {
+            Io.closeQuietly(fileChannel);
+        }
+    }
+
+    /**
+     * Computes a message digest, such as SHA-256, of a file.
+     *
+     * The file is memory mapped and digested in a single pass.
+     *
+     * @param file
+     *     the file to be digested
+     * @param algorithm
+     *     the name of the digest algorithm
+     * @return
+     *     the digest
+     * @throws NullPointerException
+     *     if any argument is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if the algorithm is not supported
+     * @throws IoException
+     *     if the file cannot be read
+     */
+    public static byte[] digest(final File file, final String algorithm) {
+
+        Assert.notNull("file", file);
+        Assert.notNull("algorithm", algorithm);
+
+        MessageDigest digest = null;
+        try {
+            digest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException(
+                    "Unsupported digest algorithm " + algorithm, e);
+        }
+
+        FileChannel fileChannel = Io.open(file);
+
+        try {
+            return Checksums.digest(fileChannel, digest);
+        } catch (IOException e) {
+            throw new IoException("Unable to read " + file, e);
+        } finally {
+            Io.closeQuietly(fileChannel);
+        }
+    }
+
+    /**
+     * Takes the fingerprint of a file, which tells if the file changes.
+     *
+     * @param file
+     *     the file to be fingerprinted
+     * @return
+     *     the size, last modified time and checksum of the file
+     * @throws NullPointerException
+     *     if <code>file</code> is <code>null</code>
+     * @throws IoException
+     *     if the file cannot be read
+     * @see FileFingerprint#isChanged(File)
+     */
+    public static FileFingerprint fingerprint(final File file) {
+
+        Assert.notNull("file", file);
+
+        long size = file.length();
+        long lastModified = file.lastModified();
+        return new FileFingerprint(size, lastModified, Io.checksum(file));
+    }
+
+    /**
+     * Lazily reads the lines of a file.
+     *
+     * @param file
+     *     the file to be read
+     * @param charset
+     *     the name of the charset to use to decode the content
+     * @return
+     *     an iterator over the lines of the file, or <code>null</code> if the
+     *     file is not found or is <code>null</code>
+     * @throws NullPointerException
+     *     if <code>charset</code> is <code>null</code>
+     * @see #lines(File,Charset)
+     */
+    public static RecordIterator lines(final File file, final String charset) {
+        return Io.lines(file, Io.charset(charset));
+    }
+
+    /**
+     * Lazily reads the lines of a file.
+     *
+     * Lines end with <code>\n</code> or <code>\r\n</code>.  The file is
+     * closed when the last line is read or the iterator is closed.
+     *
+     * @param file
+     *     the file to be read
+     * @param charset
+     *     the charset to use to decode the content
+     * @return
+     *     an iterator over the lines of the file, or <code>null</code> if the
+     *     file is not found or is <code>null</code>
+     * @throws NullPointerException
+     *     if <code>charset</code> is <code>null</code>
+     * @see RecordIterator
+     */
+    public static RecordIterator lines(
+            final File file,
+            final Charset charset) {
+        return Io.records(file, charset, null);
+    }
+
+    /**
+     * Lazily reads the records of a file separated by a delimiter.
+     *
+     * The file is closed when the last record is read or the iterator is
+     * closed.
+     *
+     * @param file
+     *     the file to be read
+     * @param charset
+     *     the charset to use to decode the content
+     * @param delimiter
+     *     the characters that separate records or <code>null</code> to read
+     *     lines
+     * @return
+     *     an iterator over the records of the file, or <code>null</code> if
+     *     the file is not found or is <code>null</code>
+     * @throws NullPointerException
+     *     if <code>charset</code> is <code>null</code>
+     * @see RecordIterator
+     */
+    public static RecordIterator records(
+            final File file,
+            final Charset charset,
+            final CharSequence delimiter) {
+
+        Assert.notNull("charset", charset);
+
+        if (file == null) {
+            return null;
+        }
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        ReadableByteChannel channel = Io.openInflated(file);
+
+        try {
+            return new RecordIterator(channel, charset, delimiter);
+        } catch (RuntimeException e) {
+            Io.closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a reader for the characters appended to a file.
+     *
+     * The file does not need to exist yet.  Each read returns only the
+     * characters appended since the previous read.
+     *
+     * @param file
+     *     the file to be read
+     * @param charset
+     *     the charset to use to decode the content
+     * @return
+     *     a reader that starts at the beginning of the file
+     * @throws NullPointerException
+     *     if <code>file</code> or <code>charset</code> is <code>null</code>
+     * @see TailReader
+     */
+    public static TailReader tail(final File file, final Charset charset) {
+        return new TailReader(file, charset);
+    }
+
+    /**
+     * Reads the fixed length records of a file.
+     *
+     * The file is memory mapped and fields are read straight from the mapped
+     * bytes.  The file is closed when the reader is closed.
+     *
+     * @param file
+     *     the file to be read
+     * @param recordLength
+     *     the number of bytes in each record
+     * @param charset
+     *     the single byte charset of the character fields
+     * @return
+     *     a reader over the records of the file, or <code>null</code> if the
+     *     file is not found or is <code>null</code>
+     * @throws NullPointerException
+     *     if <code>charset</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>recordLength</code> is not positive or
+     *     <code>charset</code> is not a single byte charset
+     * @see FixedRecordReader
+     */
+    public static FixedRecordReader fixedRecords(
+            final File file,
+            final int recordLength,
+            final Charset charset) {
+
+        Assert.notNull("charset", charset);
+
+        if (file == null) {
+            return null;
+        }
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        FileChannel fileChannel = Io.open(file);
+
+        try {
+            return new FixedRecordReader(fileChannel, recordLength, charset);
+        } catch (RuntimeException e) {
+            Io.closeQuietly(fileChannel);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the variable length records of a file.
+     *
+     * The file is read through a fixed size buffer, so memory use does not
+     * depend on the size of the file.  The file is closed when the reader is
+     * closed.
+     *
+     * @param file
+     *     the file to be read
+     * @param charset
+     *     the single byte charset of the character fields
+     * @param blocked
+     *     <code>true</code> if the records are grouped into blocks that start
+     *     with a block descriptor word
+     * @return
+     *     a reader over the records of the file, or <code>null</code> if the
+     *     file is not found or is <code>null</code>
+     * @throws NullPointerException
+     *     if <code>charset</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>charset</code> is not a single byte charset
+     * @see VariableRecordReader
+     */
+    public static VariableRecordReader variableRecords(
+            final File file,
+            final Charset charset,
+            final boolean blocked) {
+
+        Assert.notNull("charset", charset);
+
+        if (file == null) {
+            return null;
+        }
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        // binary records are never sniffed for gzip, since a descriptor word
+        // can start with the gzip magic bytes
+        FileChannel channel = Io.open(file);
+
+        try {
+            return new VariableRecordReader(channel, charset, blocked);
+        } catch (RuntimeException e) {
+            Io.closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * Lazily finds the matches of a regular expression in the lines of a
+     * file.
+     *
+     * The file is memory mapped a window at a time, so files of any size
+     * can be searched without reading them into a <code>String</code>.  The
+     * file is closed when the last match is found or the iterator is closed.
+     *
+     * @param file
+     *     the file to be searched
+     * @param charset
+     *     the single byte charset or UTF-8 charset of the file
+     * @param pattern
+     *     the pattern to find
+     * @return
+     *     an iterator over the matches with their line numbers and offsets,
+     *     or <code>null</code> if the file is not found or is
+     *     <code>null</code>
+     * @throws NullPointerException
+     *     if <code>charset</code> or <code>pattern</code> is
+     *     <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>charset</code> is not a single byte charset or UTF-8
+     * @see MatchIterator
+     */
+    public static MatchIterator search(
+            final File file,
+            final Charset charset,
+            final Pattern pattern) {
+
+        Assert.notNull("charset", charset);
+        Assert.notNull("pattern", pattern);
+
+        if (file == null) {
+            return null;
+        }
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        FileChannel fileChannel = Io.open(file);
+
+        try {
+            return new MatchIterator(fileChannel, charset, pattern);
+        } catch (RuntimeException e) {
+            Io.closeQuietly(fileChannel);
+            throw e;
+        }
+    }
+
+    /**
+     * Converts the failure of a task that read a file to an
+     * <code>IoException</code>.
+     *
+     * @param file
+     *     the file that was read
+     * @param e
+     *     the failure
+     * @return
+     *     the cause when it is an <code>IoException</code>, or a new
+     *     <code>IoException</code> wrapping it
+     */
+    private static IoException ioException(
+            final File file,
+            final ExecutionException e) {
+
+        if (e.getCause() instanceof IoException) {
+            return (IoException) e.getCause();
+        }
+
+        return new IoException("Unable to read " + file, e.getCause());
+    }
+
+    /**
+     * Encodes character sequences and writes them to a file.
+     *
+     * @param target
+     *     the file the bytes are written to
+     * @param contents
+     *     the character sequences to write, in order
+     * @param charset
+     *     the charset to use to encode the content
+     * @param file
+     *     the file being written, for error messages
+     * @param append
+     *     <code>true</code> to write to the end of <code>target</code>
+     * @return
+     *     the number of bytes written
+     * @throws IoException
+     *     if <code>target</code> cannot be written or a character cannot be
+     *     encoded
+     */
+    private static long write(
+            final File target,
+            final Iterable<? extends CharSequence> contents,
+            final Charset charset,
+            final File file,
+            final boolean append) {
+
+        FileOutputStream out = null;
+        boolean closed = false;
+
+        try {
+            out = new FileOutputStream(target, append);
+            FileChannel channel = out.getChannel();
+            long written = new ContentWriter(charset).write(contents, channel);
+            if (target != file) {
+                channel.force(true);
+            }
+            out.close();
+            closed = true;
+            return written;
+        } catch (IOException e) {
+            throw new IoException("Unable to write " + file, e);
+        } finally {
+            if (!closed) {
+                Io.closeQuietly(out);
+            }
+        }
+    }
+
+    /**
+     * Tests if two paths name the same file.
+     *
+     * @param a
+     *     the first path
+     * @param b
+     *     the second path
+     * @return
+     *     <code>true</code> if both paths resolve to the same file
+     * @throws IoException
+     *     if a path cannot be resolved
+     */
+    private static boolean isSameFile(final File a, final File b) {
+
+        try {
+            return a.getCanonicalFile().equals(b.getCanonicalFile());
+        } catch (IOException e) {
+            throw new IoException("Unable to resolve " + a + " and " + b, e);
+        }
+    }
+
+    /**
+     * Creates an empty temporary file in the same directory as a file, so
+     * that it can be renamed over the file.
+     *
+     * @param file
+     *     the file the temporary file is for
+     * @return
+     *     the temporary file
+     * @throws IOException
+     *     if the temporary file cannot be created
+     */
+    private static File createTempFile(final File file) throws IOException {
+        return File.createTempFile("." + file.getName() + ".", ".tmp",
+                file.getAbsoluteFile().getParentFile());
+    }
+
+    /**
+     * Renames a file over a target, replacing the target if it exists.
+     *
+     * A rename does not replace an existing file on every platform.  When
+     * it cannot, the target is renamed aside first and renamed back if the
+     * file still cannot take its place, so the target is never lost.  The
+     * replace is then not atomic, as the target does not exist for a
+     * moment.
+     *
+     * @param file
+     *     the file to be renamed
+     * @param target
+     *     the new name of the file
+     * @return
+     *     <code>true</code> if the file was renamed, <code>false</code> if
+     *     it was not and the target is unchanged
+     * @throws IOException
+     *     if the name to rename the target aside to cannot be created
+     */
+    private static boolean replace(final File file, final File target)
+            throws IOException {
+
+        if (file.renameTo(target)) {
+            return true;
+        }
+
+        if (!target.isFile()) {
+            return false;
+        }
+
+        // take a free name, then free it for the rename
+        File aside = Io.createTempFile(target);
+        if (!aside.delete() || !target.renameTo(aside)) {
+            aside.delete();
+            return false;
+        }
+
+        if (file.renameTo(target)) {
+            aside.delete();
+            return true;
+        }
+
+        if (!aside.renameTo(target)) {
+            throw new IoException("Unable to restore " + target
+                    + " from " + aside);
+        }
+
+        return false;
+    }
+
+    /**
+     * Opens a channel to read a file.
+     *
+     * @param file
+     *     the file to be read
+     * @return
+     *     the channel for the file
+     * @throws IoException
+     *     if the file cannot be opened
+     */
+    static FileChannel open(final File file) {
+        try {
+            return new FileInputStream(file).getChannel();
+        } catch (IOException e) {
+            throw new IoException("Unable to read " + file, e);
+        }
+    }
+
+    /**
+     * Opens a channel to read a file, inflating it if it is gzip compressed.
+     *
+     * @param file
+     *     the file to be read
+     * @return
+     *     the channel for the file, or a {@link GzipChannel} over it if the
+     *     file starts with a gzip header
+     * @throws IoException
+     *     if the file cannot be opened or its gzip header is invalid
+     */
+    static ReadableByteChannel openInflated(final File file) {
+
+        FileChannel fileChannel = Io.open(file);
+
+        try {
+            if (GzipChannel.isGzip(fileChannel)) {
+                return new GzipChannel(fileChannel);
+            }
+            return fileChannel;
+        } catch (IOException e) {
+            Io.closeQuietly(fileChannel);
+            throw new IoException("Unable to read " + file, e);
+        }
+    }
+
+    /**
+     * Tests if a file is gzip compressed.
+     *
+     * @param file
+     *     the file to test
+     * @return
+     *     <code>true</code> if the file starts with a gzip header
+     * @throws IoException
+     *     if the file cannot be read
+     */
+    static boolean isGzip(final File file) {
+
+        FileChannel fileChannel = Io.open(file);
+
+        try {
+            return GzipChannel.isGzip(fileChannel);
+        } catch (IOException e) {
+            throw new IoException("Unable to read " + file, e);
+        } finally {
+            Io.closeQuietly(fileChannel);
+        }
+    }
+
+    /**
+     * Gets the charset for a name, caching the charsets that have been found.
+     *
+     * @param charsetName
+     *     the name of the charset
+     * @return
+     *     the charset
+     * @throws NullPointerException
+     *     if <code>charsetName</code> is <code>null</code>
+     * @throws java.nio.charset.UnsupportedCharsetException
+     *     if the charset is not supported
+     */
+    static Charset charset(final String charsetName) {
+
+        Assert.notNull("charset", charsetName);
+
+        Charset charset = Io.CHARSETS.get(charsetName);
+        if (charset == null) {
+            charset = Charset.forName(charsetName);
+            Io.CHARSETS.putIfAbsent(charsetName, charset);
+        }
+
+        return charset;
+    }
+
+    /**
+     * Gets the most characters a number of bytes can decode to.
+     *
+     * @param file
+     *     the file the bytes are read from
+     * @param charset
+     *     the charset used to decode the bytes
+     * @param size
+     *     the number of bytes
+     * @return
+     *     the most characters the bytes can decode to
+     * @throws IoException
+     *     if the characters would not fit in a <code>String</code>
+     */
+    static int maxChars(
+            final File file,
+            final Charset charset,
+            final long size) {
+
+        double capacity = size;
+        if (SingleByteCodec.forCharset(charset) == null) {
+            capacity = Math.ceil(size * charset.newDecoder().maxCharsPerByte());
+        }
+
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IoException(file + " is too large to read");
+        }
+
+        return (int) capacity;
+    }
+
+    /**
+     * Decodes all of <code>bytes</code> into <code>chars</code>.
+     *
+     * Single byte charsets are decoded through a {@link SingleByteCodec}.
+     * Otherwise the bytes are staged through a small heap buffer because the
+     * JDK decoders only use their array fast path for heap buffers.
+     *
+     * @param charset
+     *     the charset used to decode the bytes
+     * @param bytes
+     *     the bytes to decode
+     * @param chars
+     *     the buffer the decoded characters are written to
+     * @throws CharacterCodingException
+     *     if the bytes cannot be decoded or <code>chars</code> is too small
+     */
+    static void decode(
+            final Charset charset,
+            final ByteBuffer bytes,
+            final CharBuffer chars) throws CharacterCodingException {
+
+        SingleByteCodec codec = Io.codec(charset);
+        if (codec != null) {
+            if (bytes.remaining() > chars.remaining()) {
+                throw new BufferOverflowException();
+            }
+            codec.decode(bytes, chars);
+            return;
+        }
+
+        CharsetDecoder decoder = charset.newDecoder();
+        ByteBuffer staged = BufferPool.bytes();
+        CoderResult result = null;
+
+        try {
+            do {
+                int count = Math.min(staged.remaining(), bytes.remaining());
+                ByteBuffer slice = bytes.slice();
+                slice.limit(count);
+                staged.put(slice);
+                bytes.position(bytes.position() + count);
+                staged.flip();
+
+                result = decoder.decode(staged, chars, !bytes.hasRemaining());
+                if (!result.isUnderflow()) {
+                    result.throwException();
+                }
+
+                // keep any partial character for the next pass
+                staged.compact();
+            } while (bytes.hasRemaining());
+
+            result = decoder.flush(chars);
+            if (!result.isUnderflow()) {
+                result.throwException();
+            }
+        } finally {
+            BufferPool.release(staged);
+        }
+    }
+
+    /**
+     * Decodes everything read from a channel.
+     *
+     * When <code>destination</code> is <code>null</code> the characters are
+     * decoded into <code>chars</code>, which must hold all of them.
+     * Otherwise <code>chars</code> is used as a work buffer and drained into
+     * <code>destination</code> whenever it fills.
+     *
+     * @param file
+     *     the file being read, for error messages
+     * @param channel
+     *     the channel to read
+     * @param charset
+     *     the charset used to decode the bytes
+     * @param chars
+     *     the buffer the characters are decoded into
+     * @param destination
+     *     the builder the characters are appended to or <code>null</code>
+     * @param maxBytes
+     *     the most bytes that may be read from the channel
+     * @throws IOException
+     *     if the channel cannot be read or decoded
+     * @throws IoException
+     *     if the channel holds more than <code>maxBytes</code> or the
+     *     characters do not fit in <code>chars</code>
+     */
+    private static void decode(
+            final File file,
+            final ReadableByteChannel channel,
+            final Charset charset,
+            final CharBuffer chars,
+            final StringBuilder destination,
+            final long maxBytes) throws IOException {
+
+        SingleByteCodec codec = Io.codec(charset);
+        CharsetDecoder decoder = null;
+        if (codec == null) {
+            decoder = charset.newDecoder();
+        }
+
+        ByteBuffer bytes = BufferPool.bytes();
+        long total = 0;
+        boolean endOfInput = false;
+
+        try {
+            while (!endOfInput) {
+                int read = channel.read(bytes);
+                if (read == -1) {
+                    endOfInput = true;
+                } else {
+                    total += read;
+                    Io.checkSize(file, total, maxBytes);
+                }
+                bytes.flip();
+
+                boolean overflow = false;
+                do {
+                    if (codec == null) {
+                        CoderResult result = decoder.decode(
+                                bytes, chars, endOfInput);
+                        if (result.isError()) {
+                            result.throwException();
+                        }
+                        overflow = result.isOverflow();
+                    } else {
+                        codec.decode(bytes, chars);
+                        overflow = bytes.hasRemaining();
+                    }
+                    Io.drain(file, chars, destination, overflow);
+                } while (overflow);
+
+                // keep any partial character for the next read
+                bytes.compact();
+            }
+
+            if (decoder != null) {
+                CoderResult result = null;
+                do {
+                    result = decoder.flush(chars);
+                    Io.drain(file, chars, destination, result.isOverflow());
+                } while (result.isOverflow());
+            }
+        } finally {
+            BufferPool.release(bytes);
+        }
+    }
+
+    /**
+     * Moves decoded characters to the builder.
+     *
+     * @param file
+     *     the file being read, for error messages
+     * @param chars
+     *     the decoded characters
+     * @param destination
+     *     the builder the characters are appended to or <code>null</code> if
+     *     the characters stay in <code>chars</code>
+     * @param full
+     *     <code>true</code> if <code>chars</code> has no room for the next
+     *     character
+     * @throws IoException
+     *     if <code>chars</code> is full and there is no builder to drain it to
+     */
+    private static void drain(
+            final File file,
+            final CharBuffer chars,
+            final StringBuilder destination,
+            final boolean full) {
+
+        if (destination == null) {
+            if (full) {
+                throw new IoException(file + " does not fit in the buffer");
+            }
+            return;
+        }
+
+        chars.flip();
+        destination.append(
+                chars.array(),
+                chars.arrayOffset() + chars.position(),
+                chars.remaining());
+        chars.clear();
+    }
+
+    /**
+     * Gets the table driven codec to use for a charset.
+     *
+     * @param charset
+     *     the charset
+     * @return
+     *     the codec or <code>null</code> if the JDK decoder should be used
+     */
+    static SingleByteCodec codec(final Charset charset) {
+
+        // the JDK decodes ISO-8859-1 with an intrinsic that beats the table
+        if ("ISO-8859-1".equals(charset.name())) {
+            return null;
+        }
+
+        return SingleByteCodec.forCharset(charset);
+    }
+
+    /**
+     * Checks that a file is not larger than allowed.
+     *
+     * @param file
+     *     the file being read
+     * @param size
+     *     the number of bytes in the file
+     * @param maxBytes
+     *     the most bytes allowed
+     * @throws IoException
+     *     if <code>size</code> is more than <code>maxBytes</code>
+     */
+    private static void checkSize(
+            final File file,
+            final long size,
+            final long maxBytes) {
+
+        if (size > maxBytes) {
+            throw new IoException(
+                    file + " is larger than " + maxBytes + " bytes");
+        }
+    }
+
+    /**
+     * Creates a pool of daemon threads, so an idle pool does not keep the
+     * JVM running.
+     *
+     * @param threads
+     *     the most threads in the pool
+     * @param name
+     *     the prefix of the names of the threads
+     * @return
+     *     the pool
+     */
+    private static ExecutorService daemonPool(
+            final int threads,
+            final String name) {
+
+        final AtomicInteger count = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(
+                        runnable, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Holds the pool with a thread per processor that CPU bound work runs
+     * on when no executor is given.  The pool is created the first time it
+     * is used and shared by every call after that.
+     */
+    private static final class ProcessorPool {
+
+        static final ExecutorService EXECUTOR = Io.daemonPool(
+                Runtime.getRuntime().availableProcessors(), "io-parallel");
+
+        private ProcessorPool() { }
+    }
+
+    /**
+     * Holds the pool that files are read on when no executor is given.
+     * Reading waits on the disk more than the processor, so the pool has
+     * more threads than processors.  The pool is created the first time it
+     * is used and shared by every call after that.
+     */
+    private static final class ReadPool {
+
+        static final ExecutorService EXECUTOR =
+                Io.daemonPool(Io.READ_ALL_THREADS, "io-read");
+
+        private ReadPool() { }
     }
 }
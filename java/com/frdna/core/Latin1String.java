@@ -0,0 +1,294 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.util.Arrays;
+
+/**
+ * An immutable <code>CharSequence</code> that holds its characters as
+ * ISO-8859-1 bytes, one byte per character.
+ *
+ * It uses half the memory of a <code>String</code> for short ASCII or
+ * Latin-1 codes.  The hash code is computed once and is the same as the
+ * hash code of the equal <code>String</code>, but a
+ * <code>Latin1String</code> is only equal to another
+ * <code>Latin1String</code>.  {@link Strings} and {@link Verify} work on the
+ * bytes of a <code>Latin1String</code> directly.
+ */
+public final class Latin1String implements CharSequence {
+
+    private static final int MAX_LATIN1 = 0xFF;
+
+    private static final Latin1String EMPTY = new Latin1String(new byte[0]);
+
+    private final byte[] bytes;
+    private int hash;
+
+    private Latin1String(final byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Creates a string from ISO-8859-1 bytes.  The bytes are copied.
+     *
+     * @param bytes
+     *     the bytes of the characters
+     * @param offset
+     *     the index of the first byte
+     * @param length
+     *     the number of bytes
+     * @return
+     *     the string
+     * @throws NullPointerException
+     *     if <code>bytes</code> is <code>null</code>
+     * @throws IndexOutOfBoundsException
+     *     if the bytes are outside of the array
+     */
+    public static Latin1String valueOf(
+            final byte[] bytes,
+            final int offset,
+            final int length) {
+
+        Assert.notNull("bytes", bytes);
+
+        if (offset < 0 || length < 0 || offset > bytes.length - length) {
+            throw new IndexOutOfBoundsException(
+                    "offset: " + offset + ", length: " + length);
+        }
+
+        if (length == 0) {
+            return Latin1String.EMPTY;
+        }
+
+        byte[] copy = new byte[length];
+        System.arraycopy(bytes, offset, copy, 0, length);
+        return new Latin1String(copy);
+    }
+
+    /**
+     * Creates a string from a character sequence.
+     *
+     * @param value
+     *     the characters
+     * @return
+     *     <code>value</code> if it is a <code>Latin1String</code>, otherwise a
+     *     new string holding its characters, or <code>null</code> if
+     *     <code>value</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if a character is not in ISO-8859-1
+     */
+    public static Latin1String valueOf(final CharSequence value) {
+
+        if (value == null) {
+            return null;
+        }
+
+        if (value instanceof Latin1String) {
+            return (Latin1String) value;
+        }
+
+        int length = value.length();
+        if (length == 0) {
+            return Latin1String.EMPTY;
+        }
+
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c > Latin1String.MAX_LATIN1) {
+                throw new IllegalArgumentException(
+                        "'" + c + "' at index " + i + " is not ISO-8859-1");
+            }
+            bytes[i] = (byte) c;
+        }
+
+        return new Latin1String(bytes);
+    }
+
+    /**
+     * Gets the number of characters.
+     *
+     * @return
+     *     the number of characters
+     */
+    public int length() {
+        return this.bytes.length;
+    }
+
+    /**
+     * Gets the character at an index.
+     *
+     * @param index
+     *     the index of the character
+     * @return
+     *     the character
+     * @throws IndexOutOfBoundsException
+     *     if <code>index</code> is outside of the string
+     */
+    public char charAt(final int index) {
+        return (char) (this.bytes[index] & 0xFF);
+    }
+
+    /**
+     * Gets part of this string.
+     *
+     * @param start
+     *     the inclusive start index
+     * @param end
+     *     the exclusive end index
+     * @return
+     *     the characters from <code>start</code> to <code>end</code>
+     * @throws IndexOutOfBoundsException
+     *     if <code>start</code> or <code>end</code> is outside of the string
+     */
+    public Latin1String subSequence(final int start, final int end) {
+
+        if (start < 0 || end > this.bytes.length || start > end) {
+            throw new IndexOutOfBoundsException(
+                    "start: " + start + ", end: " + end);
+        }
+
+        if (start == 0 && end == this.bytes.length) {
+            return this;
+        }
+
+        return Latin1String.valueOf(this.bytes, start, end - start);
+    }
+
+    /**
+     * Copies characters from this string into an array.
+     *
+     * @param srcBegin
+     *     the index of the first character to copy
+     * @param srcEnd
+     *     the index after the last character to copy
+     * @param dst
+     *     the array the characters are copied to
+     * @param dstBegin
+     *     the index in <code>dst</code> of the first character
+     * @throws IndexOutOfBoundsException
+     *     if the characters are outside of this string or <code>dst</code>
+     */
+    public void getChars(
+            final int srcBegin,
+            final int srcEnd,
+            final char[] dst,
+            final int dstBegin) {
+
+        int length = srcEnd - srcBegin;
+        if (srcBegin < 0 || srcEnd > this.bytes.length || length < 0
+                || dstBegin < 0 || dstBegin > dst.length - length) {
+            throw new IndexOutOfBoundsException(
+                    "srcBegin: " + srcBegin + ", srcEnd: " + srcEnd
+                    + ", dstBegin: " + dstBegin);
+        }
+
+        for (int i = srcBegin, j = dstBegin; i < srcEnd; i++, j++) {
+            dst[j] = (char) (this.bytes[i] & 0xFF);
+        }
+    }
+
+    /**
+     * Gets a copy of the ISO-8859-1 bytes of this string.
+     *
+     * @return
+     *     the bytes
+     */
+    public byte[] getBytes() {
+        return this.bytes.clone();
+    }
+
+    /**
+     * Gets the bytes of this string without copying them.  The bytes must
+     * not be changed.
+     *
+     * @return
+     *     the bytes
+     */
+    byte[] bytes() {
+        return this.bytes;
+    }
+
+    /**
+     * Tests if another object is a <code>Latin1String</code> with the same
+     * characters.
+     *
+     * @param o
+     *     the object to compare with
+     * @return
+     *     <code>true</code> if the strings are equal
+     */
+    @Override
+    public boolean equals(final Object o) {
+
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof Latin1String)) {
+            return false;
+        }
+
+        Latin1String other = (Latin1String) o;
+        if (this.bytes.length != other.bytes.length
+                || this.hashCode() != other.hashCode()) {
+            return false;
+        }
+
+        return Arrays.equals(this.bytes, other.bytes);
+    }
+
+    /**
+     * Gets the hash code, which is the same as the hash code of the equal
+     * <code>String</code>.
+     *
+     * @return
+     *     the hash code
+     */
+    @Override
+    public int hashCode() {
+
+        int h = this.hash;
+        if (h == 0) {
+            for (int i = 0; i < this.bytes.length; i++) {
+                h = 31 * h + (this.bytes[i] & 0xFF);
+            }
+            this.hash = h;
+        }
+
+        return h;
+    }
+
+    /**
+     * Converts this string to a <code>String</code>.
+     *
+     * @return
+     *     the characters of this string
+     */
+    @Override
+    public String toString() {
+
+        char[] chars = new char[this.bytes.length];
+        this.getChars(0, chars.length, chars, 0);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,389 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lazily finds the matches of a regular expression in the lines of a file.
+ *
+ * The file is memory mapped a window at a time and each line is decoded
+ * into one reused character buffer that the pattern is matched against, so
+ * heap use depends on the longest line rather than the size of the file.
+ * Lines end with <code>\n</code> or <code>\r\n</code>, or in an EBCDIC
+ * charset with any byte that decodes to <code>\n</code> or to the NL
+ * control <code>\u0085</code>, so both the <code>0x15</code> and
+ * <code>0x25</code> line ends of mainframe text are found.  A match cannot
+ * span lines.  Only single byte charsets and UTF-8 can be searched.  The
+ * file is closed when the last match has been found or the iterator is
+ * closed.
+ */
+public final class MatchIterator
+        implements Iterator<RegexMatch>, Iterable<RegexMatch>, Closeable {
+
+    /**
+     * The largest part of the file that is mapped at once, which is also
+     * the longest line that can be searched.
+     */
+    static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private static final int INITIAL_LINE_SIZE = 4 * 1024;
+
+    private static final int BYTE_VALUES = 256;
+
+    // the NL control that EBCDIC charsets use to end lines
+    private static final char NEXT_LINE = '\u0085';
+
+    private final FileChannel channel;
+    private final Matcher matcher;
+    private final SingleByteCodec codec;
+    private final CharsetDecoder decoder;
+    private final boolean[] lineEnds;
+    private final int carriageReturn;
+    private final long windowSize;
+    private ByteBuffer window = ByteBuffer.allocate(0);
+    private long windowStart = 0;
+    private CharBuffer chars =
+            CharBuffer.allocate(MatchIterator.INITIAL_LINE_SIZE);
+    private long lineNumber = 0;
+    private long lineOffset = 0;
+    private boolean inLine = false;
+    private RegexMatch next = null;
+    private boolean closed = false;
+
+    /**
+     * Creates an iterator over the matches in a file.  The channel is closed
+     * when the iterator is closed.
+     *
+     * @param channel
+     *     the channel of the file to search
+     * @param charset
+     *     the charset of the file
+     * @param pattern
+     *     the pattern to find
+     * @throws NullPointerException
+     *     if any argument is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>charset</code> is not a single byte charset or UTF-8
+     */
+    public MatchIterator(
+            final FileChannel channel,
+            final Charset charset,
+            final Pattern pattern) {
+        this(channel, charset, pattern, MatchIterator.WINDOW_SIZE);
+    }
+
+    /**
+     * Creates an iterator that maps windows of a given size.
+     */
+    MatchIterator(
+            final FileChannel channel,
+            final Charset charset,
+            final Pattern pattern,
+            final long windowSize) {
+
+        Assert.notNull("channel", channel);
+        Assert.notNull("charset", charset);
+        Assert.notNull("pattern", pattern);
+
+        this.codec = Io.codec(charset);
+        if (this.codec != null) {
+            this.decoder = null;
+            this.lineEnds = MatchIterator.lineEnds(this.codec);
+            // -1 when the charset has no carriage return, which no byte is
+            this.carriageReturn = this.codec.encode('\r');
+        } else if ("UTF-8".equals(charset.name())
+                || "ISO-8859-1".equals(charset.name())) {
+            this.decoder = charset.newDecoder();
+            this.lineEnds = new boolean[MatchIterator.BYTE_VALUES];
+            this.lineEnds['\n'] = true;
+            this.carriageReturn = '\r';
+        } else {
+            throw new IllegalArgumentException(
+                    charset + " is not a single byte charset or UTF-8");
+        }
+
+        this.channel = channel;
+        this.matcher = pattern.matcher("");
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Returns this iterator so that it can be used in a for each loop.
+     *
+     * @return
+     *     this iterator
+     */
+    public Iterator<RegexMatch> iterator() {
+        return this;
+    }
+
+    /**
+     * Tests if there is another match.
+     *
+     * @return
+     *     <code>true</code> if there is another match
+     * @throws IoException
+     *     if the file cannot be read or decoded or a line is longer than
+     *     the mapped window
+     */
+    public boolean hasNext() {
+
+        if (this.next == null && !this.closed) {
+            this.next = this.find();
+            if (this.next == null) {
+                this.close();
+            }
+        }
+
+        return (this.next != null);
+    }
+
+    /**
+     * Gets the next match.
+     *
+     * @return
+     *     the next match
+     * @throws NoSuchElementException
+     *     if there are no more matches
+     * @throws IoException
+     *     if the file cannot be read or decoded or a line is longer than
+     *     the mapped window
+     */
+    public RegexMatch next() {
+
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        RegexMatch current = this.next;
+        this.next = null;
+        return current;
+    }
+
+    /**
+     * Matches cannot be removed.
+     *
+     * @throws UnsupportedOperationException
+     *     always
+     */
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Closes the file.  No more matches are returned once the iterator is
+     * closed.
+     */
+    public void close() {
+
+        if (this.closed) {
+            return;
+        }
+
+        this.closed = true;
+        this.next = null;
+        Io.closeQuietly(this.channel);
+    }
+
+    /**
+     * Finds the next match, moving on through the lines of the file.
+     */
+    private RegexMatch find() {
+
+        try {
+            while (true) {
+                if (this.inLine && this.matcher.find()) {
+                    return new RegexMatch(
+                            this.lineNumber,
+                            this.lineOffset,
+                            this.matcher.start(),
+                            this.matcher.end(),
+                            this.matcher.group());
+                }
+
+                if (!this.nextLine()) {
+                    return null;
+                }
+            }
+        } catch (IOException e) {
+            throw new IoException("Unable to search " + this.channel, e);
+        }
+    }
+
+    /**
+     * Decodes the next line and resets the matcher to it.
+     *
+     * @return
+     *     <code>false</code> at the end of the file
+     */
+    private boolean nextLine() throws IOException {
+
+        int start = this.window.position();
+        int end = this.indexOfNewline(start);
+
+        if (end == -1 && this.map()) {
+            start = this.window.position();
+            end = this.indexOfNewline(start);
+        }
+
+        int next = end + 1;
+        if (end == -1) {
+            if (start == this.window.limit()) {
+                this.inLine = false;
+                return false;
+            }
+            if (this.windowStart + this.window.limit()
+                    < this.channel.size()) {
+                throw new IoException("Line " + (this.lineNumber + 1)
+                        + " is longer than " + this.windowSize + " bytes");
+            }
+            end = this.window.limit();
+            next = end;
+        }
+
+        this.lineNumber++;
+        this.lineOffset = this.windowStart + start;
+
+        int lineEnd = end;
+        if (lineEnd > start && (this.window.get(lineEnd - 1) & 0xFF)
+                == this.carriageReturn) {
+            lineEnd--;
+        }
+
+        this.decode(start, lineEnd);
+        this.window.position(next);
+        this.matcher.reset(this.chars);
+        this.inLine = true;
+        return true;
+    }
+
+    /**
+     * Decodes the bytes of a line into the character buffer.
+     */
+    private void decode(final int start, final int end) throws IOException {
+
+        int length = end - start;
+        if (this.chars.capacity() < length) {
+            this.chars = CharBuffer.allocate(length);
+        }
+        this.chars.clear();
+
+        int limit = this.window.limit();
+        this.window.limit(end);
+        this.window.position(start);
+
+        try {
+            if (this.codec != null) {
+                this.codec.decode(this.window, this.chars);
+            } else {
+                this.decoder.reset();
+                CoderResult result = this.decoder.decode(
+                        this.window, this.chars, true);
+                if (!result.isUnderflow()) {
+                    result.throwException();
+                }
+                result = this.decoder.flush(this.chars);
+                if (!result.isUnderflow()) {
+                    result.throwException();
+                }
+            }
+        } finally {
+            this.window.limit(limit);
+        }
+
+        this.chars.flip();
+    }
+
+    /**
+     * Finds the next byte that ends a line in the window.
+     *
+     * @return
+     *     the index of the line end or <code>-1</code> if there is none
+     */
+    private int indexOfNewline(final int from) {
+
+        int limit = this.window.limit();
+        for (int i = from; i < limit; i++) {
+            if (this.lineEnds[this.window.get(i) & 0xFF]) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the bytes that end a line in a single byte charset.
+     *
+     * @param codec
+     *     the codec of the charset
+     * @return
+     *     a table with <code>true</code> for each byte that ends a line
+     */
+    private static boolean[] lineEnds(final SingleByteCodec codec) {
+
+        boolean ebcdic = codec.encode('0') == 0xF0;
+        boolean[] lineEnds = new boolean[MatchIterator.BYTE_VALUES];
+
+        for (int i = 0; i < lineEnds.length; i++) {
+            char c = codec.decode((byte) i);
+            lineEnds[i] = c == '\n'
+                    || (ebcdic && c == MatchIterator.NEXT_LINE);
+        }
+
+        return lineEnds;
+    }
+
+    /**
+     * Maps the next window of the file, starting at the first unread byte.
+     *
+     * @return
+     *     <code>true</code> if more of the file was mapped
+     */
+    private boolean map() throws IOException {
+
+        long size = this.channel.size();
+        long start = this.windowStart + this.window.position();
+        long length = Math.min(size - start, this.windowSize);
+
+        if (length <= this.window.remaining()) {
+            return false;
+        }
+
+        this.window = this.channel.map(
+                FileChannel.MapMode.READ_ONLY, start, length);
+        this.windowStart = start;
+        return true;
+    }
+}
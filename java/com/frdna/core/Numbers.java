@@ -21,8 +21,47 @@
  */
 package com.frdna.core;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
 public final class Numbers {
 
+    private static final int POSITIVE = 0x0C;
+
+    private static final int NEGATIVE = 0x0D;
+
+    private static final int UNSIGNED = 0x0F;
+
+    // the most bytes whose digits always fit in a long
+    private static final int MAX_LONG_PACKED_LENGTH = 9;
+
+    private static final byte[] DIGIT_PAIRS = Numbers.digitPairs();
+
+    // the digits of a big unscaled value are packed this many at a time
+    private static final int LONG_CHUNK_DIGITS = 18;
+
+    private static final BigInteger LONG_CHUNK =
+            BigInteger.TEN.pow(Numbers.LONG_CHUNK_DIGITS);
+
+    // the most digits of a zoned decimal that always fit in a long
+    private static final int MAX_LONG_ZONED_LENGTH = 18;
+
+    // the ASCII last digits of a zoned decimal with an overpunched sign
+    private static final String POSITIVE_OVERPUNCH = "{ABCDEFGHI";
+
+    private static final String NEGATIVE_OVERPUNCH = "}JKLMNOPQR";
+
+    // marks the last digit of a negative zoned decimal
+    private static final int NEGATIVE_DIGIT = 0x10;
+
+    private static final byte[] EBCDIC_OVERPUNCHES = Numbers.overpunches(true);
+
+    private static final byte[] ASCII_OVERPUNCHES = Numbers.overpunches(false);
+
     private Numbers() { }
 
     /**
@@ -40,6 +79,10 @@ public final class Numbers {
             return null;
         }
 
+        if (Numbers.isIntegral(number)) {
+            return Numbers.pack(number.longValue(), Numbers.UNSIGNED);
+        }
+
         return Numbers.pack(String.valueOf(number));
     }
 
@@ -59,6 +102,10 @@ public final class Numbers {
             return null;
         }
 
+        if (Numbers.isIntegral(number)) {
+            return Numbers.pack(number.longValue(), Numbers.POSITIVE);
+        }
+
         if (number.floatValue() >= 0) {
             return Numbers.pack("+" + String.valueOf(number));
         }
@@ -82,43 +129,2135 @@ public final class Numbers {
             return null;
         }
 
-        StringBuilder n = new StringBuilder(number.trim());
-        char sign = n.charAt(0);
+        String n = number.trim();
+        int first = 0;
+        int sign = Numbers.UNSIGNED;
 
-        if (sign == '+') {
-            // remove the sign
-            n.deleteCharAt(0);
-            // add the packed decimal sign to the end of the string
-            n.append("C");
-        } else if (sign == '-') {
-            // remove the sign
-            n.deleteCharAt(0);
-            // add the packed decimal sign to the end of the string
-            n.append("D");
-        } else {
-            // the number is unsigned
-            n.append("F");
+        if (n.charAt(0) == '+') {
+            first = 1;
+            sign = Numbers.POSITIVE;
+        } else if (n.charAt(0) == '-') {
+            first = 1;
+            sign = Numbers.NEGATIVE;
         }
 
-        if ((n.length() % 2) != 0) {
-            // padd a zero to even out the length
-            n.insert(0, "0");
-        }
+        // the digits and the sign, padded with a zero to an even length
+        int nibbles = n.length() - first + 1;
+        byte[] result = new byte[(nibbles + 1) / 2];
+        int nibble = (nibbles % 2 == 0) ? 0 : 1;
 
-        // the packed length will be half the current length
-        int resultLength = n.length() / 2;
-        byte[] result = new byte[resultLength];
-        for (int i = 0; i < resultLength; i++) {
-            // the current buffer offset will be twice the result offset
-            int currentOffset = i * 2;
-            // parse 2 characters at a time into a hex number and remove the
-            // high byte value
-            result[i]
-                = (byte) (Integer.parseInt(
-                            n.substring(currentOffset, currentOffset + 2),
-                            16) & 0x00FF);
+        for (int i = first; i < n.length(); i++, nibble++) {
+            int digit = Character.digit(n.charAt(i), 16);
+            if (digit < 0) {
+                throw new NumberFormatException(
+                        "For input string: \"" + number + "\"");
+            }
+            Numbers.putNibble(result, nibble, digit);
         }
+        Numbers.putNibble(result, nibble, sign);
 
         return result;
     }
+
+    /**
+     * Writes an unsigned packed decimal into an array.  A negative value is
+     * written with a negative sign.
+     *
+     * @param value
+     *     the value to write
+     * @param dst
+     *     the array the packed decimal is written to
+     * @param offset
+     *     the index of the first byte of the packed decimal
+     * @param digits
+     *     the number of digits in the packed decimal, which is written in
+     *     <code>digits / 2 + 1</code> bytes with leading zeros
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if <code>value</code> has more than <code>digits</code> digits
+     * @throws IndexOutOfBoundsException
+     *     if the packed decimal does not fit in <code>dst</code>
+     * @see #pack(Number)
+     */
+    public static int pack(
+            final long value,
+            final byte[] dst,
+            final int offset,
+            final int digits) {
+        return Numbers.pack(value, dst, offset, digits, Numbers.UNSIGNED);
+    }
+
+    /**
+     * Writes a signed packed decimal into an array.
+     *
+     * @param value
+     *     the value to write
+     * @param dst
+     *     the array the packed decimal is written to
+     * @param offset
+     *     the index of the first byte of the packed decimal
+     * @param digits
+     *     the number of digits in the packed decimal, which is written in
+     *     <code>digits / 2 + 1</code> bytes with leading zeros
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if <code>value</code> has more than <code>digits</code> digits
+     * @throws IndexOutOfBoundsException
+     *     if the packed decimal does not fit in <code>dst</code>
+     * @see #packSigned(Number)
+     */
+    public static int packSigned(
+            final long value,
+            final byte[] dst,
+            final int offset,
+            final int digits) {
+        return Numbers.pack(value, dst, offset, digits, Numbers.POSITIVE);
+    }
+
+    /**
+     * Writes an unsigned packed decimal into a buffer.  A negative value is
+     * written with a negative sign.  The position of the buffer is not
+     * changed.
+     *
+     * @param value
+     *     the value to write
+     * @param dst
+     *     the buffer the packed decimal is written to
+     * @param offset
+     *     the absolute index of the first byte of the packed decimal
+     * @param digits
+     *     the number of digits in the packed decimal, which is written in
+     *     <code>digits / 2 + 1</code> bytes with leading zeros
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if <code>value</code> has more than <code>digits</code> digits
+     * @throws IndexOutOfBoundsException
+     *     if the packed decimal does not fit before the limit of
+     *     <code>dst</code>
+     */
+    public static int pack(
+            final long value,
+            final ByteBuffer dst,
+            final int offset,
+            final int digits) {
+        return Numbers.pack(value, dst, offset, digits, Numbers.UNSIGNED);
+    }
+
+    /**
+     * Writes a signed packed decimal into a buffer.  The position of the
+     * buffer is not changed.
+     *
+     * @param value
+     *     the value to write
+     * @param dst
+     *     the buffer the packed decimal is written to
+     * @param offset
+     *     the absolute index of the first byte of the packed decimal
+     * @param digits
+     *     the number of digits in the packed decimal, which is written in
+     *     <code>digits / 2 + 1</code> bytes with leading zeros
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if <code>value</code> has more than <code>digits</code> digits
+     * @throws IndexOutOfBoundsException
+     *     if the packed decimal does not fit before the limit of
+     *     <code>dst</code>
+     */
+    public static int packSigned(
+            final long value,
+            final ByteBuffer dst,
+            final int offset,
+            final int digits) {
+        return Numbers.pack(value, dst, offset, digits, Numbers.POSITIVE);
+    }
+
+    /**
+     * Writes an unsigned packed decimal with an implied decimal point into
+     * an array.  A negative value is written with a negative sign.
+     *
+     * The digits are read from the unscaled value of <code>value</code>,
+     * which is padded with zeros or rounded half up to <code>scale</code>
+     * digits after the decimal point, like a COBOL
+     * <code>PIC 9(precision - scale)V9(scale) COMP-3</code> field with
+     * <code>ROUNDED</code>.
+     *
+     * @param value
+     *     the value to write
+     * @param dst
+     *     the array the packed decimal is written to
+     * @param offset
+     *     the index of the first byte of the packed decimal
+     * @param precision
+     *     the number of digits in the packed decimal, including the digits
+     *     after the implied decimal point, which is written in
+     *     <code>precision / 2 + 1</code> bytes with leading zeros
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if <code>value</code> or <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if <code>value</code> has more than <code>precision - scale</code>
+     *     digits before the decimal point
+     * @throws IndexOutOfBoundsException
+     *     if the packed decimal does not fit in <code>dst</code>
+     * @see #pack(long,byte[],int,int)
+     */
+    public static int pack(
+            final BigDecimal value,
+            final byte[] dst,
+            final int offset,
+            final int precision,
+            final int scale) {
+        Assert.notNull("dst", dst);
+        return Numbers.pack(value, ByteBuffer.wrap(dst), offset, precision,
+                scale, Numbers.UNSIGNED);
+    }
+
+    /**
+     * Writes a signed packed decimal with an implied decimal point into an
+     * array.
+     *
+     * @param value
+     *     the value to write
+     * @param dst
+     *     the array the packed decimal is written to
+     * @param offset
+     *     the index of the first byte of the packed decimal
+     * @param precision
+     *     the number of digits in the packed decimal, including the digits
+     *     after the implied decimal point, which is written in
+     *     <code>precision / 2 + 1</code> bytes with leading zeros
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if <code>value</code> or <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if <code>value</code> has more than <code>precision - scale</code>
+     *     digits before the decimal point
+     * @throws IndexOutOfBoundsException
+     *     if the packed decimal does not fit in <code>dst</code>
+     * @see #pack(BigDecimal,byte[],int,int,int)
+     */
+    public static int packSigned(
+            final BigDecimal value,
+            final byte[] dst,
+            final int offset,
+            final int precision,
+            final int scale) {
+        Assert.notNull("dst", dst);
+        return Numbers.pack(value, ByteBuffer.wrap(dst), offset, precision,
+                scale, Numbers.POSITIVE);
+    }
+
+    /**
+     * Writes an unsigned packed decimal with an implied decimal point into
+     * a buffer.  A negative value is written with a negative sign.  The
+     * position of the buffer is not changed.
+     *
+     * @param value
+     *     the value to write
+     * @param dst
+     *     the buffer the packed decimal is written to
+     * @param offset
+     *     the absolute index of the first byte of the packed decimal
+     * @param precision
+     *     the number of digits in the packed decimal, including the digits
+     *     after the implied decimal point, which is written in
+     *     <code>precision / 2 + 1</code> bytes with leading zeros
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if <code>value</code> or <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if <code>value</code> has more than <code>precision - scale</code>
+     *     digits before the decimal point
+     * @throws IndexOutOfBoundsException
+     *     if the packed decimal does not fit before the limit of
+     *     <code>dst</code>
+     * @see #pack(BigDecimal,byte[],int,int,int)
+     */
+    public static int pack(
+            final BigDecimal value,
+            final ByteBuffer dst,
+            final int offset,
+            final int precision,
+            final int scale) {
+        return Numbers.pack(
+                value, dst, offset, precision, scale, Numbers.UNSIGNED);
+    }
+
+    /**
+     * Writes a signed packed decimal with an implied decimal point into a
+     * buffer.  The position of the buffer is not changed.
+     *
+     * @param value
+     *     the value to write
+     * @param dst
+     *     the buffer the packed decimal is written to
+     * @param offset
+     *     the absolute index of the first byte of the packed decimal
+     * @param precision
+     *     the number of digits in the packed decimal, including the digits
+     *     after the implied decimal point, which is written in
+     *     <code>precision / 2 + 1</code> bytes with leading zeros
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if <code>value</code> or <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if <code>value</code> has more than <code>precision - scale</code>
+     *     digits before the decimal point
+     * @throws IndexOutOfBoundsException
+     *     if the packed decimal does not fit before the limit of
+     *     <code>dst</code>
+     * @see #pack(BigDecimal,byte[],int,int,int)
+     */
+    public static int packSigned(
+            final BigDecimal value,
+            final ByteBuffer dst,
+            final int offset,
+            final int precision,
+            final int scale) {
+        return Numbers.pack(
+                value, dst, offset, precision, scale, Numbers.POSITIVE);
+    }
+
+    /**
+     * Reads a packed decimal from an array.
+     *
+     * @param src
+     *     the array holding the packed decimal
+     * @param offset
+     *     the index of the first byte of the packed decimal
+     * @param length
+     *     the number of bytes in the packed decimal
+     * @return
+     *     the value of the packed decimal
+     * @throws NullPointerException
+     *     if <code>src</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if the bytes are not a valid packed decimal or the value does not
+     *     fit in a <code>long</code>
+     * @throws IndexOutOfBoundsException
+     *     if the packed decimal is outside of <code>src</code>
+     * @see #unpackLong(ByteBuffer,int,int)
+     */
+    public static long unpackLong(
+            final byte[] src,
+            final int offset,
+            final int length) {
+        Assert.notNull("src", src);
+        return Numbers.unpackLong(ByteBuffer.wrap(src), offset, length);
+    }
+
+    /**
+     * Reads a packed decimal from a buffer.
+     *
+     * Two digits are decoded at a time through a table that also rejects
+     * invalid digits.  The sign nibble may be <code>B</code> or
+     * <code>D</code> for a negative value, or <code>A</code>,
+     * <code>C</code>, <code>E</code> or <code>F</code> for a positive value.
+     *
+     * @param buffer
+     *     the buffer holding the packed decimal
+     * @param offset
+     *     the absolute index of the first byte of the packed decimal
+     * @param length
+     *     the number of bytes in the packed decimal
+     * @return
+     *     the value of the packed decimal
+     * @throws NullPointerException
+     *     if <code>buffer</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if the bytes are not a valid packed decimal or the value does not
+     *     fit in a <code>long</code>
+     * @throws IndexOutOfBoundsException
+     *     if the packed decimal is outside of <code>buffer</code>
+     */
+    public static long unpackLong(
+            final ByteBuffer buffer,
+            final int offset,
+            final int length) {
+
+        Assert.notNull("buffer", buffer);
+
+        if (length < 1) {
+            throw new NumberFormatException("A packed decimal is required");
+        }
+
+        // accumulate the negative value so Long.MIN_VALUE can be read
+        long value = 0;
+        int last = offset + length - 1;
+
+        for (int i = offset; i < last; i++) {
+            int pair = Numbers.DIGIT_PAIRS[buffer.get(i) & 0xFF];
+            if (pair < 0) {
+                throw new NumberFormatException("Invalid packed decimal digit");
+            }
+            if (value < (Long.MIN_VALUE + pair) / 100) {
+                throw new NumberFormatException("Packed decimal is too large");
+            }
+            value = (value * 100) - pair;
+        }
+
+        int b = buffer.get(last) & 0xFF;
+        value = Numbers.appendDigit(value, b >>> 4);
+
+        if (Numbers.isNegative(b)) {
+            return value;
+        }
+
+        if (value == Long.MIN_VALUE) {
+            throw new NumberFormatException("Packed decimal is too large");
+        }
+
+        return -value;
+    }
+
+    /**
+     * Reads a packed decimal with an implied decimal point from an array.
+     *
+     * @param src
+     *     the array holding the packed decimal
+     * @param offset
+     *     the index of the first byte of the packed decimal
+     * @param length
+     *     the number of bytes in the packed decimal
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @return
+     *     the value of the packed decimal
+     * @throws NullPointerException
+     *     if <code>src</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if the bytes are not a valid packed decimal
+     * @throws IndexOutOfBoundsException
+     *     if the packed decimal is outside of <code>src</code>
+     * @see #unpackDecimal(ByteBuffer,int,int,int)
+     */
+    public static BigDecimal unpackDecimal(
+            final byte[] src,
+            final int offset,
+            final int length,
+            final int scale) {
+        Assert.notNull("src", src);
+        return Numbers.unpackDecimal(
+                ByteBuffer.wrap(src), offset, length, scale);
+    }
+
+    /**
+     * Reads a packed decimal with an implied decimal point from a buffer.
+     *
+     * Packed decimals of up to 17 digits are read as a <code>long</code>, so
+     * only the <code>BigDecimal</code> is allocated.
+     *
+     * @param buffer
+     *     the buffer holding the packed decimal
+     * @param offset
+     *     the absolute index of the first byte of the packed decimal
+     * @param length
+     *     the number of bytes in the packed decimal
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @return
+     *     the value of the packed decimal
+     * @throws NullPointerException
+     *     if <code>buffer</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if the bytes are not a valid packed decimal
+     * @throws IndexOutOfBoundsException
+     *     if the packed decimal is outside of <code>buffer</code>
+     */
+    public static BigDecimal unpackDecimal(
+            final ByteBuffer buffer,
+            final int offset,
+            final int length,
+            final int scale) {
+
+        if (length <= Numbers.MAX_LONG_PACKED_LENGTH) {
+            return BigDecimal.valueOf(
+                    Numbers.unpackLong(buffer, offset, length), scale);
+        }
+
+        StringBuilder digits = new StringBuilder(2 * length);
+        Numbers.unpack(buffer, offset, length, 0, digits);
+        return new BigDecimal(new BigInteger(digits.toString()), scale);
+    }
+
+    /**
+     * Appends the digits of a packed decimal in an array to a builder.
+     *
+     * @param src
+     *     the array holding the packed decimal
+     * @param offset
+     *     the index of the first byte of the packed decimal
+     * @param length
+     *     the number of bytes in the packed decimal
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @param destination
+     *     the builder the number is appended to
+     * @return
+     *     the number of characters appended
+     * @throws NullPointerException
+     *     if <code>src</code> or <code>destination</code> is
+     *     <code>null</code>
+     * @throws NumberFormatException
+     *     if the bytes are not a valid packed decimal
+     * @throws IllegalArgumentException
+     *     if <code>scale</code> is negative
+     * @throws IndexOutOfBoundsException
+     *     if the packed decimal is outside of <code>src</code>
+     * @see #unpack(ByteBuffer,int,int,int,StringBuilder)
+     */
+    public static int unpack(
+            final byte[] src,
+            final int offset,
+            final int length,
+            final int scale,
+            final StringBuilder destination) {
+        Assert.notNull("src", src);
+        return Numbers.unpack(
+                ByteBuffer.wrap(src), offset, length, scale, destination);
+    }
+
+    /**
+     * Appends the digits of a packed decimal in a buffer to a builder.
+     *
+     * The number is appended as <code>BigDecimal.toPlainString()</code>
+     * would write it, with a leading <code>-</code> if it is negative and
+     * not zero, no leading zeros and <code>scale</code> digits after the
+     * decimal point.  The bytes are checked before anything is appended.
+     *
+     * @param buffer
+     *     the buffer holding the packed decimal
+     * @param offset
+     *     the absolute index of the first byte of the packed decimal
+     * @param length
+     *     the number of bytes in the packed decimal
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @param destination
+     *     the builder the number is appended to
+     * @return
+     *     the number of characters appended
+     * @throws NullPointerException
+     *     if <code>buffer</code> or <code>destination</code> is
+     *     <code>null</code>
+     * @throws NumberFormatException
+     *     if the bytes are not a valid packed decimal
+     * @throws IllegalArgumentException
+     *     if <code>scale</code> is negative
+     * @throws IndexOutOfBoundsException
+     *     if the packed decimal is outside of <code>buffer</code>
+     */
+    public static int unpack(
+            final ByteBuffer buffer,
+            final int offset,
+            final int length,
+            final int scale,
+            final StringBuilder destination) {
+
+        Assert.notNull("buffer", buffer);
+        Assert.notNull("destination", destination);
+
+        if (length < 1) {
+            throw new NumberFormatException("A packed decimal is required");
+        }
+
+        if (scale < 0) {
+            throw new IllegalArgumentException("scale must not be negative");
+        }
+
+        int digits = 2 * length - 1;
+        boolean negative = Numbers.isNegative(
+                buffer.get(offset + digits / 2) & 0xFF);
+
+        // check every digit and find the first that is not zero
+        int first = digits;
+        for (int i = 0; i < digits; i++) {
+            int digit = Numbers.digit(buffer, offset, i);
+            if (digit > 9) {
+                throw new NumberFormatException(
+                        "Invalid packed decimal digit");
+            }
+            if (digit != 0 && first == digits) {
+                first = i;
+            }
+        }
+
+        int start = destination.length();
+        if (negative && first < digits) {
+            destination.append('-');
+        }
+
+        int point = digits - scale;
+        if (first >= point) {
+            destination.append('0');
+        }
+        for (int i = first; i < point; i++) {
+            destination.append((char) ('0' + Numbers.digit(buffer, offset, i)));
+        }
+
+        if (scale > 0) {
+            destination.append('.');
+            for (int i = point; i < digits; i++) {
+                if (i < 0) {
+                    destination.append('0');
+                } else {
+                    destination.append(
+                            (char) ('0' + Numbers.digit(buffer, offset, i)));
+                }
+            }
+        }
+
+        return destination.length() - start;
+    }
+
+    /**
+     * Adds one packed decimal to another in place.
+     *
+     * The digits are added a nibble at a time without unpacking either
+     * value, so a running total can be kept in a packed field without
+     * allocating.  The sign of <code>dst</code> is kept if it still fits the
+     * result, otherwise it is replaced by <code>C</code> or <code>D</code>.
+     *
+     * @param src
+     *     the array holding the packed decimal to add
+     * @param srcOffset
+     *     the index of the first byte of the packed decimal to add
+     * @param srcLength
+     *     the number of bytes in the packed decimal to add
+     * @param dst
+     *     the array holding the packed decimal to add to
+     * @param dstOffset
+     *     the index of the first byte of the packed decimal to add to
+     * @param dstLength
+     *     the number of bytes in the packed decimal to add to
+     * @throws NullPointerException
+     *     if <code>src</code> or <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if either value is not a valid packed decimal
+     * @throws ArithmeticException
+     *     if the sum has more digits than <code>dst</code> holds, in which
+     *     case <code>dst</code> is not changed
+     * @throws IndexOutOfBoundsException
+     *     if either packed decimal is outside of its array
+     */
+    public static void add(
+            final byte[] src,
+            final int srcOffset,
+            final int srcLength,
+            final byte[] dst,
+            final int dstOffset,
+            final int dstLength) {
+        Numbers.add(
+                src, srcOffset, srcLength, dst, dstOffset, dstLength, false);
+    }
+
+    /**
+     * Subtracts one packed decimal from another in place.
+     *
+     * @param src
+     *     the array holding the packed decimal to subtract
+     * @param srcOffset
+     *     the index of the first byte of the packed decimal to subtract
+     * @param srcLength
+     *     the number of bytes in the packed decimal to subtract
+     * @param dst
+     *     the array holding the packed decimal to subtract from
+     * @param dstOffset
+     *     the index of the first byte of the packed decimal to subtract from
+     * @param dstLength
+     *     the number of bytes in the packed decimal to subtract from
+     * @throws NullPointerException
+     *     if <code>src</code> or <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if either value is not a valid packed decimal
+     * @throws ArithmeticException
+     *     if the difference has more digits than <code>dst</code> holds, in
+     *     which case <code>dst</code> is not changed
+     * @throws IndexOutOfBoundsException
+     *     if either packed decimal is outside of its array
+     * @see #add(byte[],int,int,byte[],int,int)
+     */
+    public static void subtract(
+            final byte[] src,
+            final int srcOffset,
+            final int srcLength,
+            final byte[] dst,
+            final int dstOffset,
+            final int dstLength) {
+        Numbers.add(
+                src, srcOffset, srcLength, dst, dstOffset, dstLength, true);
+    }
+
+    /**
+     * Compares two packed decimals.
+     *
+     * The packed decimals may have different lengths, and a negative zero is
+     * equal to a positive zero.
+     *
+     * @param a
+     *     the array holding the first packed decimal
+     * @param aOffset
+     *     the index of the first byte of the first packed decimal
+     * @param aLength
+     *     the number of bytes in the first packed decimal
+     * @param b
+     *     the array holding the second packed decimal
+     * @param bOffset
+     *     the index of the first byte of the second packed decimal
+     * @param bLength
+     *     the number of bytes in the second packed decimal
+     * @return
+     *     a negative number, zero or a positive number as the first packed
+     *     decimal is less than, equal to or greater than the second
+     * @throws NullPointerException
+     *     if <code>a</code> or <code>b</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if either value is not a valid packed decimal
+     * @throws IndexOutOfBoundsException
+     *     if either packed decimal is outside of its array
+     */
+    public static int compare(
+            final byte[] a,
+            final int aOffset,
+            final int aLength,
+            final byte[] b,
+            final int bOffset,
+            final int bLength) {
+
+        Assert.notNull("a", a);
+        Assert.notNull("b", b);
+
+        boolean aNegative = Numbers.isNegative(a, aOffset, aLength);
+        boolean bNegative = Numbers.isNegative(b, bOffset, bLength);
+        int magnitude = Numbers.compareMagnitude(
+                a, aOffset, aLength, b, bOffset, bLength);
+
+        if (aNegative == bNegative) {
+            return aNegative ? -magnitude : magnitude;
+        }
+
+        if (Numbers.isZero(a, aOffset, aLength)
+                && Numbers.isZero(b, bOffset, bLength)) {
+            return 0;
+        }
+
+        return aNegative ? -1 : 1;
+    }
+
+    /**
+     * Negates a packed decimal in place by replacing its sign nibble.
+     *
+     * @param dst
+     *     the array holding the packed decimal
+     * @param offset
+     *     the index of the first byte of the packed decimal
+     * @param length
+     *     the number of bytes in the packed decimal
+     * @throws NullPointerException
+     *     if <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if the sign nibble is not a sign
+     * @throws IndexOutOfBoundsException
+     *     if the packed decimal is outside of <code>dst</code>
+     */
+    public static void negate(
+            final byte[] dst,
+            final int offset,
+            final int length) {
+
+        Assert.notNull("dst", dst);
+
+        Numbers.setSign(
+                dst, offset, length, !Numbers.isNegative(dst, offset, length));
+    }
+
+    /**
+     * Packs a column of longs into one buffer of fixed width signed packed
+     * decimals.
+     *
+     * @param values
+     *     the values to pack
+     * @param digits
+     *     the number of digits in each packed decimal, which is written in
+     *     <code>digits / 2 + 1</code> bytes with leading zeros
+     * @return
+     *     a buffer holding the packed decimals one after another, with the
+     *     value at index <code>i</code> starting at byte
+     *     <code>i * (digits / 2 + 1)</code>
+     * @throws NullPointerException
+     *     if <code>values</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if a value has more than <code>digits</code> digits
+     * @throws IllegalArgumentException
+     *     if <code>digits</code> is less than 1 or the column is too large for
+     *     one buffer
+     */
+    public static ByteBuffer packColumn(final long[] values, final int digits) {
+        return PackedColumns.pack(values, digits, null);
+    }
+
+    /**
+     * Packs a column of longs into one buffer of fixed width signed packed
+     * decimals, splitting large columns into slices that are packed in
+     * parallel.
+     *
+     * @param values
+     *     the values to pack
+     * @param digits
+     *     the number of digits in each packed decimal, which is written in
+     *     <code>digits / 2 + 1</code> bytes with leading zeros
+     * @param executor
+     *     the executor the slices are packed on
+     * @return
+     *     a buffer holding the packed decimals one after another, with the
+     *     value at index <code>i</code> starting at byte
+     *     <code>i * (digits / 2 + 1)</code>
+     * @throws NullPointerException
+     *     if <code>values</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if a value has more than <code>digits</code> digits
+     * @throws IllegalArgumentException
+     *     if <code>digits</code> is less than 1 or the column is too large for
+     *     one buffer
+     * @see #packColumn(long[],int)
+     */
+    public static ByteBuffer packColumn(
+            final long[] values,
+            final int digits,
+            final Executor executor) {
+        Assert.notNull("executor", executor);
+        return PackedColumns.pack(values, digits, executor);
+    }
+
+    /**
+     * Packs a column of ints into one buffer of fixed width signed packed
+     * decimals.
+     *
+     * @param values
+     *     the values to pack
+     * @param digits
+     *     the number of digits in each packed decimal, which is written in
+     *     <code>digits / 2 + 1</code> bytes with leading zeros
+     * @return
+     *     a buffer holding the packed decimals one after another, with the
+     *     value at index <code>i</code> starting at byte
+     *     <code>i * (digits / 2 + 1)</code>
+     * @throws NullPointerException
+     *     if <code>values</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if a value has more than <code>digits</code> digits
+     * @throws IllegalArgumentException
+     *     if <code>digits</code> is less than 1 or the column is too large for
+     *     one buffer
+     */
+    public static ByteBuffer packColumn(final int[] values, final int digits) {
+        return PackedColumns.pack(values, digits, null);
+    }
+
+    /**
+     * Packs a column of ints into one buffer of fixed width signed packed
+     * decimals, splitting large columns into slices that are packed in
+     * parallel.
+     *
+     * @param values
+     *     the values to pack
+     * @param digits
+     *     the number of digits in each packed decimal, which is written in
+     *     <code>digits / 2 + 1</code> bytes with leading zeros
+     * @param executor
+     *     the executor the slices are packed on
+     * @return
+     *     a buffer holding the packed decimals one after another, with the
+     *     value at index <code>i</code> starting at byte
+     *     <code>i * (digits / 2 + 1)</code>
+     * @throws NullPointerException
+     *     if <code>values</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if a value has more than <code>digits</code> digits
+     * @throws IllegalArgumentException
+     *     if <code>digits</code> is less than 1 or the column is too large for
+     *     one buffer
+     * @see #packColumn(int[],int)
+     */
+    public static ByteBuffer packColumn(
+            final int[] values,
+            final int digits,
+            final Executor executor) {
+        Assert.notNull("executor", executor);
+        return PackedColumns.pack(values, digits, executor);
+    }
+
+    /**
+     * Unpacks a column of fixed width packed decimals between the position
+     * and the limit of a buffer.  The position of the buffer is not
+     * changed.
+     *
+     * @param column
+     *     the buffer holding the packed decimals
+     * @param digits
+     *     the number of digits in each packed decimal
+     * @return
+     *     the values of the packed decimals
+     * @throws NullPointerException
+     *     if <code>column</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if a value is not a valid packed decimal
+     * @throws IllegalArgumentException
+     *     if <code>digits</code> is less than 1 or the remaining bytes are not
+     *     a whole number of packed decimals
+     */
+    public static long[] unpackColumn(
+            final ByteBuffer column,
+            final int digits) {
+        return PackedColumns.unpack(column, digits, null);
+    }
+
+    /**
+     * Unpacks a column of fixed width packed decimals between the position
+     * and the limit of a buffer, splitting large columns into slices that
+     * are unpacked in parallel.  The position of the buffer is not changed.
+     *
+     * @param column
+     *     the buffer holding the packed decimals
+     * @param digits
+     *     the number of digits in each packed decimal
+     * @param executor
+     *     the executor the slices are unpacked on
+     * @return
+     *     the values of the packed decimals
+     * @throws NullPointerException
+     *     if <code>column</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if a value is not a valid packed decimal
+     * @throws IllegalArgumentException
+     *     if <code>digits</code> is less than 1 or the remaining bytes are not
+     *     a whole number of packed decimals
+     * @see #unpackColumn(ByteBuffer,int)
+     */
+    public static long[] unpackColumn(
+            final ByteBuffer column,
+            final int digits,
+            final Executor executor) {
+        Assert.notNull("executor", executor);
+        return PackedColumns.unpack(column, digits, executor);
+    }
+
+    /**
+     * Writes an unsigned zoned decimal into an array.  A negative value is
+     * written with its sign overpunched on the last digit.
+     *
+     * EBCDIC digits are written with an <code>F</code> zone and a negative
+     * last digit with a <code>D</code> zone.  A negative ASCII last digit
+     * is written as one of <code>}JKLMNOPQR</code>.
+     *
+     * @param value
+     *     the value to write
+     * @param dst
+     *     the array the zoned decimal is written to
+     * @param offset
+     *     the index of the first byte of the zoned decimal
+     * @param digits
+     *     the number of digits in the zoned decimal, which is written in
+     *     <code>digits</code> bytes with leading zeros
+     * @param ebcdic
+     *     <code>true</code> to write EBCDIC digits, <code>false</code> to
+     *     write ASCII digits
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if <code>value</code> has more than <code>digits</code> digits
+     * @throws IndexOutOfBoundsException
+     *     if the zoned decimal does not fit in <code>dst</code>
+     */
+    public static int zone(
+            final long value,
+            final byte[] dst,
+            final int offset,
+            final int digits,
+            final boolean ebcdic) {
+        Assert.notNull("dst", dst);
+        return Numbers.zone(value, ByteBuffer.wrap(dst), offset, digits,
+                Numbers.UNSIGNED, ebcdic);
+    }
+
+    /**
+     * Writes a signed zoned decimal into an array, with the sign
+     * overpunched on the last digit.
+     *
+     * The last EBCDIC digit is written with a <code>C</code> or
+     * <code>D</code> zone.  The last ASCII digit is written as one of
+     * <code>{ABCDEFGHI</code> or <code>}JKLMNOPQR</code>.
+     *
+     * @param value
+     *     the value to write
+     * @param dst
+     *     the array the zoned decimal is written to
+     * @param offset
+     *     the index of the first byte of the zoned decimal
+     * @param digits
+     *     the number of digits in the zoned decimal, which is written in
+     *     <code>digits</code> bytes with leading zeros
+     * @param ebcdic
+     *     <code>true</code> to write EBCDIC digits, <code>false</code> to
+     *     write ASCII digits
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if <code>value</code> has more than <code>digits</code> digits
+     * @throws IndexOutOfBoundsException
+     *     if the zoned decimal does not fit in <code>dst</code>
+     */
+    public static int zoneSigned(
+            final long value,
+            final byte[] dst,
+            final int offset,
+            final int digits,
+            final boolean ebcdic) {
+        Assert.notNull("dst", dst);
+        return Numbers.zone(value, ByteBuffer.wrap(dst), offset, digits,
+                Numbers.POSITIVE, ebcdic);
+    }
+
+    /**
+     * Writes an unsigned zoned decimal into a buffer.  A negative value is
+     * written with its sign overpunched on the last digit.  The position of
+     * the buffer is not changed.
+     *
+     * @param value
+     *     the value to write
+     * @param dst
+     *     the buffer the zoned decimal is written to
+     * @param offset
+     *     the absolute index of the first byte of the zoned decimal
+     * @param digits
+     *     the number of digits in the zoned decimal, which is written in
+     *     <code>digits</code> bytes with leading zeros
+     * @param ebcdic
+     *     <code>true</code> to write EBCDIC digits, <code>false</code> to
+     *     write ASCII digits
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if <code>value</code> has more than <code>digits</code> digits
+     * @throws IndexOutOfBoundsException
+     *     if the zoned decimal does not fit before the limit of
+     *     <code>dst</code>
+     * @see #zone(long,byte[],int,int,boolean)
+     */
+    public static int zone(
+            final long value,
+            final ByteBuffer dst,
+            final int offset,
+            final int digits,
+            final boolean ebcdic) {
+        return Numbers.zone(
+                value, dst, offset, digits, Numbers.UNSIGNED, ebcdic);
+    }
+
+    /**
+     * Writes a signed zoned decimal into a buffer, with the sign
+     * overpunched on the last digit.  The position of the buffer is not
+     * changed.
+     *
+     * @param value
+     *     the value to write
+     * @param dst
+     *     the buffer the zoned decimal is written to
+     * @param offset
+     *     the absolute index of the first byte of the zoned decimal
+     * @param digits
+     *     the number of digits in the zoned decimal, which is written in
+     *     <code>digits</code> bytes with leading zeros
+     * @param ebcdic
+     *     <code>true</code> to write EBCDIC digits, <code>false</code> to
+     *     write ASCII digits
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if <code>value</code> has more than <code>digits</code> digits
+     * @throws IndexOutOfBoundsException
+     *     if the zoned decimal does not fit before the limit of
+     *     <code>dst</code>
+     * @see #zoneSigned(long,byte[],int,int,boolean)
+     */
+    public static int zoneSigned(
+            final long value,
+            final ByteBuffer dst,
+            final int offset,
+            final int digits,
+            final boolean ebcdic) {
+        return Numbers.zone(
+                value, dst, offset, digits, Numbers.POSITIVE, ebcdic);
+    }
+
+    /**
+     * Writes an unsigned zoned decimal with an implied decimal point into an
+     * array.  A negative value is written with its sign overpunched on the
+     * last digit.
+     *
+     * The digits are read from the unscaled value of <code>value</code>,
+     * which is padded with zeros or rounded half up to <code>scale</code>
+     * digits after the decimal point, like a COBOL
+     * <code>PIC 9(digits - scale)V9(scale)</code> field with
+     * <code>ROUNDED</code>.
+     *
+     * @param value
+     *     the value to write
+     * @param dst
+     *     the array the zoned decimal is written to
+     * @param offset
+     *     the index of the first byte of the zoned decimal
+     * @param digits
+     *     the number of digits in the zoned decimal, including the digits
+     *     after the implied decimal point, which is written in
+     *     <code>digits</code> bytes with leading zeros
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @param ebcdic
+     *     <code>true</code> to write EBCDIC digits, <code>false</code> to
+     *     write ASCII digits
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if <code>value</code> or <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if <code>value</code> has more than <code>digits - scale</code>
+     *     digits before the decimal point
+     * @throws IndexOutOfBoundsException
+     *     if the zoned decimal does not fit in <code>dst</code>
+     * @see #zone(long,byte[],int,int,boolean)
+     */
+    public static int zone(
+            final BigDecimal value,
+            final byte[] dst,
+            final int offset,
+            final int digits,
+            final int scale,
+            final boolean ebcdic) {
+        Assert.notNull("dst", dst);
+        return Numbers.zone(value, ByteBuffer.wrap(dst), offset, digits,
+                scale, Numbers.UNSIGNED, ebcdic);
+    }
+
+    /**
+     * Writes a signed zoned decimal with an implied decimal point into an
+     * array, with the sign overpunched on the last digit.
+     *
+     * @param value
+     *     the value to write
+     * @param dst
+     *     the array the zoned decimal is written to
+     * @param offset
+     *     the index of the first byte of the zoned decimal
+     * @param digits
+     *     the number of digits in the zoned decimal, including the digits
+     *     after the implied decimal point, which is written in
+     *     <code>digits</code> bytes with leading zeros
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @param ebcdic
+     *     <code>true</code> to write EBCDIC digits, <code>false</code> to
+     *     write ASCII digits
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if <code>value</code> or <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if <code>value</code> has more than <code>digits - scale</code>
+     *     digits before the decimal point
+     * @throws IndexOutOfBoundsException
+     *     if the zoned decimal does not fit in <code>dst</code>
+     * @see #zone(BigDecimal,byte[],int,int,int,boolean)
+     */
+    public static int zoneSigned(
+            final BigDecimal value,
+            final byte[] dst,
+            final int offset,
+            final int digits,
+            final int scale,
+            final boolean ebcdic) {
+        Assert.notNull("dst", dst);
+        return Numbers.zone(value, ByteBuffer.wrap(dst), offset, digits,
+                scale, Numbers.POSITIVE, ebcdic);
+    }
+
+    /**
+     * Writes an unsigned zoned decimal with an implied decimal point into a
+     * buffer.  A negative value is written with its sign overpunched on the
+     * last digit.  The position of the buffer is not changed.
+     *
+     * @param value
+     *     the value to write
+     * @param dst
+     *     the buffer the zoned decimal is written to
+     * @param offset
+     *     the absolute index of the first byte of the zoned decimal
+     * @param digits
+     *     the number of digits in the zoned decimal, including the digits
+     *     after the implied decimal point, which is written in
+     *     <code>digits</code> bytes with leading zeros
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @param ebcdic
+     *     <code>true</code> to write EBCDIC digits, <code>false</code> to
+     *     write ASCII digits
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if <code>value</code> or <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if <code>value</code> has more than <code>digits - scale</code>
+     *     digits before the decimal point
+     * @throws IndexOutOfBoundsException
+     *     if the zoned decimal does not fit before the limit of
+     *     <code>dst</code>
+     * @see #zone(BigDecimal,byte[],int,int,int,boolean)
+     */
+    public static int zone(
+            final BigDecimal value,
+            final ByteBuffer dst,
+            final int offset,
+            final int digits,
+            final int scale,
+            final boolean ebcdic) {
+        return Numbers.zone(
+                value, dst, offset, digits, scale, Numbers.UNSIGNED, ebcdic);
+    }
+
+    /**
+     * Writes a signed zoned decimal with an implied decimal point into a
+     * buffer, with the sign overpunched on the last digit.  The position of
+     * the buffer is not changed.
+     *
+     * @param value
+     *     the value to write
+     * @param dst
+     *     the buffer the zoned decimal is written to
+     * @param offset
+     *     the absolute index of the first byte of the zoned decimal
+     * @param digits
+     *     the number of digits in the zoned decimal, including the digits
+     *     after the implied decimal point, which is written in
+     *     <code>digits</code> bytes with leading zeros
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @param ebcdic
+     *     <code>true</code> to write EBCDIC digits, <code>false</code> to
+     *     write ASCII digits
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if <code>value</code> or <code>dst</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if <code>value</code> has more than <code>digits - scale</code>
+     *     digits before the decimal point
+     * @throws IndexOutOfBoundsException
+     *     if the zoned decimal does not fit before the limit of
+     *     <code>dst</code>
+     * @see #zoneSigned(BigDecimal,byte[],int,int,int,boolean)
+     */
+    public static int zoneSigned(
+            final BigDecimal value,
+            final ByteBuffer dst,
+            final int offset,
+            final int digits,
+            final int scale,
+            final boolean ebcdic) {
+        return Numbers.zone(
+                value, dst, offset, digits, scale, Numbers.POSITIVE, ebcdic);
+    }
+
+    /**
+     * Reads a zoned decimal from an array.
+     *
+     * @param src
+     *     the array holding the zoned decimal
+     * @param offset
+     *     the index of the first byte of the zoned decimal
+     * @param length
+     *     the number of bytes in the zoned decimal
+     * @param ebcdic
+     *     <code>true</code> if the digits are EBCDIC, <code>false</code> if
+     *     they are ASCII
+     * @return
+     *     the value of the zoned decimal
+     * @throws NullPointerException
+     *     if <code>src</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if the bytes are not a valid zoned decimal or the value does
+     *     not fit in a <code>long</code>
+     * @throws IndexOutOfBoundsException
+     *     if the zoned decimal is outside of <code>src</code>
+     * @see #unzoneLong(ByteBuffer,int,int,boolean)
+     */
+    public static long unzoneLong(
+            final byte[] src,
+            final int offset,
+            final int length,
+            final boolean ebcdic) {
+        Assert.notNull("src", src);
+        return Numbers.unzoneLong(ByteBuffer.wrap(src), offset, length, ebcdic);
+    }
+
+    /**
+     * Reads a zoned decimal from a buffer.
+     *
+     * Every byte but the last must be a digit with an <code>F</code> zone in
+     * EBCDIC or a <code>3</code> zone in ASCII.  The sign is read from the
+     * last byte.  In EBCDIC it is the zone, as for a packed decimal sign.  In
+     * ASCII it is a plain digit or one of <code>{ABCDEFGHI</code> for a
+     * positive value, and one of <code>}JKLMNOPQR</code> or
+     * <code>pqrstuvwxy</code> for a negative value.
+     *
+     * @param src
+     *     the buffer holding the zoned decimal
+     * @param offset
+     *     the absolute index of the first byte of the zoned decimal
+     * @param length
+     *     the number of bytes in the zoned decimal
+     * @param ebcdic
+     *     <code>true</code> if the digits are EBCDIC, <code>false</code> if
+     *     they are ASCII
+     * @return
+     *     the value of the zoned decimal
+     * @throws NullPointerException
+     *     if <code>src</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if the bytes are not a valid zoned decimal or the value does
+     *     not fit in a <code>long</code>
+     * @throws IndexOutOfBoundsException
+     *     if the zoned decimal is outside of <code>src</code>
+     */
+    public static long unzoneLong(
+            final ByteBuffer src,
+            final int offset,
+            final int length,
+            final boolean ebcdic) {
+
+        Assert.notNull("src", src);
+
+        if (length < 1) {
+            throw new NumberFormatException("A zoned decimal is required");
+        }
+
+        // accumulate the negative value so Long.MIN_VALUE can be read
+        long value = 0;
+        int last = offset + length - 1;
+        int digit = 0;
+
+        for (int i = offset; i <= last; i++) {
+            digit = Numbers.zonedDigit(src, i, i == last, ebcdic);
+            int d = digit & 0x0F;
+            if (value < (Long.MIN_VALUE + d) / 10) {
+                throw new NumberFormatException("Zoned decimal is too large");
+            }
+            value = (value * 10) - d;
+        }
+
+        if ((digit & Numbers.NEGATIVE_DIGIT) != 0) {
+            return value;
+        }
+
+        if (value == Long.MIN_VALUE) {
+            throw new NumberFormatException("Zoned decimal is too large");
+        }
+
+        return -value;
+    }
+
+    /**
+     * Reads a zoned decimal with an implied decimal point from an array.
+     *
+     * @param src
+     *     the array holding the zoned decimal
+     * @param offset
+     *     the index of the first byte of the zoned decimal
+     * @param length
+     *     the number of bytes in the zoned decimal
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @param ebcdic
+     *     <code>true</code> if the digits are EBCDIC, <code>false</code> if
+     *     they are ASCII
+     * @return
+     *     the value of the zoned decimal
+     * @throws NullPointerException
+     *     if <code>src</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if the bytes are not a valid zoned decimal
+     * @throws IndexOutOfBoundsException
+     *     if the zoned decimal is outside of <code>src</code>
+     * @see #unzoneDecimal(ByteBuffer,int,int,int,boolean)
+     */
+    public static BigDecimal unzoneDecimal(
+            final byte[] src,
+            final int offset,
+            final int length,
+            final int scale,
+            final boolean ebcdic) {
+        Assert.notNull("src", src);
+        return Numbers.unzoneDecimal(
+                ByteBuffer.wrap(src), offset, length, scale, ebcdic);
+    }
+
+    /**
+     * Reads a zoned decimal with an implied decimal point from a buffer.
+     *
+     * The digits are accumulated 18 at a time in a <code>long</code>, so a
+     * zoned decimal that fits in a <code>long</code> only allocates the
+     * <code>BigDecimal</code>.
+     *
+     * @param src
+     *     the buffer holding the zoned decimal
+     * @param offset
+     *     the absolute index of the first byte of the zoned decimal
+     * @param length
+     *     the number of bytes in the zoned decimal
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @param ebcdic
+     *     <code>true</code> if the digits are EBCDIC, <code>false</code> if
+     *     they are ASCII
+     * @return
+     *     the value of the zoned decimal
+     * @throws NullPointerException
+     *     if <code>src</code> is <code>null</code>
+     * @throws NumberFormatException
+     *     if the bytes are not a valid zoned decimal
+     * @throws IndexOutOfBoundsException
+     *     if the zoned decimal is outside of <code>src</code>
+     * @see #unzoneLong(ByteBuffer,int,int,boolean)
+     */
+    public static BigDecimal unzoneDecimal(
+            final ByteBuffer src,
+            final int offset,
+            final int length,
+            final int scale,
+            final boolean ebcdic) {
+
+        if (length <= Numbers.MAX_LONG_ZONED_LENGTH) {
+            return BigDecimal.valueOf(
+                    Numbers.unzoneLong(src, offset, length, ebcdic), scale);
+        }
+
+        Assert.notNull("src", src);
+
+        BigInteger unscaled = BigInteger.ZERO;
+        long chunk = 0;
+        int chunkDigits = 0;
+        int last = offset + length - 1;
+        int digit = 0;
+
+        for (int i = offset; i <= last; i++) {
+            digit = Numbers.zonedDigit(src, i, i == last, ebcdic);
+            chunk = (chunk * 10) + (digit & 0x0F);
+            chunkDigits++;
+            if (chunkDigits == Numbers.MAX_LONG_ZONED_LENGTH || i == last) {
+                unscaled = unscaled.multiply(BigInteger.TEN.pow(chunkDigits))
+                        .add(BigInteger.valueOf(chunk));
+                chunk = 0;
+                chunkDigits = 0;
+            }
+        }
+
+        if ((digit & Numbers.NEGATIVE_DIGIT) != 0) {
+            unscaled = unscaled.negate();
+        }
+
+        return new BigDecimal(unscaled, scale);
+    }
+
+    /**
+     * Packs a value into a new array just long enough for its digits.
+     */
+    private static byte[] pack(final long value, final int positiveSign) {
+        int digits = Numbers.digits(value);
+        byte[] result = new byte[digits / 2 + 1];
+        Numbers.pack(value, result, 0, digits, positiveSign);
+        return result;
+    }
+
+    private static int pack(
+            final long value,
+            final byte[] dst,
+            final int offset,
+            final int digits,
+            final int positiveSign) {
+
+        Assert.notNull("dst", dst);
+
+        int length = Numbers.packedLength(value, digits);
+        if (offset < 0 || offset > dst.length - length) {
+            throw new IndexOutOfBoundsException(
+                    "offset: " + offset + ", length: " + length);
+        }
+
+        // work with the negative value so Long.MIN_VALUE can be packed
+        long remaining = (value < 0) ? value : -value;
+        int sign = (value < 0) ? Numbers.NEGATIVE : positiveSign;
+
+        // the last byte holds the last digit and the sign
+        int low = sign;
+        for (int i = offset + length - 1; i >= offset; i--) {
+            int high = (int) -(remaining % 10);
+            remaining /= 10;
+            dst[i] = (byte) ((high << 4) | low);
+            low = (int) -(remaining % 10);
+            remaining /= 10;
+        }
+
+        return length;
+    }
+
+    private static int pack(
+            final long value,
+            final ByteBuffer dst,
+            final int offset,
+            final int digits,
+            final int positiveSign) {
+
+        Assert.notNull("dst", dst);
+
+        int length = Numbers.packedLength(value, digits);
+        if (offset < 0 || offset > dst.limit() - length) {
+            throw new IndexOutOfBoundsException(
+                    "offset: " + offset + ", length: " + length);
+        }
+
+        if (dst.hasArray()) {
+            return Numbers.pack(
+                    value, dst.array(), dst.arrayOffset() + offset, digits,
+                    positiveSign);
+        }
+
+        // work with the negative value so Long.MIN_VALUE can be packed
+        long remaining = (value < 0) ? value : -value;
+        int sign = (value < 0) ? Numbers.NEGATIVE : positiveSign;
+
+        // the last byte holds the last digit and the sign
+        int low = sign;
+        for (int i = offset + length - 1; i >= offset; i--) {
+            int high = (int) -(remaining % 10);
+            remaining /= 10;
+            dst.put(i, (byte) ((high << 4) | low));
+            low = (int) -(remaining % 10);
+            remaining /= 10;
+        }
+
+        return length;
+    }
+
+    private static int pack(
+            final BigDecimal value,
+            final ByteBuffer dst,
+            final int offset,
+            final int precision,
+            final int scale,
+            final int positiveSign) {
+
+        Assert.notNull("value", value);
+        Assert.notNull("dst", dst);
+
+        int length = Numbers.packedLength(0, precision);
+        if (offset < 0 || offset > dst.limit() - length) {
+            throw new IndexOutOfBoundsException(
+                    "offset: " + offset + ", length: " + length);
+        }
+
+        BigDecimal scaled = (value.scale() == scale)
+                ? value
+                : value.setScale(scale, RoundingMode.HALF_UP);
+        BigInteger unscaled = scaled.unscaledValue();
+
+        if (unscaled.bitLength() < Long.SIZE) {
+            return Numbers.pack(
+                    unscaled.longValue(), dst, offset, precision, positiveSign);
+        }
+
+        BigInteger remaining = unscaled.abs();
+        if (remaining.compareTo(BigInteger.TEN.pow(precision)) >= 0) {
+            throw new NumberFormatException(
+                    value + " does not fit in " + precision + " digits");
+        }
+
+        for (int i = offset; i < offset + length; i++) {
+            dst.put(i, (byte) 0);
+        }
+
+        int sign = (unscaled.signum() < 0) ? Numbers.NEGATIVE : positiveSign;
+        int last = offset + length - 1;
+        dst.put(last, (byte) sign);
+
+        // write the digits from the right a long's worth at a time
+        int nibble = 2 * length - 2;
+        while (remaining.signum() > 0) {
+            BigInteger[] chunk = remaining.divideAndRemainder(
+                    Numbers.LONG_CHUNK);
+            remaining = chunk[0];
+            long digits = chunk[1].longValue();
+            for (int i = 0; i < Numbers.LONG_CHUNK_DIGITS && nibble >= 0;
+                    i++, nibble--) {
+                int index = offset + nibble / 2;
+                int digit = (int) (digits % 10);
+                if (nibble % 2 == 0) {
+                    dst.put(index, (byte) (dst.get(index) | (digit << 4)));
+                } else {
+                    dst.put(index, (byte) (dst.get(index) | digit));
+                }
+                digits /= 10;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Gets the number of bytes a packed decimal with a number of digits
+     * needs, checking that the value fits.
+     */
+    private static int packedLength(final long value, final int digits) {
+
+        if (digits < 1) {
+            throw new IllegalArgumentException("digits must be positive");
+        }
+
+        if (Numbers.digits(value) > digits) {
+            throw new NumberFormatException(
+                    value + " does not fit in " + digits + " digits");
+        }
+
+        return digits / 2 + 1;
+    }
+
+    /**
+     * Counts the decimal digits of a value.
+     */
+    private static int digits(final long value) {
+
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            digits++;
+        }
+
+        return digits;
+    }
+
+    /**
+     * Sets a nibble of an array, counting from the high nibble of the first
+     * byte.
+     */
+    private static void putNibble(
+            final byte[] bytes,
+            final int nibble,
+            final int value) {
+
+        int i = nibble / 2;
+        if (nibble % 2 == 0) {
+            bytes[i] = (byte) ((bytes[i] & 0x0F) | (value << 4));
+        } else {
+            bytes[i] = (byte) ((bytes[i] & 0xF0) | value);
+        }
+    }
+
+    /**
+     * Tests if a number is a primitive wrapper that holds a whole number.
+     */
+    private static boolean isIntegral(final Number number) {
+        return number instanceof Integer
+                || number instanceof Long
+                || number instanceof Short
+                || number instanceof Byte;
+    }
+
+    /**
+     * Appends a digit to the negative value of a number.
+     *
+     * @param value
+     *     the negative value of the number
+     * @param digit
+     *     the digit to append
+     * @return
+     *     the negative value with the digit appended
+     * @throws NumberFormatException
+     *     if <code>digit</code> is not a decimal digit or the result does not
+     *     fit in a <code>long</code>
+     */
+    private static long appendDigit(final long value, final int digit) {
+
+        if (digit > 9) {
+            throw new NumberFormatException("Invalid packed decimal digit");
+        }
+
+        if (value < (Long.MIN_VALUE + digit) / 10) {
+            throw new NumberFormatException("Packed decimal is too large");
+        }
+
+        return (value * 10) - digit;
+    }
+
+    /**
+     * Gets a digit of a packed decimal, counting from the high nibble of the
+     * first byte.
+     */
+    private static int digit(
+            final ByteBuffer buffer,
+            final int offset,
+            final int index) {
+
+        int b = buffer.get(offset + index / 2) & 0xFF;
+        if (index % 2 == 0) {
+            return b >>> 4;
+        }
+
+        return b & 0x0F;
+    }
+
+    /**
+     * Reads the sign from the last byte of a packed decimal.
+     *
+     * @throws NumberFormatException
+     *     if the sign nibble is not a sign
+     */
+    private static boolean isNegative(final int last) {
+
+        int sign = last & 0x0F;
+        if (sign < 0x0A) {
+            throw new NumberFormatException("Invalid packed decimal sign");
+        }
+
+        return (sign == 0x0D || sign == 0x0B);
+    }
+
+    /**
+     * Builds the table of the two digit value of every byte, with
+     * <code>-1</code> for a byte holding a nibble that is not a digit.
+     */
+    private static byte[] digitPairs() {
+
+        byte[] pairs = new byte[256];
+        for (int b = 0; b < pairs.length; b++) {
+            int high = b >>> 4;
+            int low = b & 0x0F;
+            if (high > 9 || low > 9) {
+                pairs[b] = -1;
+            } else {
+                pairs[b] = (byte) (high * 10 + low);
+            }
+        }
+
+        return pairs;
+    }
+
+    /**
+     * Adds or subtracts one packed decimal to or from another in place.
+     */
+    private static void add(
+            final byte[] src,
+            final int srcOffset,
+            final int srcLength,
+            final byte[] dst,
+            final int dstOffset,
+            final int dstLength,
+            final boolean subtract) {
+
+        Assert.notNull("src", src);
+        Assert.notNull("dst", dst);
+
+        boolean srcNegative =
+                Numbers.isNegative(src, srcOffset, srcLength) != subtract;
+        boolean dstNegative = Numbers.isNegative(dst, dstOffset, dstLength);
+
+        boolean difference = srcNegative != dstNegative;
+        boolean reverse = false;
+        boolean negative = dstNegative;
+
+        if (difference) {
+            int magnitude = Numbers.compareMagnitude(
+                    dst, dstOffset, dstLength, src, srcOffset, srcLength);
+            reverse = magnitude < 0;
+            if (reverse) {
+                negative = srcNegative;
+            } else if (magnitude == 0) {
+                negative = false;
+            }
+        }
+
+        // check every digit and the size of the result before changing dst
+        if (!Numbers.addDigits(src, srcOffset, srcLength, dst, dstOffset,
+                dstLength, difference, reverse, false)) {
+            throw new ArithmeticException("Packed decimal overflow");
+        }
+
+        Numbers.addDigits(src, srcOffset, srcLength, dst, dstOffset,
+                dstLength, difference, reverse, true);
+        Numbers.setSign(dst, dstOffset, dstLength, negative);
+    }
+
+    /**
+     * Adds or subtracts the digits of two packed decimals, ignoring their
+     * signs, and optionally writes the result over the digits of
+     * <code>dst</code>.
+     *
+     * @return
+     *     <code>false</code> if the result does not fit in <code>dst</code>
+     */
+    private static boolean addDigits(
+            final byte[] src,
+            final int srcOffset,
+            final int srcLength,
+            final byte[] dst,
+            final int dstOffset,
+            final int dstLength,
+            final boolean difference,
+            final boolean reverse,
+            final boolean write) {
+
+        int srcDigits = 2 * srcLength - 1;
+        int dstDigits = 2 * dstLength - 1;
+        int carry = 0;
+
+        for (int place = 0; place < Math.max(srcDigits, dstDigits); place++) {
+            int s = Numbers.digit(src, srcOffset, srcLength, place);
+            int d = Numbers.digit(dst, dstOffset, dstLength, place);
+
+            int result;
+            if (!difference) {
+                result = d + s + carry;
+                carry = result > 9 ? 1 : 0;
+                result -= 10 * carry;
+            } else {
+                result = (reverse ? s - d : d - s) - carry;
+                carry = result < 0 ? 1 : 0;
+                result += 10 * carry;
+            }
+
+            if (place >= dstDigits) {
+                if (result != 0) {
+                    return false;
+                }
+            } else if (write) {
+                Numbers.putNibble(
+                        dst, 2 * dstOffset + dstDigits - 1 - place, result);
+            }
+        }
+
+        return carry == 0;
+    }
+
+    /**
+     * Compares the digits of two packed decimals, ignoring their signs.
+     */
+    private static int compareMagnitude(
+            final byte[] a,
+            final int aOffset,
+            final int aLength,
+            final byte[] b,
+            final int bOffset,
+            final int bLength) {
+
+        int place = Math.max(2 * aLength, 2 * bLength) - 1;
+
+        // keep going after a difference so every digit is checked
+        int result = 0;
+        while (place-- > 0) {
+            int aDigit = Numbers.digit(a, aOffset, aLength, place);
+            int bDigit = Numbers.digit(b, bOffset, bLength, place);
+            if (result == 0 && aDigit != bDigit) {
+                result = aDigit < bDigit ? -1 : 1;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Tests if every digit of a packed decimal is zero.
+     */
+    private static boolean isZero(
+            final byte[] bytes,
+            final int offset,
+            final int length) {
+
+        for (int i = offset; i < offset + length - 1; i++) {
+            if (bytes[i] != 0) {
+                return false;
+            }
+        }
+
+        return (bytes[offset + length - 1] & 0xF0) == 0;
+    }
+
+    /**
+     * Gets a digit of a packed decimal by its place, counting from the
+     * units, or zero if the packed decimal has no digit in that place.
+     *
+     * @throws NumberFormatException
+     *     if the nibble is not a digit
+     */
+    private static int digit(
+            final byte[] bytes,
+            final int offset,
+            final int length,
+            final int place) {
+
+        int nibble = 2 * length - 2 - place;
+        if (nibble < 0) {
+            return 0;
+        }
+
+        int b = bytes[offset + nibble / 2] & 0xFF;
+        int digit = nibble % 2 == 0 ? b >>> 4 : b & 0x0F;
+        if (digit > 9) {
+            throw new NumberFormatException("Invalid packed decimal digit");
+        }
+
+        return digit;
+    }
+
+    /**
+     * Reads the sign of a packed decimal in an array.
+     */
+    private static boolean isNegative(
+            final byte[] bytes,
+            final int offset,
+            final int length) {
+
+        if (length < 1) {
+            throw new NumberFormatException("A packed decimal is required");
+        }
+
+        return Numbers.isNegative(bytes[offset + length - 1] & 0xFF);
+    }
+
+    /**
+     * Sets the sign of a packed decimal, keeping its sign nibble if it
+     * already has the given sign.
+     */
+    private static void setSign(
+            final byte[] bytes,
+            final int offset,
+            final int length,
+            final boolean negative) {
+
+        int last = offset + length - 1;
+        int sign = bytes[last] & 0x0F;
+
+        if (negative != Numbers.isNegative(sign)) {
+            sign = negative ? Numbers.NEGATIVE : Numbers.POSITIVE;
+        }
+
+        bytes[last] = (byte) ((bytes[last] & 0xF0) | sign);
+    }
+
+    private static int zone(
+            final long value,
+            final ByteBuffer dst,
+            final int offset,
+            final int digits,
+            final int positiveSign,
+            final boolean ebcdic) {
+
+        Assert.notNull("dst", dst);
+
+        // checks that the value fits in the digits
+        Numbers.packedLength(value, digits);
+
+        if (offset < 0 || offset > dst.limit() - digits) {
+            throw new IndexOutOfBoundsException(
+                    "offset: " + offset + ", length: " + digits);
+        }
+
+        // work with the negative value so Long.MIN_VALUE can be written
+        long remaining = (value < 0) ? value : -value;
+        int sign = (value < 0) ? Numbers.NEGATIVE : positiveSign;
+
+        int last = offset + digits - 1;
+        dst.put(last, Numbers.overpunch((int) -(remaining % 10), sign, ebcdic));
+        remaining /= 10;
+
+        int zone = ebcdic ? 0xF0 : '0';
+        for (int i = last - 1; i >= offset; i--) {
+            dst.put(i, (byte) (zone | (int) -(remaining % 10)));
+            remaining /= 10;
+        }
+
+        return digits;
+    }
+
+    private static int zone(
+            final BigDecimal value,
+            final ByteBuffer dst,
+            final int offset,
+            final int digits,
+            final int scale,
+            final int positiveSign,
+            final boolean ebcdic) {
+
+        Assert.notNull("value", value);
+        Assert.notNull("dst", dst);
+
+        // checks that there is at least one digit
+        Numbers.packedLength(0, digits);
+
+        if (offset < 0 || offset > dst.limit() - digits) {
+            throw new IndexOutOfBoundsException(
+                    "offset: " + offset + ", length: " + digits);
+        }
+
+        BigDecimal scaled = (value.scale() == scale)
+                ? value
+                : value.setScale(scale, RoundingMode.HALF_UP);
+        BigInteger unscaled = scaled.unscaledValue();
+
+        if (unscaled.bitLength() < Long.SIZE) {
+            return Numbers.zone(unscaled.longValue(), dst, offset, digits,
+                    positiveSign, ebcdic);
+        }
+
+        BigInteger remaining = unscaled.abs();
+        if (remaining.compareTo(BigInteger.TEN.pow(digits)) >= 0) {
+            throw new NumberFormatException(
+                    value + " does not fit in " + digits + " digits");
+        }
+
+        int sign = (unscaled.signum() < 0) ? Numbers.NEGATIVE : positiveSign;
+        int zone = ebcdic ? 0xF0 : '0';
+        int last = offset + digits - 1;
+
+        // write the digits from the right a long's worth at a time
+        int index = last;
+        while (index >= offset) {
+            BigInteger[] chunk = remaining.divideAndRemainder(
+                    Numbers.LONG_CHUNK);
+            remaining = chunk[0];
+            long chunkDigits = chunk[1].longValue();
+            for (int i = 0; i < Numbers.LONG_CHUNK_DIGITS && index >= offset;
+                    i++, index--) {
+                int digit = (int) (chunkDigits % 10);
+                dst.put(index, (index == last)
+                        ? Numbers.overpunch(digit, sign, ebcdic)
+                        : (byte) (zone | digit));
+                chunkDigits /= 10;
+            }
+        }
+
+        return digits;
+    }
+
+    /**
+     * Gets the byte for the last digit of a zoned decimal, with the sign
+     * overpunched.
+     */
+    private static byte overpunch(
+            final int digit,
+            final int sign,
+            final boolean ebcdic) {
+
+        if (ebcdic) {
+            return (byte) ((sign << 4) | digit);
+        }
+
+        switch (sign) {
+        case Numbers.UNSIGNED:
+            return (byte) ('0' + digit);
+        case Numbers.POSITIVE:
+            return (byte) Numbers.POSITIVE_OVERPUNCH.charAt(digit);
+        default:
+            return (byte) Numbers.NEGATIVE_OVERPUNCH.charAt(digit);
+        }
+    }
+
+    /**
+     * Gets a digit of a zoned decimal.  The digit of the last byte has
+     * <code>NEGATIVE_DIGIT</code> set if the sign is negative.
+     *
+     * @throws NumberFormatException
+     *     if the byte is not a digit
+     */
+    private static int zonedDigit(
+            final ByteBuffer src,
+            final int index,
+            final boolean last,
+            final boolean ebcdic) {
+
+        int b = src.get(index) & 0xFF;
+
+        if (last) {
+            int digit = ebcdic
+                    ? Numbers.EBCDIC_OVERPUNCHES[b]
+                    : Numbers.ASCII_OVERPUNCHES[b];
+            if (digit < 0) {
+                throw new NumberFormatException("Invalid zoned decimal sign");
+            }
+            return digit;
+        }
+
+        int digit = b - (ebcdic ? 0xF0 : '0');
+        if (digit < 0 || digit > 9) {
+            throw new NumberFormatException("Invalid zoned decimal digit");
+        }
+
+        return digit;
+    }
+
+    /**
+     * Builds the table of the digit and sign of every byte that can be the
+     * last byte of a zoned decimal, with <code>-1</code> for the others.
+     */
+    private static byte[] overpunches(final boolean ebcdic) {
+
+        byte[] table = new byte[256];
+        Arrays.fill(table, (byte) -1);
+
+        for (int digit = 0; digit <= 9; digit++) {
+            if (ebcdic) {
+                for (int zone = 0x0A; zone <= 0x0F; zone++) {
+                    int sign = Numbers.isNegative(zone)
+                            ? Numbers.NEGATIVE_DIGIT
+                            : 0;
+                    table[(zone << 4) | digit] = (byte) (digit | sign);
+                }
+            } else {
+                table['0' + digit] = (byte) digit;
+                table[Numbers.POSITIVE_OVERPUNCH.charAt(digit)] = (byte) digit;
+                table[Numbers.NEGATIVE_OVERPUNCH.charAt(digit)] =
+                        (byte) (digit | Numbers.NEGATIVE_DIGIT);
+                table['p' + digit] = (byte) (digit | Numbers.NEGATIVE_DIGIT);
+            }
+        }
+
+        return table;
+    }
 }
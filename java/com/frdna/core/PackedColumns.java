@@ -0,0 +1,293 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Packs columns of numbers into fixed width signed packed decimals and
+ * unpacks them again.
+ *
+ * Each value of a column is packed into <code>digits / 2 + 1</code> bytes
+ * straight from the primitive array, without boxing it or building a
+ * string.  When an executor is given the column is split into slices that
+ * are packed or unpacked in parallel.  Every slice works on its own range
+ * of the shared array, so no locking is needed.
+ */
+final class PackedColumns {
+
+    /**
+     * The number of values in each slice of a column processed in parallel.
+     */
+    static final int SLICE_SIZE = 64 * 1024;
+
+    private PackedColumns() { }
+
+    /**
+     * Packs a column of longs.
+     *
+     * @param values
+     *     the values to pack
+     * @param digits
+     *     the number of digits in each packed decimal
+     * @param executor
+     *     the executor the slices are packed on, or <code>null</code> to pack
+     *     the column on the calling thread
+     * @return
+     *     a buffer holding the packed decimals one after another
+     */
+    static ByteBuffer pack(
+            final long[] values,
+            final int digits,
+            final Executor executor) {
+
+        Assert.notNull("values", values);
+
+        final byte[] column = PackedColumns.allocate(values.length, digits);
+        if (executor == null) {
+            PackedColumns.pack(values, 0, values.length, column, digits);
+            return ByteBuffer.wrap(column);
+        }
+
+        List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>();
+        for (int start = 0; start < values.length;
+                start += PackedColumns.SLICE_SIZE) {
+            final int from = start;
+            final int to = Math.min(
+                    values.length, start + PackedColumns.SLICE_SIZE);
+            tasks.add(PackedColumns.submit(executor, new Callable<Void>() {
+                public Void call() {
+                    PackedColumns.pack(values, from, to, column, digits);
+                    return null;
+                }
+            }));
+        }
+
+        PackedColumns.await(tasks);
+        return ByteBuffer.wrap(column);
+    }
+
+    /**
+     * Packs a column of ints.
+     *
+     * @param values
+     *     the values to pack
+     * @param digits
+     *     the number of digits in each packed decimal
+     * @param executor
+     *     the executor the slices are packed on, or <code>null</code> to pack
+     *     the column on the calling thread
+     * @return
+     *     a buffer holding the packed decimals one after another
+     */
+    static ByteBuffer pack(
+            final int[] values,
+            final int digits,
+            final Executor executor) {
+
+        Assert.notNull("values", values);
+
+        final byte[] column = PackedColumns.allocate(values.length, digits);
+        if (executor == null) {
+            PackedColumns.pack(values, 0, values.length, column, digits);
+            return ByteBuffer.wrap(column);
+        }
+
+        List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>();
+        for (int start = 0; start < values.length;
+                start += PackedColumns.SLICE_SIZE) {
+            final int from = start;
+            final int to = Math.min(
+                    values.length, start + PackedColumns.SLICE_SIZE);
+            tasks.add(PackedColumns.submit(executor, new Callable<Void>() {
+                public Void call() {
+                    PackedColumns.pack(values, from, to, column, digits);
+                    return null;
+                }
+            }));
+        }
+
+        PackedColumns.await(tasks);
+        return ByteBuffer.wrap(column);
+    }
+
+    /**
+     * Unpacks a column of packed decimals between the position and the limit
+     * of a buffer.  The position of the buffer is not changed.
+     *
+     * @param column
+     *     the buffer holding the packed decimals
+     * @param digits
+     *     the number of digits in each packed decimal
+     * @param executor
+     *     the executor the slices are unpacked on, or <code>null</code> to
+     *     unpack the column on the calling thread
+     * @return
+     *     the values of the packed decimals
+     */
+    static long[] unpack(
+            final ByteBuffer column,
+            final int digits,
+            final Executor executor) {
+
+        Assert.notNull("column", column);
+
+        final int width = PackedColumns.width(digits);
+        if (column.remaining() % width != 0) {
+            throw new IllegalArgumentException(
+                    "The column is not a whole number of " + width
+                    + " byte values");
+        }
+
+        final long[] values = new long[column.remaining() / width];
+        if (executor == null) {
+            PackedColumns.unpack(column, values, 0, values.length, width);
+            return values;
+        }
+
+        List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>();
+        for (int start = 0; start < values.length;
+                start += PackedColumns.SLICE_SIZE) {
+            final int from = start;
+            final int to = Math.min(
+                    values.length, start + PackedColumns.SLICE_SIZE);
+            tasks.add(PackedColumns.submit(executor, new Callable<Void>() {
+                public Void call() {
+                    PackedColumns.unpack(column, values, from, to, width);
+                    return null;
+                }
+            }));
+        }
+
+        PackedColumns.await(tasks);
+        return values;
+    }
+
+    private static void pack(
+            final long[] values,
+            final int from,
+            final int to,
+            final byte[] column,
+            final int digits) {
+
+        int width = PackedColumns.width(digits);
+        for (int i = from; i < to; i++) {
+            Numbers.packSigned(values[i], column, i * width, digits);
+        }
+    }
+
+    private static void pack(
+            final int[] values,
+            final int from,
+            final int to,
+            final byte[] column,
+            final int digits) {
+
+        int width = PackedColumns.width(digits);
+        for (int i = from; i < to; i++) {
+            Numbers.packSigned(values[i], column, i * width, digits);
+        }
+    }
+
+    private static void unpack(
+            final ByteBuffer column,
+            final long[] values,
+            final int from,
+            final int to,
+            final int width) {
+
+        int position = column.position();
+        for (int i = from; i < to; i++) {
+            values[i] = Numbers.unpackLong(column, position + i * width, width);
+        }
+    }
+
+    /**
+     * Allocates the array for a packed column, checking that its size fits
+     * in an array.
+     */
+    private static byte[] allocate(final int count, final int digits) {
+
+        long size = (long) count * PackedColumns.width(digits);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "A column of " + count + " values with " + digits
+                    + " digits is too large");
+        }
+
+        return new byte[(int) size];
+    }
+
+    /**
+     * Gets the number of bytes in each packed decimal of a column.
+     */
+    private static int width(final int digits) {
+
+        if (digits < 1) {
+            throw new IllegalArgumentException(
+                    "digits must be at least 1: " + digits);
+        }
+
+        return digits / 2 + 1;
+    }
+
+    private static FutureTask<Void> submit(
+            final Executor executor,
+            final Callable<Void> slice) {
+
+        FutureTask<Void> task = new FutureTask<Void>(slice);
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Waits for every slice to finish, rethrowing the first failure.
+     */
+    private static void await(final List<FutureTask<Void>> tasks) {
+
+        for (FutureTask<Void> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(
+                        "Interrupted while packing a column", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(
+                        "Unable to pack a column", cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Decodes a file in chunks on an <code>Executor</code>.
+ *
+ * Chunk boundaries are moved to the start of the next line so each chunk
+ * holds whole lines.  Only charsets where a chunk can start at any line, or
+ * any byte, are split: single byte charsets and UTF-8.  Other charsets are
+ * decoded as a single chunk.
+ */
+final class ParallelReader {
+
+    /**
+     * The smallest chunk a file is split into.
+     */
+    static final long MIN_CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * The largest chunk a file is split into.
+     */
+    static final long MAX_CHUNK_SIZE = 256L * 1024 * 1024;
+
+    // how far past a nominal boundary to look for the end of a line
+    private static final int ALIGN_SCAN_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final Charset charset;
+    private final SingleByteCodec codec;
+    private final boolean splittable;
+    private final int newline;
+
+    /**
+     * Creates a reader for a file.
+     *
+     * @param channel
+     *     the channel of the file
+     * @param charset
+     *     the charset used to decode the file
+     */
+    ParallelReader(final FileChannel channel, final Charset charset) {
+
+        this.channel = channel;
+        this.charset = charset;
+        this.codec = SingleByteCodec.forCharset(charset);
+        this.splittable = (this.codec != null
+                || "UTF-8".equals(charset.name()));
+        this.newline = ParallelReader.newline(charset);
+    }
+
+    /**
+     * Decodes the file to an ordered list of chunks.
+     *
+     * @param executor
+     *     the executor the chunks are decoded on
+     * @return
+     *     the decoded chunks in file order
+     * @throws IOException
+     *     if the file cannot be read or decoded
+     */
+    List<CharSequence> readChunks(final Executor executor)
+            throws IOException {
+
+        long[] boundaries = this.boundaries();
+        List<FutureTask<CharBuffer>> tasks =
+                new ArrayList<FutureTask<CharBuffer>>();
+
+        for (int i = 0; i < boundaries.length - 1; i++) {
+            tasks.add(this.submit(
+                    executor, boundaries[i], boundaries[i + 1], null, 0));
+        }
+
+        List<CharSequence> chunks = new ArrayList<CharSequence>();
+        for (FutureTask<CharBuffer> task : tasks) {
+            chunks.add(ParallelReader.get(task));
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Decodes the file to a single <code>String</code>.
+     *
+     * Single byte charsets decode one character per byte, so their chunks
+     * are decoded straight into place in one array.
+     *
+     * @param executor
+     *     the executor the chunks are decoded on
+     * @return
+     *     the decoded file
+     * @throws IOException
+     *     if the file cannot be read or decoded or is too large for a
+     *     <code>String</code>
+     */
+    String read(final Executor executor) throws IOException {
+
+        if (this.codec == null) {
+            return ParallelReader.join(this.readChunks(executor));
+        }
+
+        long size = this.channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IoException(this.channel + " is too large to read");
+        }
+
+        long[] boundaries = this.boundaries();
+        char[] chars = new char[(int) size];
+        List<FutureTask<CharBuffer>> tasks =
+                new ArrayList<FutureTask<CharBuffer>>();
+
+        for (int i = 0; i < boundaries.length - 1; i++) {
+            tasks.add(this.submit(
+                    executor,
+                    boundaries[i],
+                    boundaries[i + 1],
+                    chars,
+                    (int) boundaries[i]));
+        }
+
+        for (FutureTask<CharBuffer> task : tasks) {
+            ParallelReader.get(task);
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Splits the file into chunks.
+     *
+     * @return
+     *     the offset of the start of each chunk followed by the size of the
+     *     file
+     * @throws IOException
+     *     if the file cannot be read
+     */
+    long[] boundaries() throws IOException {
+
+        long size = this.channel.size();
+        List<Long> boundaries = new ArrayList<Long>();
+        boundaries.add(Long.valueOf(0));
+
+        if (this.splittable) {
+            long chunkSize = Math.max(
+                    ParallelReader.MIN_CHUNK_SIZE,
+                    size / (Runtime.getRuntime().availableProcessors() * 4));
+            chunkSize = Math.min(chunkSize, ParallelReader.MAX_CHUNK_SIZE);
+
+            long start = 0;
+            while (size - start > chunkSize) {
+                start = this.align(start + chunkSize);
+                if (start >= size) {
+                    break;
+                }
+                boundaries.add(Long.valueOf(start));
+            }
+        }
+
+        long[] offsets = new long[boundaries.size() + 1];
+        for (int i = 0; i < boundaries.size(); i++) {
+            offsets[i] = boundaries.get(i).longValue();
+        }
+        offsets[offsets.length - 1] = size;
+
+        return offsets;
+    }
+
+    /**
+     * Moves a boundary to the start of the next line.  If no line ends close
+     * to the boundary, it is moved to the start of the next character.
+     *
+     * @param boundary
+     *     the nominal boundary
+     * @return
+     *     the aligned boundary
+     * @throws IOException
+     *     if the file cannot be read
+     */
+    private long align(final long boundary) throws IOException {
+
+        ByteBuffer scan = ByteBuffer.allocate(ParallelReader.ALIGN_SCAN_SIZE);
+        int read = 0;
+        do {
+            read = this.channel.read(scan, boundary + scan.position());
+        } while (read > 0 && scan.hasRemaining());
+        scan.flip();
+
+        for (int i = 0; i < scan.limit(); i++) {
+            if ((scan.get(i) & 0xFF) == this.newline) {
+                return boundary + i + 1;
+            }
+        }
+
+        if (this.codec != null) {
+            return boundary;
+        }
+
+        // skip UTF-8 continuation bytes
+        int i = 0;
+        while (i < scan.limit() && (scan.get(i) & 0xC0) == 0x80) {
+            i++;
+        }
+
+        return boundary + i;
+    }
+
+    private FutureTask<CharBuffer> submit(
+            final Executor executor,
+            final long start,
+            final long end,
+            final char[] target,
+            final int targetOffset) {
+
+        FutureTask<CharBuffer> task = new FutureTask<CharBuffer>(
+                new Callable<CharBuffer>() {
+                    public CharBuffer call() throws IOException {
+                        return ParallelReader.this.decode(
+                                start, end, target, targetOffset);
+                    }
+                });
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Decodes a chunk of the file.
+     *
+     * @param start
+     *     the offset of the first byte of the chunk
+     * @param end
+     *     the offset after the last byte of the chunk
+     * @param target
+     *     the array to decode into or <code>null</code> to allocate one
+     * @param targetOffset
+     *     the index in <code>target</code> of the first character
+     * @return
+     *     the decoded characters
+     * @throws IOException
+     *     if the chunk cannot be read or decoded
+     */
+    private CharBuffer decode(
+            final long start,
+            final long end,
+            final char[] target,
+            final int targetOffset) throws IOException {
+
+        ByteBuffer bytes = this.channel.map(
+                FileChannel.MapMode.READ_ONLY, start, end - start);
+        CharBuffer chars = null;
+        if (target == null) {
+            chars = CharBuffer.allocate(
+                    Io.maxChars(null, this.charset, bytes.remaining()));
+        } else {
+            chars = CharBuffer.wrap(target, targetOffset, bytes.remaining());
+        }
+
+        int first = chars.position();
+        Io.decode(this.charset, bytes, chars);
+        chars.limit(chars.position());
+        chars.position(first);
+        return chars.slice();
+    }
+
+    private static CharSequence get(final FutureTask<CharBuffer> task)
+            throws IOException {
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IoException("Interrupted while reading", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IoException("Unable to read", cause);
+        }
+    }
+
+    private static String join(final List<CharSequence> chunks) {
+
+        long length = 0;
+        for (CharSequence chunk : chunks) {
+            length += chunk.length();
+        }
+
+        if (length > Integer.MAX_VALUE) {
+            throw new IoException("The file is too large to read");
+        }
+
+        StringBuilder joined = new StringBuilder((int) length);
+        for (CharSequence chunk : chunks) {
+            joined.append(chunk);
+        }
+
+        return joined.toString();
+    }
+
+    /**
+     * Encodes a line feed in a charset.
+     *
+     * @param charset
+     *     the charset
+     * @return
+     *     the byte value of a line feed or <code>-1</code> if it is not
+     *     encoded as a single byte
+     */
+    private static int newline(final Charset charset) {
+
+        try {
+            ByteBuffer encoded = charset.newEncoder().encode(
+                    CharBuffer.wrap("\n"));
+            if (encoded.remaining() == 1) {
+                return encoded.get() & 0xFF;
+            }
+        } catch (CharacterCodingException e) {
+            return -1;
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,436 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A view over the bytes of a record in a single byte charset.
+ *
+ * Fields are read straight from the underlying buffer.  Character fields are
+ * returned as views that decode on access, so reading a field does not
+ * allocate a <code>String</code>.  A record is reused by the readers that
+ * return it, so its fields must be read before moving to the next record.
+ */
+public final class Record {
+
+    private final SingleByteCodec codec;
+    private final boolean ebcdic;
+    private ByteBuffer buffer = null;
+    private int offset = 0;
+    private int length = 0;
+
+    /**
+     * Creates a record for a charset.
+     *
+     * @param charset
+     *     the single byte charset of the character fields
+     * @throws NullPointerException
+     *     if <code>charset</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>charset</code> is not a single byte charset
+     */
+    public Record(final Charset charset) {
+
+        this.codec = SingleByteCodec.forCharset(charset);
+
+        if (this.codec == null) {
+            throw new IllegalArgumentException(
+                    charset + " is not a single byte charset");
+        }
+
+        this.ebcdic = (this.codec.encode('0') == 0xF0);
+    }
+
+    /**
+     * Points the record at a range of bytes in a buffer.
+     *
+     * @param recordBuffer
+     *     the buffer holding the record
+     * @param recordOffset
+     *     the absolute index of the first byte of the record
+     * @param recordLength
+     *     the number of bytes in the record
+     * @return
+     *     this record
+     * @throws NullPointerException
+     *     if <code>recordBuffer</code> is <code>null</code>
+     * @throws IndexOutOfBoundsException
+     *     if the range is outside of the buffer's limit
+     */
+    public Record wrap(
+            final ByteBuffer recordBuffer,
+            final int recordOffset,
+            final int recordLength) {
+
+        Assert.notNull("recordBuffer", recordBuffer);
+
+        if (recordOffset < 0
+                || recordLength < 0
+                || recordOffset > recordBuffer.limit() - recordLength) {
+            throw new IndexOutOfBoundsException(
+                    "offset: " + recordOffset + ", length: " + recordLength);
+        }
+
+        this.buffer = recordBuffer;
+        this.offset = recordOffset;
+        this.length = recordLength;
+        return this;
+    }
+
+    /**
+     * Gets the charset of the character fields.
+     *
+     * @return
+     *     the charset
+     */
+    public Charset getCharset() {
+        return this.codec.getCharset();
+    }
+
+    /**
+     * Gets the number of bytes in the record.
+     *
+     * @return
+     *     the length of the record
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Gets a byte of the record.
+     *
+     * @param index
+     *     the index of the byte within the record
+     * @return
+     *     the byte
+     * @throws IndexOutOfBoundsException
+     *     if <code>index</code> is outside of the record
+     */
+    public byte getByte(final int index) {
+        return this.buffer.get(this.index(index, 1));
+    }
+
+    /**
+     * Gets a view over the bytes of a field.  No bytes are copied.
+     *
+     * @param fieldOffset
+     *     the index of the field within the record
+     * @param fieldLength
+     *     the number of bytes in the field
+     * @return
+     *     a read only buffer over the field whose position is zero
+     * @throws IndexOutOfBoundsException
+     *     if the field is outside of the record
+     */
+    public ByteBuffer getBytes(final int fieldOffset, final int fieldLength) {
+
+        int start = this.index(fieldOffset, fieldLength);
+        ByteBuffer field = this.buffer.asReadOnlyBuffer();
+        field.limit(start + fieldLength);
+        field.position(start);
+        return field.slice();
+    }
+
+    /**
+     * Gets a character field.
+     *
+     * The characters are decoded from the record as they are read, so the
+     * field must be used before the record moves on.
+     *
+     * @param fieldOffset
+     *     the index of the field within the record
+     * @param fieldLength
+     *     the number of bytes in the field
+     * @return
+     *     a view over the characters of the field
+     * @throws IndexOutOfBoundsException
+     *     if the field is outside of the record
+     */
+    public CharSequence getChars(
+            final int fieldOffset,
+            final int fieldLength) {
+        return new ByteCharSequence(
+                this.buffer,
+                this.index(fieldOffset, fieldLength),
+                fieldLength,
+                this.codec);
+    }
+
+    /**
+     * Gets a numeric field that is stored as characters.
+     *
+     * Leading and trailing spaces are ignored and the digits may be preceded
+     * by a <code>+</code> or <code>-</code> sign.
+     *
+     * @param fieldOffset
+     *     the index of the field within the record
+     * @param fieldLength
+     *     the number of bytes in the field
+     * @return
+     *     the value of the field
+     * @throws IndexOutOfBoundsException
+     *     if the field is outside of the record
+     * @throws NumberFormatException
+     *     if the field is not a number that fits in a <code>long</code>
+     */
+    public long getLong(final int fieldOffset, final int fieldLength) {
+
+        int start = this.index(fieldOffset, fieldLength);
+        int end = start + fieldLength;
+
+        while (start < end && this.charAt(start) == ' ') {
+            start++;
+        }
+
+        while (end > start && this.charAt(end - 1) == ' ') {
+            end--;
+        }
+
+        boolean negative = false;
+        if (start < end) {
+            char sign = this.charAt(start);
+            if (sign == '-' || sign == '+') {
+                negative = (sign == '-');
+                start++;
+            }
+        }
+
+        if (start == end) {
+            throw this.numberFormatException(fieldOffset, fieldLength);
+        }
+
+        // accumulate the negative value so Long.MIN_VALUE can be read
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = this.charAt(i) - '0';
+            if (digit < 0
+                    || digit > 9
+                    || value < (Long.MIN_VALUE + digit) / 10) {
+                throw this.numberFormatException(fieldOffset, fieldLength);
+            }
+            value = (value * 10) - digit;
+        }
+
+        if (negative) {
+            return value;
+        }
+
+        if (value == Long.MIN_VALUE) {
+            throw this.numberFormatException(fieldOffset, fieldLength);
+        }
+
+        return -value;
+    }
+
+    /**
+     * Gets a packed decimal field.
+     *
+     * @param fieldOffset
+     *     the index of the field within the record
+     * @param fieldLength
+     *     the number of bytes in the field
+     * @return
+     *     the value of the field
+     * @throws IndexOutOfBoundsException
+     *     if the field is outside of the record
+     * @throws NumberFormatException
+     *     if the field is not a packed decimal that fits in a
+     *     <code>long</code>
+     */
+    public long getPacked(final int fieldOffset, final int fieldLength) {
+        return Numbers.unpackLong(
+                this.buffer,
+                this.index(fieldOffset, fieldLength),
+                fieldLength);
+    }
+
+    /**
+     * Gets a packed decimal field with an implied decimal point.
+     *
+     * @param fieldOffset
+     *     the index of the field within the record
+     * @param fieldLength
+     *     the number of bytes in the field
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @return
+     *     the value of the field
+     * @throws IndexOutOfBoundsException
+     *     if the field is outside of the record
+     * @throws NumberFormatException
+     *     if the field is not a packed decimal
+     */
+    public BigDecimal getPacked(
+            final int fieldOffset,
+            final int fieldLength,
+            final int scale) {
+        return Numbers.unpackDecimal(
+                this.buffer,
+                this.index(fieldOffset, fieldLength),
+                fieldLength,
+                scale);
+    }
+
+    /**
+     * Gets a zoned decimal field, with the sign overpunched on the last
+     * digit.  The digits are EBCDIC if the charset of the record encodes
+     * <code>0</code> as <code>0xF0</code>, otherwise they are ASCII.
+     *
+     * @param fieldOffset
+     *     the index of the field within the record
+     * @param fieldLength
+     *     the number of bytes in the field
+     * @return
+     *     the value of the field
+     * @throws IndexOutOfBoundsException
+     *     if the field is outside of the record
+     * @throws NumberFormatException
+     *     if the field is not a zoned decimal that fits in a
+     *     <code>long</code>
+     * @see Numbers#unzoneLong(ByteBuffer,int,int,boolean)
+     */
+    public long getZoned(final int fieldOffset, final int fieldLength) {
+        return Numbers.unzoneLong(
+                this.buffer,
+                this.index(fieldOffset, fieldLength),
+                fieldLength,
+                this.ebcdic);
+    }
+
+    /**
+     * Gets a zoned decimal field with an implied decimal point.
+     *
+     * @param fieldOffset
+     *     the index of the field within the record
+     * @param fieldLength
+     *     the number of bytes in the field
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @return
+     *     the value of the field
+     * @throws IndexOutOfBoundsException
+     *     if the field is outside of the record
+     * @throws NumberFormatException
+     *     if the field is not a zoned decimal
+     * @see #getZoned(int,int)
+     */
+    public BigDecimal getZoned(
+            final int fieldOffset,
+            final int fieldLength,
+            final int scale) {
+        return Numbers.unzoneDecimal(
+                this.buffer,
+                this.index(fieldOffset, fieldLength),
+                fieldLength,
+                scale,
+                this.ebcdic);
+    }
+
+    /**
+     * Gets a big endian two's complement binary field, as written for a
+     * COBOL <code>COMP</code> field.
+     *
+     * @param fieldOffset
+     *     the index of the field within the record
+     * @param fieldLength
+     *     the number of bytes in the field, from 1 to 8
+     * @return
+     *     the value of the field
+     * @throws IndexOutOfBoundsException
+     *     if the field is outside of the record
+     * @throws IllegalArgumentException
+     *     if <code>fieldLength</code> is not from 1 to 8
+     */
+    public long getBinary(final int fieldOffset, final int fieldLength) {
+
+        if (fieldLength < 1 || fieldLength > 8) {
+            throw new IllegalArgumentException(
+                    "A binary field must be 1 to 8 bytes: " + fieldLength);
+        }
+
+        int start = this.index(fieldOffset, fieldLength);
+
+        // the first byte is sign extended
+        long value = this.buffer.get(start);
+        for (int i = start + 1; i < start + fieldLength; i++) {
+            value = (value << 8) | (this.buffer.get(i) & 0xFF);
+        }
+
+        return value;
+    }
+
+    /**
+     * Decodes the record to a <code>String</code>.
+     *
+     * @return
+     *     the characters of the record
+     */
+    @Override
+    public String toString() {
+
+        if (this.buffer == null) {
+            return "";
+        }
+
+        return this.getChars(0, this.length).toString();
+    }
+
+    /**
+     * Converts a field to an absolute index in the buffer.
+     *
+     * @param fieldOffset
+     *     the index of the field within the record
+     * @param fieldLength
+     *     the number of bytes in the field
+     * @return
+     *     the absolute index of the first byte of the field
+     * @throws IndexOutOfBoundsException
+     *     if the field is outside of the record
+     */
+    private int index(final int fieldOffset, final int fieldLength) {
+
+        if (fieldOffset < 0
+                || fieldLength < 0
+                || fieldOffset > this.length - fieldLength) {
+            throw new IndexOutOfBoundsException(
+                    "offset: " + fieldOffset + ", length: " + fieldLength);
+        }
+
+        return this.offset + fieldOffset;
+    }
+
+    private char charAt(final int index) {
+        return this.codec.decode(this.buffer.get(index));
+    }
+
+    private NumberFormatException numberFormatException(
+            final int fieldOffset,
+            final int fieldLength) {
+        return new NumberFormatException(
+                "For input string: \""
+                + this.getChars(fieldOffset, fieldLength) + "\"");
+    }
+}
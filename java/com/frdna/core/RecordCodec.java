@@ -0,0 +1,724 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Reads fixed length records into beans and writes beans into records, as
+ * described by a compiled {@link RecordLayout}.
+ *
+ * Properties are got and set through the {@link FieldAccessor} given for
+ * their field, which reads and writes a record without reflection.  For a
+ * field without an accessor, the getter and setter of the bean are looked
+ * up when the layout is compiled and are invoked by reflection.  Fields are
+ * read straight from the bytes of the record and written straight into the
+ * destination buffer without building intermediate strings for numbers.  A
+ * codec holds no state between records, so one codec can be shared by many
+ * threads.
+ *
+ * Numeric fields are written with a sign: zoned decimals with a
+ * <code>C</code> or <code>D</code> overpunch and packed decimals with a
+ * <code>C</code> or <code>D</code> sign nibble.
+ *
+ * @param <T>
+ *     the type of the beans
+ */
+public final class RecordCodec<T> {
+
+    private static final int STRING = 0;
+
+    private static final int LONG = 1;
+
+    private static final int DECIMAL = 2;
+
+    private static final String[] KINDS = {
+        "display", "zoned", "packed", "binary"
+    };
+
+    private final Constructor<T> constructor;
+    private final Charset charset;
+    private final SingleByteCodec codec;
+    private final boolean ebcdic;
+    private final byte space;
+    private final byte minus;
+    private final byte replacement;
+    private final FieldCodec[] fields;
+    private final int length;
+
+    /**
+     * Compiles a layout.
+     *
+     * @param type
+     *     the type of the beans
+     * @param charset
+     *     the single byte charset of the character and zoned fields
+     * @param layout
+     *     the fields of the layout
+     * @throws IllegalArgumentException
+     *     if the bean has no constructor without arguments, a property
+     *     without an accessor has no getter or setter, or the type of a
+     *     property or accessor cannot hold its field
+     */
+    RecordCodec(
+            final Class<T> type,
+            final Charset charset,
+            final List<RecordLayout.Field> layout) {
+
+        try {
+            this.constructor = type.getDeclaredConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(
+                    type.getName() + " has no constructor without arguments",
+                    e);
+        }
+        this.constructor.setAccessible(true);
+
+        this.charset = charset;
+        this.codec = SingleByteCodec.forCharset(charset);
+        this.ebcdic = (this.codec.encode('0') == 0xF0);
+        this.space = (byte) this.codec.encode(' ');
+        this.minus = (byte) this.codec.encode('-');
+        this.replacement = (byte) this.codec.encode('?');
+
+        this.fields = new FieldCodec[layout.size()];
+        int end = 0;
+        for (int i = 0; i < this.fields.length; i++) {
+            RecordLayout.Field field = layout.get(i);
+            this.fields[i] = new FieldCodec(type, field);
+            end = Math.max(end, field.getOffset() + field.getLength());
+        }
+        this.length = end;
+    }
+
+    /**
+     * Gets the number of bytes in a record, which is the end of the last
+     * field.
+     *
+     * @return
+     *     the length of a record
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Gets the charset the character and zoned fields are written in.
+     *
+     * @return
+     *     the charset
+     */
+    public Charset getCharset() {
+        return this.charset;
+    }
+
+    /**
+     * Reads a record into a new bean.
+     *
+     * @param record
+     *     the record to read
+     * @return
+     *     the bean
+     * @throws NullPointerException
+     *     if <code>record</code> is <code>null</code>
+     * @throws IndexOutOfBoundsException
+     *     if a field is outside of the record
+     * @throws NumberFormatException
+     *     if a numeric field is not valid or does not fit in its property
+     * @throws IllegalStateException
+     *     if the bean cannot be created
+     */
+    public T read(final Record record) {
+
+        Assert.notNull("record", record);
+
+        T bean;
+        try {
+            bean = this.constructor.newInstance();
+        } catch (InstantiationException e) {
+            throw new IllegalStateException(
+                    "Unable to create " + this.constructor.getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(
+                    "Unable to create " + this.constructor.getName(), e);
+        } catch (InvocationTargetException e) {
+            throw RecordCodec.rethrow(e);
+        }
+
+        return this.read(record, bean);
+    }
+
+    /**
+     * Reads a record into an existing bean.  Reusing a bean for every record
+     * avoids creating one per record.
+     *
+     * Records are read with the charset of the record, not the charset of
+     * the layout.
+     *
+     * @param record
+     *     the record to read
+     * @param bean
+     *     the bean the fields are set on
+     * @return
+     *     <code>bean</code>
+     * @throws NullPointerException
+     *     if <code>record</code> or <code>bean</code> is <code>null</code>
+     * @throws IndexOutOfBoundsException
+     *     if a field is outside of the record
+     * @throws NumberFormatException
+     *     if a numeric field is not valid or does not fit in its property
+     */
+    public T read(final Record record, final T bean) {
+
+        Assert.notNull("record", record);
+        Assert.notNull("bean", bean);
+
+        for (FieldCodec field : this.fields) {
+            field.read(record, bean);
+        }
+
+        return bean;
+    }
+
+    /**
+     * Writes a bean as a record into a buffer.  Bytes that are not part of a
+     * field are set to spaces.  Character fields longer than their field
+     * are truncated, and characters the charset cannot encode are written
+     * as <code>?</code>.  A <code>null</code> property is written as spaces
+     * or zero.  The position of the buffer is not changed.
+     *
+     * @param bean
+     *     the bean to write
+     * @param dst
+     *     the buffer the record is written to
+     * @param offset
+     *     the absolute index of the first byte of the record
+     * @return
+     *     the number of bytes written
+     * @throws NullPointerException
+     *     if <code>bean</code> or <code>dst</code> is <code>null</code>
+     * @throws IndexOutOfBoundsException
+     *     if the record does not fit before the limit of <code>dst</code>
+     * @throws NumberFormatException
+     *     if a number does not fit in its field
+     */
+    public int write(final T bean, final ByteBuffer dst, final int offset) {
+
+        Assert.notNull("bean", bean);
+        Assert.notNull("dst", dst);
+
+        if (offset < 0 || offset > dst.limit() - this.length) {
+            throw new IndexOutOfBoundsException(
+                    "offset: " + offset + ", length: " + this.length);
+        }
+
+        for (int i = offset; i < offset + this.length; i++) {
+            dst.put(i, this.space);
+        }
+
+        for (FieldCodec field : this.fields) {
+            field.write(this, bean, dst, offset + field.offset);
+        }
+
+        return this.length;
+    }
+
+    /**
+     * Writes the characters of a string, truncated to a field.
+     */
+    private void encode(
+            final String value,
+            final ByteBuffer dst,
+            final int index,
+            final int fieldLength) {
+
+        if (value == null) {
+            return;
+        }
+
+        int count = Math.min(value.length(), fieldLength);
+        for (int i = 0; i < count; i++) {
+            int b = this.codec.encode(value.charAt(i));
+            dst.put(index + i, (b < 0) ? this.replacement : (byte) b);
+        }
+    }
+
+    /**
+     * Writes a number as digits with leading zeros, preceded by a minus
+     * sign if it is negative.
+     */
+    private void display(
+            final long value,
+            final ByteBuffer dst,
+            final int index,
+            final int fieldLength) {
+
+        if (value >= 0) {
+            Numbers.zone(value, dst, index, fieldLength, this.ebcdic);
+            return;
+        }
+
+        if (fieldLength < 2) {
+            throw new NumberFormatException(
+                    value + " does not fit in " + fieldLength + " bytes");
+        }
+
+        dst.put(index, this.minus);
+        Numbers.zone(value, dst, index + 1, fieldLength - 1, this.ebcdic);
+
+        // replace the overpunched sign with a plain digit
+        int digit = (int) -(value % 10);
+        dst.put(index + fieldLength - 1,
+                (byte) ((this.ebcdic ? 0xF0 : '0') | digit));
+    }
+
+    /**
+     * Removes trailing spaces from a character field.
+     */
+    private static String trim(final CharSequence chars) {
+
+        int end = chars.length();
+        while (end > 0 && chars.charAt(end - 1) == ' ') {
+            end--;
+        }
+
+        return chars.subSequence(0, end).toString();
+    }
+
+    /**
+     * Writes a big endian two's complement binary number.
+     */
+    private static void binary(
+            final long value,
+            final ByteBuffer dst,
+            final int index,
+            final int fieldLength) {
+
+        if (fieldLength < 8) {
+            long limit = 1L << (8 * fieldLength - 1);
+            if (value < -limit || value >= limit) {
+                throw new NumberFormatException(
+                        value + " does not fit in " + fieldLength + " bytes");
+            }
+        }
+
+        long remaining = value;
+        for (int i = index + fieldLength - 1; i >= index; i--) {
+            dst.put(i, (byte) remaining);
+            remaining >>= 8;
+        }
+    }
+
+    private static Object invoke(
+            final Method method,
+            final Object bean,
+            final Object... arguments) {
+
+        try {
+            return method.invoke(bean, arguments);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(
+                    "Unable to call " + method.getName(), e);
+        } catch (InvocationTargetException e) {
+            throw RecordCodec.rethrow(e);
+        }
+    }
+
+    /**
+     * Rethrows the cause of an exception thrown by a bean.
+     */
+    private static RuntimeException rethrow(
+            final InvocationTargetException e) {
+
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+
+        throw new IllegalStateException(cause.getMessage(), cause);
+    }
+
+    /**
+     * Reads and writes one field of a record.
+     */
+    private static final class FieldCodec {
+
+        private final String property;
+        private final int kind;
+        private final int offset;
+        private final int length;
+        private final int scale;
+        private final int type;
+        private final FieldAccessor.OfLong<Object> longs;
+        private final FieldAccessor.OfString<Object> strings;
+        private final FieldAccessor.OfDecimal<Object> decimals;
+
+        @SuppressWarnings("unchecked")
+        FieldCodec(final Class<?> beanType, final RecordLayout.Field field) {
+
+            this.property = field.getProperty();
+            this.kind = field.getKind();
+            this.offset = field.getOffset();
+            this.length = field.getLength();
+            this.scale = field.getScale();
+
+            // the layout only accepts accessors of a supertype of the beans
+            FieldAccessor<Object> accessor =
+                    (FieldAccessor<Object>) field.getAccessor();
+            if (accessor == null) {
+                accessor = FieldCodec.reflect(beanType, this.property);
+            }
+
+            if (accessor instanceof FieldAccessor.OfLong<?>) {
+                this.type = RecordCodec.LONG;
+            } else if (accessor instanceof FieldAccessor.OfString<?>) {
+                this.type = RecordCodec.STRING;
+            } else {
+                this.type = RecordCodec.DECIMAL;
+            }
+
+            this.longs = (this.type == RecordCodec.LONG)
+                    ? (FieldAccessor.OfLong<Object>) accessor
+                    : null;
+            this.strings = (this.type == RecordCodec.STRING)
+                    ? (FieldAccessor.OfString<Object>) accessor
+                    : null;
+            this.decimals = (this.type == RecordCodec.DECIMAL)
+                    ? (FieldAccessor.OfDecimal<Object>) accessor
+                    : null;
+
+            this.check();
+        }
+
+        /**
+         * Reads the field and sets its property.
+         */
+        void read(final Record record, final Object bean) {
+
+            switch (this.type) {
+            case RecordCodec.STRING:
+                this.strings.setString(bean, RecordCodec.trim(
+                        record.getChars(this.offset, this.length)));
+                break;
+            case RecordCodec.LONG:
+                this.longs.setLong(bean, this.readLong(record));
+                break;
+            default:
+                this.decimals.setDecimal(bean,
+                        (this.kind == RecordLayout.ZONED)
+                        ? record.getZoned(this.offset, this.length, this.scale)
+                        : record.getPacked(
+                                this.offset, this.length, this.scale));
+                break;
+            }
+        }
+
+        /**
+         * Gets the property and writes it into the field.
+         */
+        void write(
+                final RecordCodec<?> codec,
+                final Object bean,
+                final ByteBuffer dst,
+                final int index) {
+
+            switch (this.type) {
+            case RecordCodec.STRING:
+                codec.encode(
+                        this.strings.getString(bean), dst, index, this.length);
+                break;
+            case RecordCodec.LONG:
+                this.writeLong(codec, this.longs.getLong(bean), dst, index);
+                break;
+            default:
+                this.writeDecimal(
+                        codec, this.decimals.getDecimal(bean), dst, index);
+                break;
+            }
+        }
+
+        private long readLong(final Record record) {
+
+            switch (this.kind) {
+            case RecordLayout.DISPLAY:
+                return record.getLong(this.offset, this.length);
+            case RecordLayout.ZONED:
+                return record.getZoned(this.offset, this.length);
+            case RecordLayout.PACKED:
+                return record.getPacked(this.offset, this.length);
+            default:
+                return record.getBinary(this.offset, this.length);
+            }
+        }
+
+        private void writeLong(
+                final RecordCodec<?> codec,
+                final long value,
+                final ByteBuffer dst,
+                final int index) {
+
+            switch (this.kind) {
+            case RecordLayout.DISPLAY:
+                codec.display(value, dst, index, this.length);
+                break;
+            case RecordLayout.ZONED:
+                Numbers.zoneSigned(
+                        value, dst, index, this.length, codec.ebcdic);
+                break;
+            case RecordLayout.PACKED:
+                Numbers.packSigned(value, dst, index, 2 * this.length - 1);
+                break;
+            default:
+                RecordCodec.binary(value, dst, index, this.length);
+                break;
+            }
+        }
+
+        private void writeDecimal(
+                final RecordCodec<?> codec,
+                final BigDecimal value,
+                final ByteBuffer dst,
+                final int index) {
+
+            BigDecimal decimal = (value == null) ? BigDecimal.ZERO : value;
+
+            if (this.kind == RecordLayout.PACKED) {
+                Numbers.packSigned(
+                        decimal, dst, index, 2 * this.length - 1, this.scale);
+            } else {
+                Numbers.zoneSigned(decimal, dst, index, this.length,
+                        this.scale, codec.ebcdic);
+            }
+        }
+
+        /**
+         * Checks that the type of the property can hold the field.
+         */
+        private void check() {
+
+            boolean supported;
+            switch (this.type) {
+            case RecordCodec.STRING:
+                supported = this.kind == RecordLayout.DISPLAY;
+                break;
+            case RecordCodec.LONG:
+                supported = this.scale == 0;
+                break;
+            default:
+                supported = this.kind == RecordLayout.ZONED
+                        || this.kind == RecordLayout.PACKED;
+                break;
+            }
+
+            if (!supported) {
+                throw new IllegalArgumentException(
+                        "Property " + this.property + " cannot hold a "
+                        + RecordCodec.KINDS[this.kind] + " field"
+                        + ((this.scale == 0) ? "" : " with a scale"));
+            }
+        }
+
+        /**
+         * Creates an accessor that calls the getter and setter of a
+         * property by reflection.
+         */
+        private static FieldAccessor<Object> reflect(
+                final Class<?> beanType,
+                final String property) {
+
+            Method getter = FieldCodec.getter(beanType, property);
+            Class<?> propertyType = getter.getReturnType();
+            Method setter = FieldCodec.setter(beanType, property, propertyType);
+            getter.setAccessible(true);
+            setter.setAccessible(true);
+
+            if (propertyType == String.class) {
+                return new ReflectiveString(getter, setter);
+            }
+
+            if (propertyType == BigDecimal.class) {
+                return new ReflectiveDecimal(getter, setter);
+            }
+
+            boolean isInt = propertyType == int.class
+                    || propertyType == Integer.class;
+            if (isInt
+                    || propertyType == long.class
+                    || propertyType == Long.class) {
+                return new ReflectiveLong(getter, setter, property, isInt);
+            }
+
+            throw new IllegalArgumentException(
+                    "Property " + property + " of type "
+                    + propertyType.getName() + " is not supported");
+        }
+
+        private static Method getter(
+                final Class<?> beanType,
+                final String property) {
+
+            String suffix = FieldCodec.capitalize(property);
+            try {
+                return beanType.getMethod("get" + suffix);
+            } catch (NoSuchMethodException e) {
+                try {
+                    return beanType.getMethod("is" + suffix);
+                } catch (NoSuchMethodException e2) {
+                    throw new IllegalArgumentException(
+                            beanType.getName() + " has no getter for "
+                            + property, e2);
+                }
+            }
+        }
+
+        private static Method setter(
+                final Class<?> beanType,
+                final String property,
+                final Class<?> propertyType) {
+
+            try {
+                return beanType.getMethod(
+                        "set" + FieldCodec.capitalize(property), propertyType);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException(
+                        beanType.getName() + " has no setter for " + property,
+                        e);
+            }
+        }
+
+        private static String capitalize(final String property) {
+
+            if (property.length() == 0) {
+                throw new IllegalArgumentException(
+                        "A property name is required");
+            }
+
+            return Character.toUpperCase(property.charAt(0))
+                    + property.substring(1);
+        }
+    }
+
+    /**
+     * Gets and sets an <code>int</code> or <code>long</code> property by
+     * reflection.
+     */
+    private static final class ReflectiveLong
+            extends FieldAccessor.OfLong<Object> {
+
+        private final Method getter;
+        private final Method setter;
+        private final String property;
+        private final boolean isInt;
+
+        ReflectiveLong(
+                final Method getter,
+                final Method setter,
+                final String property,
+                final boolean isInt) {
+            this.getter = getter;
+            this.setter = setter;
+            this.property = property;
+            this.isInt = isInt;
+        }
+
+        @Override
+        public long getLong(final Object bean) {
+            Number value = (Number) RecordCodec.invoke(this.getter, bean);
+            return (value == null) ? 0 : value.longValue();
+        }
+
+        @Override
+        public void setLong(final Object bean, final long value) {
+
+            if (!this.isInt) {
+                RecordCodec.invoke(this.setter, bean, Long.valueOf(value));
+                return;
+            }
+
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw new NumberFormatException(
+                        value + " does not fit in " + this.property);
+            }
+
+            RecordCodec.invoke(this.setter, bean, Integer.valueOf((int) value));
+        }
+    }
+
+    /**
+     * Gets and sets a <code>String</code> property by reflection.
+     */
+    private static final class ReflectiveString
+            extends FieldAccessor.OfString<Object> {
+
+        private final Method getter;
+        private final Method setter;
+
+        ReflectiveString(final Method getter, final Method setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        public String getString(final Object bean) {
+            return (String) RecordCodec.invoke(this.getter, bean);
+        }
+
+        @Override
+        public void setString(final Object bean, final String value) {
+            RecordCodec.invoke(this.setter, bean, value);
+        }
+    }
+
+    /**
+     * Gets and sets a <code>BigDecimal</code> property by reflection.
+     */
+    private static final class ReflectiveDecimal
+            extends FieldAccessor.OfDecimal<Object> {
+
+        private final Method getter;
+        private final Method setter;
+
+        ReflectiveDecimal(final Method getter, final Method setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        public BigDecimal getDecimal(final Object bean) {
+            return (BigDecimal) RecordCodec.invoke(this.getter, bean);
+        }
+
+        @Override
+        public void setDecimal(final Object bean, final BigDecimal value) {
+            RecordCodec.invoke(this.setter, bean, value);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily reads delimited records from a channel.
+ *
+ * Only the record being assembled is held in memory.  The byte, character
+ * and record buffers are allocated once and reused for every record.  The
+ * channel is closed when the last record has been read or when the iterator
+ * is closed.
+ */
+public final class RecordIterator
+        implements Iterator<String>, Iterable<String>, Closeable {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final CharsetDecoder decoder;
+    private final String delimiter;
+    private final ByteBuffer bytes = ByteBuffer.allocate(
+            RecordIterator.BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(
+            RecordIterator.BUFFER_SIZE);
+    private final StringBuilder record = new StringBuilder();
+    private String next = null;
+    private boolean endOfInput = false;
+    private boolean flushed = false;
+    private boolean closed = false;
+
+    /**
+     * Creates an iterator over the lines read from <code>channel</code>.
+     *
+     * Lines end with <code>\n</code> or <code>\r\n</code> and the line
+     * terminator is not included in the line.
+     *
+     * @param channel
+     *     the channel the lines are read from
+     * @param charset
+     *     the charset used to decode the channel
+     * @throws NullPointerException
+     *     if <code>channel</code> or <code>charset</code> is <code>null</code>
+     */
+    public RecordIterator(
+            final ReadableByteChannel channel,
+            final Charset charset) {
+        this(channel, charset, null);
+    }
+
+    /**
+     * Creates an iterator over the records read from <code>channel</code>.
+     *
+     * @param channel
+     *     the channel the records are read from
+     * @param charset
+     *     the charset used to decode the channel
+     * @param delimiter
+     *     the characters that separate records or <code>null</code> to read
+     *     lines
+     * @throws NullPointerException
+     *     if <code>channel</code> or <code>charset</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>delimiter</code> is empty
+     */
+    public RecordIterator(
+            final ReadableByteChannel channel,
+            final Charset charset,
+            final CharSequence delimiter) {
+
+        Assert.notNull("channel", channel);
+        Assert.notNull("charset", charset);
+
+        if (delimiter != null && delimiter.length() == 0) {
+            throw new IllegalArgumentException("delimiter must not be empty");
+        }
+
+        this.channel = channel;
+        this.decoder = charset.newDecoder();
+
+        if (delimiter == null) {
+            this.delimiter = null;
+        } else {
+            this.delimiter = delimiter.toString();
+        }
+
+        // start with nothing decoded
+        this.chars.flip();
+    }
+
+    /**
+     * Returns this iterator so that it can be used in a for each loop.
+     *
+     * @return
+     *     this iterator
+     */
+    public Iterator<String> iterator() {
+        return this;
+    }
+
+    /**
+     * Tests if another record can be read.
+     *
+     * @return
+     *     <code>true</code> if there is another record
+     * @throws IoException
+     *     if the channel cannot be read or decoded
+     */
+    public boolean hasNext() {
+
+        if (this.next == null && !this.closed) {
+            this.next = this.readRecord();
+            if (this.next == null) {
+                this.close();
+            }
+        }
+
+        return (this.next != null);
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return
+     *     the next record without its delimiter
+     * @throws NoSuchElementException
+     *     if there are no more records
+     * @throws IoException
+     *     if the channel cannot be read or decoded
+     */
+    public String next() {
+
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        String current = this.next;
+        this.next = null;
+        return current;
+    }
+
+    /**
+     * Records cannot be removed.
+     *
+     * @throws UnsupportedOperationException
+     *     always
+     */
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Closes the channel.  No more records are returned once the iterator is
+     * closed.
+     */
+    public void close() {
+
+        if (this.closed) {
+            return;
+        }
+
+        this.closed = true;
+        this.next = null;
+        Io.closeQuietly(this.channel);
+    }
+
+    /**
+     * Assembles the next record from the decoded characters.
+     *
+     * @return
+     *     the next record or <code>null</code> if the input is exhausted
+     */
+    private String readRecord() {
+
+        this.record.setLength(0);
+        boolean found = false;
+
+        while (!found) {
+            if (!this.chars.hasRemaining() && !this.fill()) {
+                break;
+            }
+
+            found = this.scan();
+        }
+
+        if (found) {
+            return this.record.toString();
+        }
+
+        if (this.record.length() == 0) {
+            return null;
+        }
+
+        // the last record does not have a delimiter
+        return this.record.toString();
+    }
+
+    /**
+     * Moves decoded characters to the record until a delimiter is found or the
+     * characters are used up.
+     *
+     * @return
+     *     <code>true</code> if the end of the record was found
+     */
+    private boolean scan() {
+
+        while (this.chars.hasRemaining()) {
+            char c = this.chars.get();
+            this.record.append(c);
+
+            if (this.delimiter == null) {
+                if (c == '\n') {
+                    int length = this.record.length() - 1;
+                    if (length > 0 && this.record.charAt(length - 1) == '\r') {
+                        length--;
+                    }
+                    this.record.setLength(length);
+                    return true;
+                }
+            } else if (this.endsWithDelimiter(c)) {
+                this.record.setLength(
+                        this.record.length() - this.delimiter.length());
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Tests if the record ends with the delimiter.
+     *
+     * @param last
+     *     the last character added to the record
+     * @return
+     *     <code>true</code> if the record ends with the delimiter
+     */
+    private boolean endsWithDelimiter(final char last) {
+
+        int length = this.delimiter.length();
+        if (last != this.delimiter.charAt(length - 1)) {
+            return false;
+        }
+
+        int offset = this.record.length() - length;
+        if (offset < 0) {
+            return false;
+        }
+
+        for (int i = 0; i < length - 1; i++) {
+            if (this.record.charAt(offset + i) != this.delimiter.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads and decodes more characters from the channel.
+     *
+     * @return
+     *     <code>false</code> when there are no more characters
+     */
+    private boolean fill() {
+
+        this.chars.clear();
+
+        try {
+            while (this.chars.position() == 0 && !this.flushed) {
+                if (!this.endOfInput && this.channel.read(this.bytes) == -1) {
+                    this.endOfInput = true;
+                }
+
+                this.bytes.flip();
+                CoderResult result = this.decoder.decode(
+                        this.bytes, this.chars, this.endOfInput);
+                if (result.isError()) {
+                    result.throwException();
+                }
+
+                if (this.endOfInput && result.isUnderflow()) {
+                    result = this.decoder.flush(this.chars);
+                    if (result.isError()) {
+                        result.throwException();
+                    }
+                    this.flushed = result.isUnderflow();
+                }
+
+                // keep any partial character for the next read
+                this.bytes.compact();
+            }
+        } catch (CharacterCodingException e) {
+            throw new IoException("Unable to decode " + this.channel, e);
+        } catch (IOException e) {
+            throw new IoException("Unable to read " + this.channel, e);
+        }
+
+        this.chars.flip();
+        return this.chars.hasRemaining();
+    }
+}
@@ -0,0 +1,385 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes where the fields of a fixed length record are and how they are
+ * encoded, like a COBOL copybook, and maps them to the properties of a bean.
+ *
+ * A layout is built by adding fields and is then compiled once into a
+ * {@link RecordCodec}.  The codec reads records into beans and writes beans
+ * into buffers.
+ *
+ * <pre>
+ * RecordCodec&lt;Account&gt; codec =
+ *         new RecordLayout&lt;Account&gt;(
+ *                 Account.class, Charset.forName("Cp037"))
+ *         .display("name", 0, 20)
+ *         .zoned("branch", 20, 3)
+ *         .packed("balance", 23, 6, 2)
+ *         .binary("id", 29, 4)
+ *         .compile();
+ * </pre>
+ *
+ * The properties are got and set by reflection unless a field is given a
+ * {@link FieldAccessor}.
+ *
+ * A layout is not thread safe, but the codec compiled from it is.
+ *
+ * @param <T>
+ *     the type of the beans
+ */
+public final class RecordLayout<T> {
+
+    static final int DISPLAY = 0;
+
+    static final int ZONED = 1;
+
+    static final int PACKED = 2;
+
+    static final int BINARY = 3;
+
+    private final Class<T> type;
+    private final Charset charset;
+    private final List<Field> fields = new ArrayList<Field>();
+
+    /**
+     * Creates an empty layout.
+     *
+     * @param type
+     *     the type of the beans, which must have a constructor without
+     *     arguments
+     * @param charset
+     *     the single byte charset of the character and zoned fields
+     * @throws NullPointerException
+     *     if <code>type</code> or <code>charset</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>charset</code> is not a single byte charset
+     */
+    public RecordLayout(final Class<T> type, final Charset charset) {
+
+        Assert.notNull("type", type);
+        Assert.notNull("charset", charset);
+
+        if (SingleByteCodec.forCharset(charset) == null) {
+            throw new IllegalArgumentException(
+                    charset + " is not a single byte charset");
+        }
+
+        this.type = type;
+        this.charset = charset;
+    }
+
+    /**
+     * Adds a display field.  A <code>String</code> property is read with
+     * trailing spaces removed and written padded with spaces.  An
+     * <code>int</code> or <code>long</code> property is read as a number
+     * that may be surrounded by spaces and preceded by a sign, and written
+     * with leading zeros.
+     *
+     * @param property
+     *     the name of the bean property
+     * @param offset
+     *     the index of the field within the record
+     * @param length
+     *     the number of bytes in the field
+     * @return
+     *     this layout
+     * @throws NullPointerException
+     *     if <code>property</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>offset</code> is negative or <code>length</code> is less
+     *     than 1
+     */
+    public RecordLayout<T> display(
+            final String property,
+            final int offset,
+            final int length) {
+        return this.add(property, RecordLayout.DISPLAY, offset, length, 0);
+    }
+
+    /**
+     * Adds a zoned decimal field, one digit per byte with the sign
+     * overpunched on the last digit.
+     *
+     * @param property
+     *     the name of the bean property
+     * @param offset
+     *     the index of the field within the record
+     * @param length
+     *     the number of bytes in the field
+     * @return
+     *     this layout
+     * @throws NullPointerException
+     *     if <code>property</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>offset</code> is negative or <code>length</code> is less
+     *     than 1
+     */
+    public RecordLayout<T> zoned(
+            final String property,
+            final int offset,
+            final int length) {
+        return this.add(property, RecordLayout.ZONED, offset, length, 0);
+    }
+
+    /**
+     * Adds a zoned decimal field with an implied decimal point, for a
+     * <code>BigDecimal</code> property.
+     *
+     * @param property
+     *     the name of the bean property
+     * @param offset
+     *     the index of the field within the record
+     * @param length
+     *     the number of bytes in the field
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @return
+     *     this layout
+     * @throws NullPointerException
+     *     if <code>property</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>offset</code> is negative, <code>length</code> is less
+     *     than 1 or <code>scale</code> is negative
+     */
+    public RecordLayout<T> zoned(
+            final String property,
+            final int offset,
+            final int length,
+            final int scale) {
+        return this.add(property, RecordLayout.ZONED, offset, length, scale);
+    }
+
+    /**
+     * Adds a packed decimal field.
+     *
+     * @param property
+     *     the name of the bean property
+     * @param offset
+     *     the index of the field within the record
+     * @param length
+     *     the number of bytes in the field
+     * @return
+     *     this layout
+     * @throws NullPointerException
+     *     if <code>property</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>offset</code> is negative or <code>length</code> is less
+     *     than 1
+     */
+    public RecordLayout<T> packed(
+            final String property,
+            final int offset,
+            final int length) {
+        return this.add(property, RecordLayout.PACKED, offset, length, 0);
+    }
+
+    /**
+     * Adds a packed decimal field with an implied decimal point, for a
+     * <code>BigDecimal</code> property.
+     *
+     * @param property
+     *     the name of the bean property
+     * @param offset
+     *     the index of the field within the record
+     * @param length
+     *     the number of bytes in the field
+     * @param scale
+     *     the number of digits after the implied decimal point
+     * @return
+     *     this layout
+     * @throws NullPointerException
+     *     if <code>property</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>offset</code> is negative, <code>length</code> is less
+     *     than 1 or <code>scale</code> is negative
+     */
+    public RecordLayout<T> packed(
+            final String property,
+            final int offset,
+            final int length,
+            final int scale) {
+        return this.add(property, RecordLayout.PACKED, offset, length, scale);
+    }
+
+    /**
+     * Adds a big endian two's complement binary field.
+     *
+     * @param property
+     *     the name of the bean property
+     * @param offset
+     *     the index of the field within the record
+     * @param length
+     *     the number of bytes in the field, from 1 to 8
+     * @return
+     *     this layout
+     * @throws NullPointerException
+     *     if <code>property</code> is <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>offset</code> is negative or <code>length</code> is not
+     *     from 1 to 8
+     */
+    public RecordLayout<T> binary(
+            final String property,
+            final int offset,
+            final int length) {
+
+        if (length > 8) {
+            throw new IllegalArgumentException(
+                    "A binary field must be 1 to 8 bytes: " + length);
+        }
+
+        return this.add(property, RecordLayout.BINARY, offset, length, 0);
+    }
+
+    /**
+     * Sets the accessor of the field added last, so its property is got and
+     * set by calling the accessor instead of its getter and setter by
+     * reflection.
+     *
+     * @param accessor
+     *     the accessor of the property, of the kind that matches the field
+     * @return
+     *     this layout
+     * @throws NullPointerException
+     *     if <code>accessor</code> is <code>null</code>
+     * @throws IllegalStateException
+     *     if no field has been added
+     * @see FieldAccessor
+     */
+    public RecordLayout<T> accessor(final FieldAccessor<? super T> accessor) {
+
+        Assert.notNull("accessor", accessor);
+
+        if (this.fields.isEmpty()) {
+            throw new IllegalStateException(
+                    "A field must be added before its accessor");
+        }
+
+        int last = this.fields.size() - 1;
+        Field field = this.fields.get(last);
+        this.fields.set(last, new Field(field.property, field.kind,
+                field.offset, field.length, field.scale, accessor));
+        return this;
+    }
+
+    /**
+     * Compiles the layout into a codec.  The accessors of every property are
+     * looked up once here, so no lookups are done for each record.
+     *
+     * @return
+     *     the codec
+     * @throws IllegalArgumentException
+     *     if the bean has no constructor without arguments, a property
+     *     without an accessor has no getter or setter, or the type of a
+     *     property or accessor cannot hold its field
+     */
+    public RecordCodec<T> compile() {
+        return new RecordCodec<T>(this.type, this.charset, this.fields);
+    }
+
+    private RecordLayout<T> add(
+            final String property,
+            final int kind,
+            final int offset,
+            final int length,
+            final int scale) {
+
+        Assert.notNull("property", property);
+
+        if (offset < 0) {
+            throw new IllegalArgumentException(
+                    "offset must not be negative: " + offset);
+        }
+
+        if (length < 1) {
+            throw new IllegalArgumentException(
+                    "length must be at least 1: " + length);
+        }
+
+        if (scale < 0) {
+            throw new IllegalArgumentException(
+                    "scale must not be negative: " + scale);
+        }
+
+        this.fields.add(
+                new Field(property, kind, offset, length, scale, null));
+        return this;
+    }
+
+    /**
+     * A field of a layout.
+     */
+    static final class Field {
+
+        private final String property;
+        private final int kind;
+        private final int offset;
+        private final int length;
+        private final int scale;
+        private final FieldAccessor<?> accessor;
+
+        Field(
+                final String property,
+                final int kind,
+                final int offset,
+                final int length,
+                final int scale,
+                final FieldAccessor<?> accessor) {
+            this.property = property;
+            this.kind = kind;
+            this.offset = offset;
+            this.length = length;
+            this.scale = scale;
+            this.accessor = accessor;
+        }
+
+        String getProperty() {
+            return this.property;
+        }
+
+        int getKind() {
+            return this.kind;
+        }
+
+        int getOffset() {
+            return this.offset;
+        }
+
+        int getLength() {
+            return this.length;
+        }
+
+        int getScale() {
+            return this.scale;
+        }
+
+        FieldAccessor<?> getAccessor() {
+            return this.accessor;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+/**
+ * A match of a regular expression found in a file by a
+ * {@link MatchIterator}.
+ */
+public final class RegexMatch {
+
+    private final long lineNumber;
+    private final long lineOffset;
+    private final int start;
+    private final int end;
+    private final String text;
+
+    /**
+     * Creates a match.
+     *
+     * @param lineNumber
+     *     the number of the line the match is in, starting at one
+     * @param lineOffset
+     *     the offset in the file, in bytes, of the start of the line
+     * @param start
+     *     the index in the line of the first character of the match
+     * @param end
+     *     the index in the line after the last character of the match
+     * @param text
+     *     the matched characters
+     */
+    public RegexMatch(
+            final long lineNumber,
+            final long lineOffset,
+            final int start,
+            final int end,
+            final String text) {
+        this.lineNumber = lineNumber;
+        this.lineOffset = lineOffset;
+        this.start = start;
+        this.end = end;
+        this.text = text;
+    }
+
+    /**
+     * Gets the number of the line the match is in.
+     *
+     * @return
+     *     the line number, starting at one
+     */
+    public long getLineNumber() {
+        return this.lineNumber;
+    }
+
+    /**
+     * Gets the offset in the file of the start of the line the match is in.
+     *
+     * @return
+     *     the offset in bytes
+     */
+    public long getLineOffset() {
+        return this.lineOffset;
+    }
+
+    /**
+     * Gets the index in the line of the first character of the match.
+     *
+     * @return
+     *     the start index
+     */
+    public int getStart() {
+        return this.start;
+    }
+
+    /**
+     * Gets the index in the line after the last character of the match.
+     *
+     * @return
+     *     the end index
+     */
+    public int getEnd() {
+        return this.end;
+    }
+
+    /**
+     * Gets the matched characters.
+     *
+     * @return
+     *     the text of the match
+     */
+    public String getText() {
+        return this.text;
+    }
+
+    /**
+     * Describes the match.
+     *
+     * @return
+     *     the line number, position and text of the match
+     */
+    @Override
+    public String toString() {
+        return this.lineNumber + ":" + this.start + ": " + this.text;
+    }
+}
@@ -0,0 +1,384 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.UnmappableCharacterException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Decodes and encodes a single byte charset, such as Cp037, Cp1047, Cp500 or
+ * ISO-8859-1, through lookup tables.
+ *
+ * The tables are built once per charset from the JDK charset and shared, so
+ * there is no per call setup.  A byte that the charset does not map decodes
+ * to {@link #UNMAPPED}.
+ */
+public final class SingleByteCodec {
+
+    /**
+     * The character a byte that the charset does not map decodes to.
+     */
+    public static final char UNMAPPED = '\uFFFD';
+
+    private static final int TABLE_SIZE = 256;
+
+    // the longest run of direct bytes decoded in place rather than staged
+    private static final int MAX_UNSTAGED_LENGTH = 256;
+
+    private static final ConcurrentMap<Charset, SingleByteCodec> CODECS =
+            new ConcurrentHashMap<Charset, SingleByteCodec>();
+
+    // cached for charsets that are not single byte
+    private static final SingleByteCodec NONE =
+            new SingleByteCodec(null, null, null);
+
+    private final Charset charset;
+    private final char[] decodeTable;
+    private final short[][] encodeTable;
+    private final boolean complete;
+
+    private SingleByteCodec(
+            final Charset charset,
+            final char[] decodeTable,
+            final short[][] encodeTable) {
+
+        this.charset = charset;
+        this.decodeTable = decodeTable;
+        this.encodeTable = encodeTable;
+
+        // every byte is mapped, so decoding never has to check for UNMAPPED
+        boolean mapped = (decodeTable != null);
+        for (int i = 0; mapped && i < decodeTable.length; i++) {
+            mapped = (decodeTable[i] != SingleByteCodec.UNMAPPED);
+        }
+        this.complete = mapped;
+    }
+
+    /**
+     * Gets the codec for a charset.
+     *
+     * @param charset
+     *     the charset to get the codec for
+     * @return
+     *     the codec or <code>null</code> if <code>charset</code> does not
+     *     encode every character in a single byte
+     * @throws NullPointerException
+     *     if <code>charset</code> is <code>null</code>
+     */
+    public static SingleByteCodec forCharset(final Charset charset) {
+
+        Assert.notNull("charset", charset);
+
+        SingleByteCodec codec = SingleByteCodec.CODECS.get(charset);
+        if (codec == null) {
+            codec = SingleByteCodec.build(charset);
+            SingleByteCodec.CODECS.putIfAbsent(charset, codec);
+        }
+
+        if (codec == SingleByteCodec.NONE) {
+            return null;
+        }
+
+        return codec;
+    }
+
+    /**
+     * Gets the charset of this codec.
+     *
+     * @return
+     *     the charset
+     */
+    public Charset getCharset() {
+        return this.charset;
+    }
+
+    /**
+     * Decodes a byte.
+     *
+     * @param b
+     *     the byte to decode
+     * @return
+     *     the decoded character or {@link #UNMAPPED}
+     */
+    public char decode(final byte b) {
+        return this.decodeTable[b & 0xFF];
+    }
+
+    /**
+     * Encodes a character.
+     *
+     * @param c
+     *     the character to encode
+     * @return
+     *     the encoded byte as a value from 0 to 255, or <code>-1</code> if
+     *     the charset does not map <code>c</code>
+     */
+    public int encode(final char c) {
+
+        short[] page = this.encodeTable[c >>> 8];
+        if (page == null) {
+            return -1;
+        }
+
+        return page[c & 0xFF];
+    }
+
+    /**
+     * Decodes bytes from an array into a character array.
+     *
+     * @param src
+     *     the bytes to decode
+     * @param srcOffset
+     *     the index of the first byte to decode
+     * @param dst
+     *     the array the characters are written to
+     * @param dstOffset
+     *     the index the first character is written to
+     * @param length
+     *     the number of bytes to decode
+     * @throws MalformedInputException
+     *     if the charset does not map one of the bytes
+     * @throws IndexOutOfBoundsException
+     *     if a range is outside of its array
+     */
+    public void decode(
+            final byte[] src,
+            final int srcOffset,
+            final char[] dst,
+            final int dstOffset,
+            final int length) throws MalformedInputException {
+
+        if (srcOffset < 0 || length < 0 || dstOffset < 0
+                || srcOffset > src.length - length
+                || dstOffset > dst.length - length) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (this.decodeMapped(src, srcOffset, dst, dstOffset, length)
+                < length) {
+            throw new MalformedInputException(1);
+        }
+    }
+
+    /**
+     * Decodes as many bytes as fit from one buffer into another.
+     *
+     * The positions of both buffers are advanced past the bytes decoded.  If
+     * a byte cannot be decoded, the source is left positioned at that byte
+     * and the destination after the characters decoded before it.
+     *
+     * @param src
+     *     the bytes to decode
+     * @param dst
+     *     the buffer the characters are written to
+     * @throws CharacterCodingException
+     *     if the charset does not map one of the bytes
+     */
+    public void decode(final ByteBuffer src, final CharBuffer dst)
+            throws CharacterCodingException {
+
+        int length = Math.min(src.remaining(), dst.remaining());
+
+        if (src.hasArray() && dst.hasArray()) {
+            int decoded = this.decodeMapped(
+                    src.array(),
+                    src.arrayOffset() + src.position(),
+                    dst.array(),
+                    dst.arrayOffset() + dst.position(),
+                    length);
+            src.position(src.position() + decoded);
+            dst.position(dst.position() + decoded);
+            if (decoded < length) {
+                throw new MalformedInputException(1);
+            }
+            return;
+        }
+
+        char[] table = this.decodeTable;
+
+        if (length <= SingleByteCodec.MAX_UNSTAGED_LENGTH) {
+            int position = src.position();
+            for (int i = 0; i < length; i++) {
+                char c = table[src.get(position + i) & 0xFF];
+                if (c == SingleByteCodec.UNMAPPED) {
+                    src.position(position + i);
+                    throw new MalformedInputException(1);
+                }
+                dst.put(c);
+            }
+            src.position(position + length);
+            return;
+        }
+
+        // bulk copy longer runs of direct and mapped bytes out through a
+        // pooled buffer before decoding them
+        ByteBuffer staging = BufferPool.bytes();
+
+        try {
+            byte[] bytes = staging.array();
+            int offset = staging.arrayOffset();
+
+            while (length > 0) {
+                int count = Math.min(length, staging.capacity());
+                src.get(bytes, offset, count);
+
+                for (int i = 0; i < count; i++) {
+                    char c = table[bytes[offset + i] & 0xFF];
+                    if (c == SingleByteCodec.UNMAPPED) {
+                        src.position(src.position() - count + i);
+                        throw new MalformedInputException(1);
+                    }
+                    dst.put(c);
+                }
+
+                length -= count;
+            }
+        } finally {
+            BufferPool.release(staging);
+        }
+    }
+
+    /**
+     * Encodes as many characters as fit from one buffer into another.
+     *
+     * The positions of both buffers are advanced past the characters encoded.
+     * If a character cannot be encoded, the source is left positioned at
+     * that character.
+     *
+     * @param src
+     *     the characters to encode
+     * @param dst
+     *     the buffer the bytes are written to
+     * @throws CharacterCodingException
+     *     if the charset does not map one of the characters
+     */
+    public void encode(final CharBuffer src, final ByteBuffer dst)
+            throws CharacterCodingException {
+
+        int length = Math.min(src.remaining(), dst.remaining());
+
+        for (int i = 0; i < length; i++) {
+            char c = src.get();
+            int b = this.encode(c);
+            if (b < 0) {
+                src.position(src.position() - 1);
+                throw new UnmappableCharacterException(1);
+            }
+            dst.put((byte) b);
+        }
+    }
+
+    /**
+     * Decodes bytes from an array into a character array, stopping at the
+     * first byte that the charset does not map.  The ranges have been
+     * checked.
+     *
+     * @return
+     *     the number of bytes decoded, which is less than
+     *     <code>length</code> if a byte is not mapped
+     */
+    private int decodeMapped(
+            final byte[] src,
+            final int srcOffset,
+            final char[] dst,
+            final int dstOffset,
+            final int length) {
+
+        char[] table = this.decodeTable;
+
+        if (this.complete) {
+            for (int i = 0; i < length; i++) {
+                dst[dstOffset + i] = table[src[srcOffset + i] & 0xFF];
+            }
+            return length;
+        }
+
+        for (int i = 0; i < length; i++) {
+            char c = table[src[srcOffset + i] & 0xFF];
+            if (c == SingleByteCodec.UNMAPPED) {
+                return i;
+            }
+            dst[dstOffset + i] = c;
+        }
+
+        return length;
+    }
+
+    /**
+     * Builds the tables for a charset.
+     *
+     * @param charset
+     *     the charset to build the tables for
+     * @return
+     *     the codec or {@link #NONE} if <code>charset</code> is not a single
+     *     byte charset
+     */
+    private static SingleByteCodec build(final Charset charset) {
+
+        if (!charset.canEncode()
+                || charset.newEncoder().maxBytesPerChar() != 1.0f) {
+            return SingleByteCodec.NONE;
+        }
+
+        CharsetDecoder decoder = charset.newDecoder();
+        char[] decodeTable = new char[SingleByteCodec.TABLE_SIZE];
+        short[][] encodeTable = new short[SingleByteCodec.TABLE_SIZE][];
+        byte[] b = new byte[1];
+
+        for (int i = 0; i < SingleByteCodec.TABLE_SIZE; i++) {
+            b[0] = (byte) i;
+            try {
+                CharBuffer decoded = decoder.decode(ByteBuffer.wrap(b));
+                if (decoded.remaining() != 1) {
+                    return SingleByteCodec.NONE;
+                }
+                decodeTable[i] = decoded.get();
+            } catch (CharacterCodingException e) {
+                decodeTable[i] = SingleByteCodec.UNMAPPED;
+                continue;
+            }
+
+            char c = decodeTable[i];
+            short[] page = encodeTable[c >>> 8];
+            if (page == null) {
+                page = new short[SingleByteCodec.TABLE_SIZE];
+                Arrays.fill(page, (short) -1);
+                encodeTable[c >>> 8] = page;
+            }
+
+            // keep the first byte when more than one decodes to a character
+            if (page[c & 0xFF] < 0) {
+                page[c & 0xFF] = (short) i;
+            }
+        }
+
+        return new SingleByteCodec(charset, decodeTable, encodeTable);
+    }
+}
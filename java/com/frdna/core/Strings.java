@@ -93,6 +93,11 @@ public final class Strings {
             final Object[] values,
             final CharSequence delimiter) {
         Assert.notNull("delimiter", delimiter);
+
+        if (values != null && Strings.allLatin1(values)) {
+            return Strings.joinLatin1(values, delimiter);
+        }
+
         return org.apache.commons.lang3.StringUtils.join(
                 values, delimiter.toString());
     }
@@ -113,6 +118,16 @@ public final class Strings {
             return true;
         }
 
+        if (value instanceof Latin1String) {
+            byte[] bytes = ((Latin1String) value).bytes();
+            for (int i = 0; i < bytes.length; i++) {
+                if (!Strings.isWhitespace(bytes[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         if (CharSequence.class.isInstance(value)) {
             return Pattern.matches("^\\s*$", (CharSequence) value);
         }
@@ -435,7 +450,8 @@ public final class Strings {
 
     /**
      * Removes trailing and starting whitespace and converts all alpha
-     * characters to lowercase.
+     * characters to lowercase.  The characters of a {@link Latin1String} are
+     * converted without regard to the default locale.
      *
      * @param value
      *     the value to be converted
@@ -449,6 +465,10 @@ public final class Strings {
             return null;
         }
 
+        if (value instanceof Latin1String) {
+            return Strings.trimLowerCase(((Latin1String) value).bytes());
+        }
+
         return value.toString().trim().toLowerCase();
     }
 
@@ -476,6 +496,12 @@ public final class Strings {
             return s.toString();
         }
 
+        if (s instanceof Latin1String) {
+            char[] chars = new char[l];
+            ((Latin1String) s).getChars(0, l, chars, 0);
+            return new String(chars);
+        }
+
         return s.toString().substring(0, l);
     }
 
@@ -672,6 +698,12 @@ public final class Strings {
             return unjustified.toString();
         }
 
+        if (unjustified instanceof Latin1String) {
+            return Strings.justifyLatin1(
+                    (Latin1String) unjustified, justifyCharacter, l,
+                    leftJustify);
+        }
+
         char[] pad = new char[l - unjustified.length()];
         Arrays.fill(pad, justifyCharacter);
         if (leftJustify) {
@@ -695,4 +727,108 @@ public final class Strings {
     public static String padRight(final CharSequence value, final int length) {
         return Strings.leftJustify(value, ' ', length);
     }
+
+    /**
+     * Justifies a {@link Latin1String} into a single array.
+     */
+    private static String justifyLatin1(
+            final Latin1String unjustified,
+            final char justifyCharacter,
+            final int length,
+            final boolean leftJustify) {
+
+        char[] chars = new char[length];
+        int padLength = length - unjustified.length();
+        if (leftJustify) {
+            unjustified.getChars(0, unjustified.length(), chars, 0);
+            Arrays.fill(chars, unjustified.length(), length, justifyCharacter);
+        } else {
+            Arrays.fill(chars, 0, padLength, justifyCharacter);
+            unjustified.getChars(0, unjustified.length(), chars, padLength);
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Trims and lower cases ISO-8859-1 bytes in one pass.
+     */
+    private static String trimLowerCase(final byte[] bytes) {
+
+        int start = 0;
+        int end = bytes.length;
+        while (start < end && (bytes[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (bytes[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+
+        char[] chars = new char[end - start];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase((char) (bytes[start + i] & 0xFF));
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Tests if every value is a {@link Latin1String} or <code>null</code>.
+     */
+    private static boolean allLatin1(final Object[] values) {
+
+        for (Object value : values) {
+            if (value != null && !(value instanceof Latin1String)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Joins {@link Latin1String} values into a single array.  A
+     * <code>null</code> value is joined as an empty string.
+     */
+    private static String joinLatin1(
+            final Object[] values,
+            final CharSequence delimiter) {
+
+        if (values.length == 0) {
+            return "";
+        }
+
+        int delimiterLength = delimiter.length();
+        int length = delimiterLength * (values.length - 1);
+        for (Object value : values) {
+            if (value != null) {
+                length += ((Latin1String) value).length();
+            }
+        }
+
+        char[] chars = new char[length];
+        int position = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                for (int j = 0; j < delimiterLength; j++) {
+                    chars[position++] = delimiter.charAt(j);
+                }
+            }
+            if (values[i] != null) {
+                Latin1String value = (Latin1String) values[i];
+                value.getChars(0, value.length(), chars, position);
+                position += value.length();
+            }
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Tests if an ISO-8859-1 byte is a whitespace character as matched by
+     * <code>\s</code>.
+     */
+    private static boolean isWhitespace(final byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r');
+    }
 }
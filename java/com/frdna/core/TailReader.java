@@ -0,0 +1,308 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * Reads the characters appended to a file since it was last read.
+ *
+ * The reader remembers how many bytes of the file it has read and each call
+ * to {@link #read(StringBuilder)} reads only the bytes after them.  The
+ * bytes of a character split across two reads are held until the rest of
+ * the character is appended.  The file is opened for each read, so no file
+ * handle is held between reads and a file that is rotated is followed to
+ * the new file.
+ *
+ * The file is read from the start again when it is shorter than the bytes
+ * already read or when its first bytes change, which is how a truncated or
+ * rotated file is detected.  A reader is not thread safe.
+ */
+public final class TailReader {
+
+    private static final int FINGERPRINT_SIZE = 64;
+
+    private static final int MAX_PENDING = 16;
+
+    private final File file;
+    private final SingleByteCodec codec;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer pending =
+            ByteBuffer.allocate(TailReader.MAX_PENDING);
+    private byte[] fingerprint = new byte[0];
+    private long position = 0;
+    private int restarts = 0;
+
+    /**
+     * Creates a reader that starts at the beginning of a file.
+     *
+     * @param file
+     *     the file to be read
+     * @param charset
+     *     the charset to use to decode the content
+     * @throws NullPointerException
+     *     if <code>file</code> or <code>charset</code> is <code>null</code>
+     */
+    public TailReader(final File file, final Charset charset) {
+
+        Assert.notNull("file", file);
+        Assert.notNull("charset", charset);
+
+        this.file = file;
+        this.codec = Io.codec(charset);
+        if (this.codec == null) {
+            this.decoder = charset.newDecoder();
+        } else {
+            this.decoder = null;
+        }
+    }
+
+    /**
+     * Gets the file being read.
+     *
+     * @return
+     *     the file
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Gets the number of bytes of the file that have been read.
+     *
+     * @return
+     *     the byte offset the next read starts at
+     */
+    public long getPosition() {
+        return this.position;
+    }
+
+    /**
+     * Gets the number of times the file was found to be truncated or
+     * rotated and was read from the start again.
+     *
+     * @return
+     *     the number of restarts
+     */
+    public int getRestarts() {
+        return this.restarts;
+    }
+
+    /**
+     * Reads the characters appended to the file since the last read.
+     *
+     * @return
+     *     the characters read, which are empty if nothing was appended or
+     *     the file does not exist
+     * @throws IoException
+     *     if the file cannot be read or decoded
+     * @see #read(StringBuilder)
+     */
+    public String read() {
+        StringBuilder destination = new StringBuilder();
+        this.read(destination);
+        return destination.toString();
+    }
+
+    /**
+     * Reads the characters appended to the file since the last read.
+     *
+     * @param destination
+     *     the builder the characters are appended to
+     * @return
+     *     the number of characters appended to <code>destination</code>
+     * @throws NullPointerException
+     *     if <code>destination</code> is <code>null</code>
+     * @throws IoException
+     *     if the file cannot be read or decoded
+     */
+    public int read(final StringBuilder destination) {
+
+        Assert.notNull("destination", destination);
+
+        if (!this.file.exists()) {
+            return 0;
+        }
+
+        FileInputStream in = null;
+        int start = destination.length();
+
+        try {
+            in = new FileInputStream(this.file);
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+
+            if (this.isRestarted(channel, size)) {
+                this.restart();
+            }
+
+            if (size > this.position) {
+                this.decode(channel, size, destination);
+            }
+
+            return destination.length() - start;
+        } catch (IOException e) {
+            throw new IoException("Unable to read " + this.file, e);
+        } finally {
+            Io.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Tests if the file was truncated or replaced since the last read, and
+     * remembers its first bytes for the next read.
+     */
+    private boolean isRestarted(final FileChannel channel, final long size)
+            throws IOException {
+
+        if (size < this.position) {
+            this.fingerprint = TailReader.head(channel, size);
+            return true;
+        }
+
+        byte[] head = TailReader.head(channel, size);
+        boolean changed = head.length < this.fingerprint.length;
+        for (int i = 0; !changed && i < this.fingerprint.length; i++) {
+            changed = (head[i] != this.fingerprint[i]);
+        }
+
+        this.fingerprint = head;
+        return changed;
+    }
+
+    /**
+     * Forgets everything read so that the file is read from the start.
+     */
+    private void restart() {
+
+        this.position = 0;
+        this.pending.clear();
+        if (this.decoder != null) {
+            this.decoder.reset();
+        }
+        this.restarts++;
+    }
+
+    /**
+     * Decodes the bytes from the position to <code>size</code>.
+     */
+    private void decode(
+            final FileChannel channel,
+            final long size,
+            final StringBuilder destination) throws IOException {
+
+        ByteBuffer bytes = BufferPool.bytes();
+        CharBuffer chars = BufferPool.chars();
+
+        try {
+            this.pending.flip();
+            bytes.put(this.pending);
+            this.pending.clear();
+
+            channel.position(this.position);
+            while (this.position < size) {
+                int count = (int) Math.min(bytes.remaining(),
+                        size - this.position);
+                bytes.limit(bytes.position() + count);
+                int read = channel.read(bytes);
+                if (read == -1) {
+                    break;
+                }
+                this.position += read;
+                bytes.flip();
+                this.decode(bytes, chars, destination);
+
+                // keep any partial character for the next read
+                bytes.compact();
+            }
+
+            bytes.flip();
+            if (bytes.remaining() > this.pending.capacity()) {
+                throw new IoException(
+                        "Unable to decode " + this.file + " at byte "
+                        + (this.position - bytes.remaining()));
+            }
+            this.pending.put(bytes);
+        } finally {
+            BufferPool.release(bytes);
+            BufferPool.release(chars);
+        }
+    }
+
+    /**
+     * Decodes the complete characters in a buffer, leaving any partial
+     * character in it.
+     */
+    private void decode(
+            final ByteBuffer bytes,
+            final CharBuffer chars,
+            final StringBuilder destination) throws IOException {
+
+        boolean overflow = false;
+        do {
+            if (this.codec == null) {
+                CoderResult result = this.decoder.decode(bytes, chars, false);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                overflow = result.isOverflow();
+            } else {
+                this.codec.decode(bytes, chars);
+                overflow = bytes.hasRemaining();
+            }
+
+            chars.flip();
+            destination.append(
+                    chars.array(),
+                    chars.arrayOffset() + chars.position(),
+                    chars.remaining());
+            chars.clear();
+        } while (overflow);
+    }
+
+    /**
+     * Reads the first bytes of a file.
+     */
+    private static byte[] head(final FileChannel channel, final long size)
+            throws IOException {
+
+        int length = (int) Math.min(size, TailReader.FINGERPRINT_SIZE);
+        ByteBuffer head = ByteBuffer.allocate(length);
+        while (head.hasRemaining()) {
+            if (channel.read(head, head.position()) == -1) {
+                break;
+            }
+        }
+
+        byte[] bytes = new byte[head.position()];
+        System.arraycopy(head.array(), 0, bytes, 0, bytes.length);
+        return bytes;
+    }
+}
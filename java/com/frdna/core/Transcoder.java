@@ -0,0 +1,263 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.UnmappableCharacterException;
+
+/**
+ * Converts bytes in one charset to bytes in another as they are copied from
+ * one channel to another.
+ *
+ * The buffers are taken from the pool and reused for the whole copy, so no
+ * <code>String</code> is ever built.  When both charsets are single byte
+ * charsets, each byte is translated through a 256 entry table without being
+ * decoded to a character.
+ */
+final class Transcoder {
+
+    private static final int TABLE_SIZE = 256;
+
+    private final Charset sourceCharset;
+    private final Charset targetCharset;
+    private final int[] translation;
+
+    /**
+     * Creates a transcoder between two charsets.
+     *
+     * @param sourceCharset
+     *     the charset of the bytes read
+     * @param targetCharset
+     *     the charset of the bytes written
+     */
+    Transcoder(final Charset sourceCharset, final Charset targetCharset) {
+        this.sourceCharset = sourceCharset;
+        this.targetCharset = targetCharset;
+        this.translation = Transcoder.translation(
+                SingleByteCodec.forCharset(sourceCharset),
+                SingleByteCodec.forCharset(targetCharset));
+    }
+
+    /**
+     * Copies all of the bytes from one channel to another.
+     *
+     * @param source
+     *     the channel the bytes are read from
+     * @param target
+     *     the channel the converted bytes are written to
+     * @return
+     *     the number of bytes written
+     * @throws IOException
+     *     if the channels cannot be read or written or the bytes cannot be
+     *     converted
+     */
+    long transcode(
+            final ReadableByteChannel source,
+            final WritableByteChannel target) throws IOException {
+
+        if (this.translation != null) {
+            return this.translate(source, target);
+        }
+
+        CharsetDecoder decoder = this.sourceCharset.newDecoder();
+        CharsetEncoder encoder = this.targetCharset.newEncoder();
+        ByteBuffer in = BufferPool.bytes();
+        CharBuffer chars = BufferPool.chars();
+        ByteBuffer out = BufferPool.bytes();
+        long written = 0;
+        boolean endOfInput = false;
+
+        try {
+            while (!endOfInput) {
+                endOfInput = (source.read(in) == -1);
+                in.flip();
+
+                CoderResult result = null;
+                do {
+                    result = decoder.decode(in, chars, endOfInput);
+                    Transcoder.check(result);
+                    written += this.encode(encoder, chars, out, target, false);
+                } while (result.isOverflow());
+
+                // keep any partial character for the next read
+                in.compact();
+            }
+
+            CoderResult result = null;
+            do {
+                result = decoder.flush(chars);
+                Transcoder.check(result);
+                written += this.encode(encoder, chars, out, target, true);
+            } while (result.isOverflow());
+
+            do {
+                result = encoder.flush(out);
+                Transcoder.check(result);
+                written += Transcoder.write(out, target);
+            } while (result.isOverflow());
+        } finally {
+            BufferPool.release(in);
+            BufferPool.release(chars);
+            BufferPool.release(out);
+        }
+
+        return written;
+    }
+
+    /**
+     * Encodes the decoded characters, writing the output whenever it fills.
+     *
+     * @return
+     *     the number of bytes written
+     */
+    private long encode(
+            final CharsetEncoder encoder,
+            final CharBuffer chars,
+            final ByteBuffer out,
+            final WritableByteChannel target,
+            final boolean endOfInput) throws IOException {
+
+        long written = 0;
+        chars.flip();
+
+        CoderResult result = null;
+        do {
+            result = encoder.encode(chars, out, endOfInput);
+            Transcoder.check(result);
+            if (result.isOverflow()) {
+                written += Transcoder.write(out, target);
+            }
+        } while (result.isOverflow());
+
+        // keep any partial surrogate pair for the next pass
+        chars.compact();
+
+        if (endOfInput) {
+            written += Transcoder.write(out, target);
+        }
+
+        return written;
+    }
+
+    /**
+     * Copies the bytes from one channel to another, translating each byte
+     * through the table.
+     *
+     * @return
+     *     the number of bytes written
+     */
+    private long translate(
+            final ReadableByteChannel source,
+            final WritableByteChannel target) throws IOException {
+
+        ByteBuffer buffer = BufferPool.bytes();
+        byte[] bytes = buffer.array();
+        long written = 0;
+
+        try {
+            while (source.read(buffer) != -1) {
+                for (int i = 0; i < buffer.position(); i++) {
+                    int b = this.translation[bytes[i] & 0xFF];
+                    if (b < 0) {
+                        throw new UnmappableCharacterException(1);
+                    }
+                    bytes[i] = (byte) b;
+                }
+
+                written += Transcoder.write(buffer, target);
+            }
+        } finally {
+            BufferPool.release(buffer);
+        }
+
+        return written;
+    }
+
+    /**
+     * Writes all of the bytes in a buffer and clears it.
+     *
+     * @return
+     *     the number of bytes written
+     */
+    private static long write(
+            final ByteBuffer out,
+            final WritableByteChannel target) throws IOException {
+
+        out.flip();
+        long written = out.remaining();
+        while (out.hasRemaining()) {
+            target.write(out);
+        }
+        out.clear();
+
+        return written;
+    }
+
+    private static void check(final CoderResult result)
+            throws CharacterCodingException {
+        if (result.isError()) {
+            result.throwException();
+        }
+    }
+
+    /**
+     * Builds a table that maps the bytes of one single byte charset to the
+     * bytes of another.
+     *
+     * @param source
+     *     the codec of the bytes read
+     * @param target
+     *     the codec of the bytes written
+     * @return
+     *     the table, with <code>-1</code> for bytes that cannot be converted,
+     *     or <code>null</code> if either codec is <code>null</code>
+     */
+    private static int[] translation(
+            final SingleByteCodec source,
+            final SingleByteCodec target) {
+
+        if (source == null || target == null) {
+            return null;
+        }
+
+        int[] table = new int[Transcoder.TABLE_SIZE];
+        for (int i = 0; i < Transcoder.TABLE_SIZE; i++) {
+            char c = source.decode((byte) i);
+            if (c == SingleByteCodec.UNMAPPED) {
+                table[i] = -1;
+            } else {
+                table[i] = target.encode(c);
+            }
+        }
+
+        return table;
+    }
+}
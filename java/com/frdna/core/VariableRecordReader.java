@@ -0,0 +1,280 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads variable length mainframe records from a channel.
+ *
+ * Each record starts with a four byte record descriptor word (RDW) holding
+ * the length of the record, including the RDW, in its first two bytes.  When
+ * the records are blocked, each block starts with a four byte block
+ * descriptor word (BDW) holding the length of the block.  Spanned records
+ * are not supported.
+ *
+ * The channel is read through a single buffer that is large enough for the
+ * largest record, so memory use does not depend on the size of the input.
+ * The same {@link Record} is returned for every record and points into that
+ * buffer, so it is only valid until the next call to {@link #next()}.
+ */
+public final class VariableRecordReader
+        implements Iterator<Record>, Iterable<Record>, Closeable {
+
+    private static final int DESCRIPTOR_LENGTH = 4;
+
+    // the largest length an RDW can hold, rounded up to a power of two
+    private static final int BUFFER_SIZE = 128 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final boolean blocked;
+    private final Record record;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(
+            VariableRecordReader.BUFFER_SIZE);
+    private long blockRemaining = 0;
+    private boolean ready = false;
+    private boolean endOfInput = false;
+
+    /**
+     * Creates a reader over the records in a channel.  The channel is closed
+     * when the reader is closed.
+     *
+     * @param channel
+     *     the channel the records are read from
+     * @param charset
+     *     the single byte charset of the character fields
+     * @param blocked
+     *     <code>true</code> if the records are grouped into blocks that start
+     *     with a BDW
+     * @throws NullPointerException
+     *     if <code>channel</code> or <code>charset</code> is
+     *     <code>null</code>
+     * @throws IllegalArgumentException
+     *     if <code>charset</code> is not a single byte charset
+     */
+    public VariableRecordReader(
+            final ReadableByteChannel channel,
+            final Charset charset,
+            final boolean blocked) {
+
+        Assert.notNull("channel", channel);
+
+        this.channel = channel;
+        this.blocked = blocked;
+        this.record = new Record(charset);
+
+        // start with nothing read
+        this.buffer.flip();
+    }
+
+    /**
+     * Returns this reader so that it can be used in a for each loop.
+     *
+     * @return
+     *     this reader
+     */
+    public Iterator<Record> iterator() {
+        return this;
+    }
+
+    /**
+     * Tests if there is another record.
+     *
+     * @return
+     *     <code>true</code> if there is another record
+     * @throws IoException
+     *     if the channel cannot be read or holds an invalid descriptor word
+     */
+    public boolean hasNext() {
+
+        if (!this.ready) {
+            this.ready = this.readRecord();
+        }
+
+        return this.ready;
+    }
+
+    /**
+     * Moves the record to the next record.
+     *
+     * @return
+     *     the record, which is the same instance for every call
+     * @throws NoSuchElementException
+     *     if there are no more records
+     * @throws IoException
+     *     if the channel cannot be read or holds an invalid descriptor word
+     */
+    public Record next() {
+
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        this.ready = false;
+        return this.record;
+    }
+
+    /**
+     * Records cannot be removed.
+     *
+     * @throws UnsupportedOperationException
+     *     always
+     */
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Closes the channel.
+     */
+    public void close() {
+        Io.closeQuietly(this.channel);
+    }
+
+    /**
+     * Points the record at the next record in the channel.
+     *
+     * @return
+     *     <code>false</code> if there are no more records
+     */
+    private boolean readRecord() {
+
+        while (this.blocked && this.blockRemaining == 0) {
+            if (!this.fill(VariableRecordReader.DESCRIPTOR_LENGTH)) {
+                return false;
+            }
+
+            this.blockRemaining = this.readBlockLength()
+                    - VariableRecordReader.DESCRIPTOR_LENGTH;
+        }
+
+        if (!this.fill(VariableRecordReader.DESCRIPTOR_LENGTH)) {
+            if (this.blocked) {
+                throw new IoException("The last block is incomplete");
+            }
+            return false;
+        }
+
+        int position = this.buffer.position();
+        int length = this.buffer.getShort(position) & 0xFFFF;
+        int segment = this.buffer.getShort(position + 2) & 0xFFFF;
+
+        if (length < VariableRecordReader.DESCRIPTOR_LENGTH
+                || (this.blocked && length > this.blockRemaining)) {
+            throw new IoException("Invalid record length " + length);
+        }
+
+        if (segment != 0) {
+            throw new IoException("Spanned records are not supported");
+        }
+
+        if (!this.fill(length)) {
+            throw new IoException("The last record is incomplete");
+        }
+
+        this.record.wrap(
+                this.buffer,
+                position + VariableRecordReader.DESCRIPTOR_LENGTH,
+                length - VariableRecordReader.DESCRIPTOR_LENGTH);
+        this.buffer.position(position + length);
+
+        if (this.blocked) {
+            this.blockRemaining -= length;
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads a BDW.
+     *
+     * @return
+     *     the length of the block including the BDW
+     */
+    private long readBlockLength() {
+
+        int position = this.buffer.position();
+        long length = 0;
+
+        if ((this.buffer.get(position) & 0x80) == 0) {
+            length = this.buffer.getShort(position) & 0xFFFF;
+        } else {
+            // an extended BDW holds a 31 bit length
+            length = this.buffer.getInt(position) & 0x7FFFFFFFL;
+        }
+
+        if (length < VariableRecordReader.DESCRIPTOR_LENGTH) {
+            throw new IoException("Invalid block length " + length);
+        }
+
+        this.buffer.position(position + VariableRecordReader.DESCRIPTOR_LENGTH);
+        return length;
+    }
+
+    /**
+     * Reads from the channel until at least <code>length</code> bytes are
+     * available.
+     *
+     * @param length
+     *     the number of bytes needed
+     * @return
+     *     <code>false</code> if the channel ended at a record boundary
+     * @throws IoException
+     *     if the channel ended within the bytes needed
+     */
+    private boolean fill(final int length) {
+
+        if (this.buffer.remaining() >= length) {
+            return true;
+        }
+
+        this.buffer.compact();
+
+        try {
+            while (this.buffer.position() < length && !this.endOfInput) {
+                if (this.channel.read(this.buffer) == -1) {
+                    this.endOfInput = true;
+                }
+            }
+        } catch (IOException e) {
+            throw new IoException("Unable to read " + this.channel, e);
+        } finally {
+            this.buffer.flip();
+        }
+
+        if (this.buffer.remaining() >= length) {
+            return true;
+        }
+
+        if (this.buffer.hasRemaining()) {
+            throw new IoException("The last record is incomplete");
+        }
+
+        return false;
+    }
+}
@@ -76,6 +76,10 @@ public final class Verify {
      *     characters
      */
     public static boolean alpha(final CharSequence value) {
+        if (value instanceof Latin1String) {
+            return Verify.matches((Latin1String) value, false);
+        }
+
         if (Verify.missing(value)) {
             return false;
         }
@@ -93,6 +97,10 @@ public final class Verify {
      *     or numeric characters
      */
     public static boolean alphaNumeric(final CharSequence value) {
+        if (value instanceof Latin1String) {
+            return Verify.matches((Latin1String) value, true);
+        }
+
         if (Verify.missing(value)) {
             return false;
         }
@@ -506,4 +514,29 @@ public final class Verify {
     public static boolean notEqual(final Object lhs, final Object rhs) {
         return !Verify.equal(lhs, rhs);
     }
+
+    /**
+     * Tests if a {@link Latin1String} is not empty and holds only ASCII
+     * letters, and digits if <code>numeric</code> is <code>true</code>,
+     * without running a regex.
+     */
+    private static boolean matches(
+            final Latin1String value,
+            final boolean numeric) {
+
+        byte[] bytes = value.bytes();
+        if (bytes.length == 0) {
+            return false;
+        }
+
+        for (int i = 0; i < bytes.length; i++) {
+            byte b = bytes[i];
+            boolean alpha = (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+            if (!alpha && !(numeric && b >= '0' && b <= '9')) {
+                return false;
+            }
+        }
+
+        return true;
+    }
 }
@@ -0,0 +1,55 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import org.junit.Test;
+
+class BufferPoolTest extends TestCase {
+
+    @Test void bytesShouldReturnAClearedBuffer() {
+        def buffer = BufferPool.bytes()
+        buffer.put((byte) 1)
+        BufferPool.release(buffer)
+        def reused = BufferPool.bytes()
+        assert reused.position() == 0
+        assert reused.capacity() == BufferPool.BUFFER_SIZE
+        assert reused.hasArray()
+        BufferPool.release(reused)
+    }
+
+    @Test void charsShouldReturnAClearedBuffer() {
+        def buffer = BufferPool.chars()
+        buffer.put('x' as char)
+        BufferPool.release(buffer)
+        def reused = BufferPool.chars()
+        assert reused.position() == 0
+        assert reused.capacity() == BufferPool.BUFFER_SIZE
+        BufferPool.release(reused)
+    }
+
+    @Test void releaseShouldIgnoreNull() {
+        assertNoException {
+            BufferPool.release((java.nio.ByteBuffer) null)
+            BufferPool.release((java.nio.CharBuffer) null)
+        }
+    }
+}
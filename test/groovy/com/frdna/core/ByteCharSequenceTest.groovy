@@ -0,0 +1,93 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+class ByteCharSequenceTest extends TestCase {
+
+    def cp037 = Charset.forName("Cp037")
+
+    def view(String contents) {
+        ByteCharSequence.wrap(ByteBuffer.wrap(contents.getBytes("Cp037")),
+            cp037)
+    }
+
+    @Test void wrapShouldThrowAnExceptionWhenTheCharsetIsNotSingleByte() {
+        assertException(IllegalArgumentException) {
+            ByteCharSequence.wrap(ByteBuffer.allocate(4),
+                Charset.forName("UTF-8"))
+        }
+    }
+
+    @Test void wrapShouldThrowAnExceptionWhenTheRangeIsOutsideTheBuffer() {
+        assertException(IndexOutOfBoundsException) {
+            ByteCharSequence.wrap(ByteBuffer.allocate(4), 2, 3, cp037)
+        }
+    }
+
+    @Test void shouldViewTheBytesFromThePositionToTheLimit() {
+        def buffer = ByteBuffer.wrap("XXABCYY".getBytes("Cp037"))
+        buffer.position(2)
+        buffer.limit(5)
+        assert ByteCharSequence.wrap(buffer, cp037).toString() == "ABC"
+    }
+
+    @Test void shouldViewADirectBuffer() {
+        def buffer = ByteBuffer.allocateDirect(3)
+        buffer.put("abc".getBytes("ISO-8859-1"))
+        buffer.flip()
+        def view = ByteCharSequence.wrap(buffer,
+            Charset.forName("ISO-8859-1"))
+        assert view.length() == 3
+        assert view.charAt(1) == 'b'
+    }
+
+    @Test void subSequenceShouldBeAView() {
+        def bytes = "ABCDEF".getBytes("Cp037")
+        def sub = ByteCharSequence.wrap(ByteBuffer.wrap(bytes), cp037)
+            .subSequence(1, 4)
+        assert sub instanceof ByteCharSequence
+        bytes[1] = "Z".getBytes("Cp037")[0]
+        assert sub.toString() == "ZCD"
+    }
+
+    @Test void shouldWorkWithVerifyAndStrings() {
+        assert Verify.alpha(view("ABC"))
+        assert !Verify.alpha(view("AB1"))
+        assert Verify.email(view("user@example.com"))
+        assert Strings.isEmpty(view("   "))
+    }
+
+    @Test void mapCharsShouldViewTheFile() {
+        def view = Io.mapChars(new File("test/resources/test_file.ebcdic"),
+            cp037)
+        assert view.toString() == "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+    }
+
+    @Test void mapCharsShouldBeNullWhenTheFileIsNotFound() {
+        assert Io.mapChars(new File("file_not_found.txt"), cp037) == null
+    }
+}
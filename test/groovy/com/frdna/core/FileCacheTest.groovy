@@ -0,0 +1,183 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+class FileCacheTest extends TestCase {
+
+    def utf8 = Charset.forName("UTF-8")
+
+    def withTempFile(String contents, Closure test) {
+        def file = File.createTempFile("file-cache-test", ".txt")
+        try {
+            file.write(contents, "UTF-8")
+            test(file)
+        } finally {
+            file.delete()
+        }
+    }
+
+    @Test void shouldThrowAnExceptionWhenMaxCharsIsNegative() {
+        assertException(IllegalArgumentException) { new FileCache(-1) }
+    }
+
+    @Test void readShouldThrowAnExceptionWhenTheCharsetIsNull() {
+        assertException(NullPointerException) {
+            new FileCache(100).read(new File("test_file.txt"), null)
+        }
+    }
+
+    @Test void readShouldBeNullWhenTheFileIsNull() {
+        assert new FileCache(100).read(null, utf8) == null
+    }
+
+    @Test void readShouldBeNullWhenTheFileIsNotFound() {
+        assert new FileCache(100).read(
+            new File("file_not_found.txt"), utf8) == null
+    }
+
+    @Test void readShouldReadTheContentsOfTheFile() {
+        assert new FileCache(100).read(
+            new File("test/resources/test_file.txt"), utf8) ==
+            "Test file contents.\n"
+    }
+
+    @Test void readShouldServeTheSecondReadFromTheCache() {
+        def cache = new FileCache(100)
+        def file = new File("test/resources/test_file.txt")
+        def first = cache.read(file, utf8)
+        assert cache.read(new File(file.absolutePath), utf8).is(first)
+        assert cache.hitCount == 1
+        assert cache.missCount == 1
+        assert cache.entryCount == 1
+        assert cache.charCount == first.length()
+    }
+
+    @Test void readShouldCacheEachCharsetSeparately() {
+        def cache = new FileCache(100)
+        def file = new File("test/resources/test_file.ebcdic")
+        assert cache.read(file, Charset.forName("Cp037")) ==
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+        cache.read(file, Charset.forName("ISO-8859-1"))
+        assert cache.missCount == 2
+        assert cache.entryCount == 2
+    }
+
+    @Test void readShouldReadTheFileAgainWhenItChanges() {
+        withTempFile("before") { file ->
+            def cache = new FileCache(100)
+            assert cache.read(file, utf8) == "before"
+            file.write("after, longer", "UTF-8")
+            assert cache.read(file, utf8) == "after, longer"
+            assert cache.missCount == 2
+            assert cache.charCount == "after, longer".length()
+        }
+    }
+
+    @Test void readShouldNotCacheFilesLargerThanTheCache() {
+        def cache = new FileCache(5)
+        assert cache.read(new File("test/resources/test_file.txt"), utf8) ==
+            "Test file contents.\n"
+        assert cache.entryCount == 0
+    }
+
+    @Test void readShouldEvictTheLeastRecentlyUsedEntries() {
+        withTempFile("12345") { first ->
+            withTempFile("67890") { second ->
+                withTempFile("abcde") { third ->
+                    def cache = new FileCache(10)
+                    cache.read(first, utf8)
+                    cache.read(second, utf8)
+                    cache.read(first, utf8)
+                    cache.read(third, utf8)
+                    assert cache.evictionCount == 1
+                    assert cache.charCount == 10
+                    cache.read(first, utf8)
+                    assert cache.hitCount == 2
+                    cache.read(second, utf8)
+                    assert cache.missCount == 4
+                }
+            }
+        }
+    }
+
+    @Test void readShouldBeSafeForConcurrentReads() {
+        def cache = new FileCache(1000)
+        def file = new File("test/resources/test_file.txt")
+        def executor = Executors.newFixedThreadPool(8)
+        def results = Collections.synchronizedList([])
+        200.times {
+            executor.execute { results << cache.read(file, utf8) }
+        }
+        executor.shutdown()
+        executor.awaitTermination(10, TimeUnit.SECONDS)
+        assert results.size() == 200
+        assert results.every { it == "Test file contents.\n" }
+        assert cache.hitCount + cache.missCount == 200
+        assert cache.charCount == "Test file contents.\n".length()
+    }
+
+    @Test void readShouldBeSafeWhenReadsAndEvictionsOverlap() {
+        def files = (0..<40).collect { i ->
+            def file = File.createTempFile("file-cache-test", ".txt")
+            file.write("contents of file " + String.format("%03d", i), "UTF-8")
+            file
+        }
+        try {
+            def cache = new FileCache(200)
+            def executor = Executors.newFixedThreadPool(8)
+            def failures = Collections.synchronizedList([])
+            def random = new Random(0)
+            4000.times {
+                def i = random.nextInt(files.size())
+                executor.execute {
+                    try {
+                        assert cache.read(files[i], utf8) ==
+                            "contents of file " + String.format("%03d", i)
+                    } catch (Throwable t) {
+                        failures << t
+                    }
+                }
+            }
+            executor.shutdown()
+            assert executor.awaitTermination(30, TimeUnit.SECONDS)
+            assert failures.isEmpty()
+            assert cache.evictionCount > 0
+            assert cache.charCount <= 200
+        } finally {
+            files*.delete()
+        }
+    }
+
+    @Test void clearShouldRemoveEveryEntry() {
+        def cache = new FileCache(100)
+        cache.read(new File("test/resources/test_file.txt"), utf8)
+        cache.clear()
+        assert cache.entryCount == 0
+        assert cache.charCount == 0
+    }
+}
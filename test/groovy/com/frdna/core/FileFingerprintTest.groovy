@@ -0,0 +1,76 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import org.junit.Test;
+
+class FileFingerprintTest extends TestCase {
+
+    def withTempFile(String contents, Closure test) {
+        def file = File.createTempFile("file-fingerprint-test", ".txt")
+        try {
+            file.write(contents, "UTF-8")
+            test(file)
+        } finally {
+            file.delete()
+        }
+    }
+
+    @Test void isChangedShouldBeFalseWhenTheFileIsUnchanged() {
+        withTempFile("ABC") { file ->
+            assert !Io.fingerprint(file).isChanged(file)
+        }
+    }
+
+    @Test void isChangedShouldBeFalseWhenOnlyTheTimeChanged() {
+        withTempFile("ABC") { file ->
+            def fingerprint = Io.fingerprint(file)
+            file.setLastModified(fingerprint.lastModified - 10000)
+            assert !fingerprint.isChanged(file)
+        }
+    }
+
+    @Test void isChangedShouldBeTrueWhenTheSizeChanged() {
+        withTempFile("ABC") { file ->
+            def fingerprint = Io.fingerprint(file)
+            file.append("D")
+            assert fingerprint.isChanged(file)
+        }
+    }
+
+    @Test void isChangedShouldBeTrueWhenTheContentsChanged() {
+        withTempFile("ABC") { file ->
+            def fingerprint = Io.fingerprint(file)
+            file.write("XYZ", "UTF-8")
+            file.setLastModified(fingerprint.lastModified - 10000)
+            assert fingerprint.isChanged(file)
+        }
+    }
+
+    @Test void isChangedShouldBeTrueWhenTheFileIsDeleted() {
+        withTempFile("ABC") { file ->
+            def fingerprint = Io.fingerprint(file)
+            file.delete()
+            assert fingerprint.isChanged(file)
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+class FixedRecordReaderTest extends TestCase {
+
+    def cp037 = Charset.forName("Cp037")
+
+    def reader(String contents, int recordLength) {
+        new FixedRecordReader(
+            ByteBuffer.wrap(contents.getBytes("Cp037")), recordLength, cp037)
+    }
+
+    @Test void shouldThrowAnExceptionWhenTheRecordLengthIsNotPositive() {
+        assertException(IllegalArgumentException) {
+            reader("ABC", 0)
+        }
+    }
+
+    @Test void shouldThrowAnExceptionWhenTheBufferIsNull() {
+        assertException(NullPointerException) {
+            new FixedRecordReader((ByteBuffer) null, 1, cp037)
+        }
+    }
+
+    @Test void shouldReadTheRecordsInTheBuffer() {
+        assert reader("ABCDEFGHI", 3).collect { it.toString() } ==
+            [ "ABC", "DEF", "GHI" ]
+    }
+
+    @Test void shouldReuseTheRecord() {
+        def records = reader("ABCDEF", 3)
+        assert records.next().is(records.next())
+    }
+
+    @Test void shouldThrowAnExceptionWhenTheLastRecordIsPartial() {
+        def records = reader("ABCDE", 3)
+        records.next()
+        assertException(IoException) { records.hasNext() }
+    }
+
+    @Test void nextShouldThrowAnExceptionWhenThereAreNoMoreRecords() {
+        def records = reader("ABC", 3)
+        records.next()
+        assertException(NoSuchElementException) { records.next() }
+    }
+
+    @Test void shouldReadTheRecordsInAFile() {
+        def file = File.createTempFile("fixed-record-reader-test", ".dat")
+        def channel = new FileInputStream(file).channel
+        try {
+            file.bytes = "ABCDEFGHI".getBytes("Cp037")
+            def records = new FixedRecordReader(channel, 3, cp037)
+            assert records.collect { it.getChars(1, 2).toString() } ==
+                [ "BC", "EF", "HI" ]
+            records.close()
+            assert !channel.isOpen()
+        } finally {
+            channel.close()
+            file.delete()
+        }
+    }
+}
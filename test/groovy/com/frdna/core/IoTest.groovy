@@ -21,6 +21,9 @@
  */
 package com.frdna.core;
 
+import java.nio.charset.Charset;
+import java.util.concurrent.Executors;
+
 import org.junit.Test;
 
 class IoTest extends TestCase {
@@ -68,4 +71,718 @@ class IoTest extends TestCase {
         assert Io.read("test/resources/test_file.ebcdic", "Cp037").equals(
             "ABCDEFGHIJKLMNOPQRSTUVWXYZ")
     }
+
+    @Test void readShouldMapFilesOverTheMappedReadThreshold() {
+        def file = File.createTempFile("io-test", ".txt")
+        try {
+            def contents = "x" * (Io.MAPPED_READ_THRESHOLD + 1)
+            file.write(contents, "ISO-8859-1")
+            assert Io.read(file, "ISO-8859-1").equals(contents)
+        } finally {
+            file.delete()
+        }
+    }
+
+    @Test void readMappedShouldBeNullWhenFileIsNull() {
+        assert Io.readMapped((File) null, Charset.defaultCharset()) == null
+    }
+
+    @Test void readMappedShouldBeNullWhenFileIsNotFound() {
+        assert Io.readMapped(new File("file_not_found.txt"),
+            Charset.defaultCharset()) == null
+    }
+
+    @Test void readMappedShouldReadTheContentsOfTheFile() {
+        assert Io.readMapped(new File("test/resources/test_file.txt"),
+            Charset.defaultCharset()).equals("Test file contents.\n")
+    }
+
+    @Test void readMappedShouldReadTheContentsOfTheFileForTheCharset() {
+        assert Io.readMapped(new File("test/resources/test_file.ebcdic"),
+            Charset.forName("Cp037")).equals("ABCDEFGHIJKLMNOPQRSTUVWXYZ")
+    }
+
+    @Test void readMappedShouldThrowAnIoExceptionWhenTheFileIsMalformed() {
+        assertException(IoException) {
+            Io.readMapped(new File("test/resources/test_file.ebcdic"),
+                Charset.forName("UTF-8"))
+        }
+    }
+
+    @Test void linesShouldBeNullWhenFileIsNull() {
+        assert Io.lines((File) null, Charset.defaultCharset()) == null
+    }
+
+    @Test void linesShouldBeNullWhenFileIsNotFound() {
+        assert Io.lines(new File("file_not_found.txt"), "UTF-8") == null
+    }
+
+    @Test void linesShouldReadTheLinesOfTheFile() {
+        assert Io.lines(new File("test/resources/test_file.txt"),
+            "UTF-8").collect() == [ "Test file contents." ]
+    }
+
+    @Test void recordsShouldReadTheRecordsOfTheFileForTheCharset() {
+        assert Io.records(new File("test/resources/test_file.ebcdic"),
+            Charset.forName("Cp037"), "M").collect() ==
+            [ "ABCDEFGHIJKL", "NOPQRSTUVWXYZ" ]
+    }
+
+    @Test void fixedRecordsShouldBeNullWhenFileIsNotFound() {
+        assert Io.fixedRecords(new File("file_not_found.txt"), 1,
+            Charset.forName("Cp037")) == null
+    }
+
+    @Test void fixedRecordsShouldReadTheRecordsOfTheFile() {
+        def records = Io.fixedRecords(
+            new File("test/resources/test_file.ebcdic"), 13,
+            Charset.forName("Cp037"))
+        try {
+            assert records.collect { it.toString() } ==
+                [ "ABCDEFGHIJKLM", "NOPQRSTUVWXYZ" ]
+        } finally {
+            records.close()
+        }
+    }
+
+    @Test void variableRecordsShouldBeNullWhenFileIsNotFound() {
+        assert Io.variableRecords(new File("file_not_found.txt"),
+            Charset.forName("Cp037"), false) == null
+    }
+
+    @Test void variableRecordsShouldReadTheRecordsOfTheFile() {
+        def file = File.createTempFile("io-test", ".dat")
+        try {
+            file.withOutputStream {
+                it.write([ 0, 7, 0, 0 ] as byte[])
+                it.write("ABC".getBytes("Cp037"))
+            }
+            def records = Io.variableRecords(
+                file, Charset.forName("Cp037"), false)
+            assert records.collect { it.toString() } == [ "ABC" ]
+            records.close()
+        } finally {
+            file.delete()
+        }
+    }
+
+    @Test void variableRecordsShouldNotInflateARecordThatLooksLikeGzip() {
+        def file = File.createTempFile("io-test", ".dat")
+        try {
+            // a descriptor word of 0x1F8B is the gzip magic number
+            def data = new byte[0x1F8B - 4]
+            data[0] = 8
+            file.withOutputStream {
+                it.write([ 0x1F, 0x8B, 0, 0 ] as byte[])
+                it.write(data)
+            }
+            def records = Io.variableRecords(
+                file, Charset.forName("Cp037"), false)
+            try {
+                assert records.collect { it.length() } == [ data.length ]
+            } finally {
+                records.close()
+            }
+        } finally {
+            file.delete()
+        }
+    }
+
+    @Test void readShouldNotInflateAFileThatOnlyStartsWithTheGzipMagic() {
+        withTempFile { file ->
+            file.bytes = [ 0x1F, 0x8B, 0x41, 0x42 ] as byte[]
+            assert Io.read(file, Charset.forName("ISO-8859-1")) ==
+                "\u001F\u008BAB"
+        }
+    }
+
+    def withLargeFile(String charset, Closure test) {
+        def file = File.createTempFile("io-test", ".txt")
+        try {
+            def line = "The quick brown fox jumps over the lazy dog é\n"
+            def contents = line * (3 * ParallelReader.MIN_CHUNK_SIZE
+                / line.length())
+            file.write(contents, charset)
+            test(file, contents)
+        } finally {
+            file.delete()
+        }
+    }
+
+    @Test void readParallelShouldBeNullWhenFileIsNull() {
+        assert Io.readParallel((File) null, Charset.defaultCharset()) == null
+    }
+
+    @Test void readParallelShouldBeNullWhenFileIsNotFound() {
+        assert Io.readParallel(new File("file_not_found.txt"),
+            Charset.defaultCharset()) == null
+    }
+
+    @Test void readParallelShouldReadTheContentsOfTheFileForTheCharset() {
+        assert Io.readParallel(new File("test/resources/test_file.ebcdic"),
+            Charset.forName("Cp037")).equals("ABCDEFGHIJKLMNOPQRSTUVWXYZ")
+    }
+
+    @Test void readParallelShouldReadASingleByteFileInChunks() {
+        withLargeFile("ISO-8859-1") { file, contents ->
+            assert Io.readParallel(file, Charset.forName("ISO-8859-1")) ==
+                contents
+        }
+    }
+
+    @Test void readParallelShouldReadAUtf8FileInChunks() {
+        withLargeFile("UTF-8") { file, contents ->
+            assert Io.readParallel(file, Charset.forName("UTF-8")) ==
+                contents
+        }
+    }
+
+    @Test void readParallelShouldShareAPoolOfDaemonThreads() {
+        withLargeFile("ISO-8859-1") { file, contents ->
+            3.times { Io.readParallel(file, Charset.forName("ISO-8859-1")) }
+            def threads = Thread.allStackTraces.keySet().findAll {
+                it.name.startsWith("io-parallel-") }
+            assert threads && threads.every { it.daemon }
+            assert threads.size() <= Runtime.runtime.availableProcessors()
+        }
+    }
+
+    @Test void readParallelShouldReadAFileThatCannotBeSplit() {
+        withLargeFile("UTF-16") { file, contents ->
+            assert Io.readParallel(file, Charset.forName("UTF-16")) ==
+                contents
+        }
+    }
+
+    @Test void readParallelShouldThrowAnIoExceptionWhenTheFileIsMalformed() {
+        assertException(IoException) {
+            Io.readParallel(new File("test/resources/test_file.ebcdic"),
+                Charset.forName("UTF-8"))
+        }
+    }
+
+    @Test void readChunksShouldSplitTheFileAtLineBoundaries() {
+        def executor = Executors.newFixedThreadPool(2)
+        try {
+            withLargeFile("UTF-8") { file, contents ->
+                def chunks = Io.readChunks(
+                    file, Charset.forName("UTF-8"), executor)
+                assert chunks.size() > 1
+                assert chunks.every { it.toString().endsWith("\n") }
+                assert chunks.join("") == contents
+            }
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    def withTempFile(Closure test) {
+        def file = File.createTempFile("io-test", ".txt")
+        try {
+            test(file)
+        } finally {
+            file.delete()
+        }
+    }
+
+    @Test void transcodeShouldNotTranscodeAFileOntoItself() {
+        withTempFile { file ->
+            file.write("ABC", "Cp037")
+            assertException(IoException) {
+                Io.transcode(file, Charset.forName("Cp037"),
+                    new File(file.parentFile, "./" + file.name),
+                    Charset.forName("UTF-8"))
+            }
+            assert file.getText("Cp037") == "ABC"
+        }
+    }
+
+    @Test void transcodeShouldThrowAnExceptionWhenTheSourceIsNull() {
+        assertException(NullPointerException) {
+            Io.transcode(null, Charset.forName("Cp037"),
+                new File("target.txt"), Charset.forName("UTF-8"))
+        }
+    }
+
+    @Test void transcodeShouldThrowAnIoExceptionWhenTheSourceIsNotFound() {
+        withTempFile { target ->
+            assertException(IoException) {
+                Io.transcode(new File("file_not_found.txt"),
+                    Charset.forName("Cp037"), target, Charset.forName("UTF-8"))
+            }
+        }
+    }
+
+    @Test void transcodeShouldConvertEbcdicToUtf8() {
+        withTempFile { target ->
+            assert Io.transcode(new File("test/resources/test_file.ebcdic"),
+                Charset.forName("Cp037"), target,
+                Charset.forName("UTF-8")) == 26
+            assert target.getText("UTF-8") == "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+        }
+    }
+
+    @Test void transcodeShouldConvertBetweenSingleByteCharsets() {
+        withTempFile { target ->
+            Io.transcode(new File("test/resources/test_file.ebcdic"),
+                Charset.forName("Cp037"), target,
+                Charset.forName("ISO-8859-1"))
+            assert target.getText("ISO-8859-1") ==
+                "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+        }
+    }
+
+    @Test void transcodeShouldConvertFilesLargerThanTheBuffers() {
+        withTempFile { source ->
+            withTempFile { target ->
+                def contents = "ABC é \uD83D\uDE00\n" * 20000
+                source.write(contents, "UTF-8")
+                Io.transcode(source, Charset.forName("UTF-8"), target,
+                    Charset.forName("UTF-16BE"))
+                assert target.getText("UTF-16BE") == contents
+            }
+        }
+    }
+
+    @Test void transcodeShouldConvertUtf8BackToEbcdic() {
+        withTempFile { source ->
+            withTempFile { target ->
+                source.write("ABC", "UTF-8")
+                Io.transcode(source, Charset.forName("UTF-8"), target,
+                    Charset.forName("Cp037"))
+                assert target.bytes == "ABC".getBytes("Cp037")
+            }
+        }
+    }
+
+    @Test void transcodeShouldThrowAnIoExceptionWhenACharacterIsUnmappable() {
+        withTempFile { source ->
+            withTempFile { target ->
+                source.write("A\u20AC", "UTF-8")
+                assertException(IoException) {
+                    Io.transcode(source, Charset.forName("UTF-8"), target,
+                        Charset.forName("Cp037"))
+                }
+            }
+        }
+    }
+
+    @Test void transcodeShouldThrowAnIoExceptionWhenAByteIsUnmappable() {
+        withTempFile { source ->
+            withTempFile { target ->
+                source.bytes = [ 0x41, 0xE9 ] as byte[]
+                assertException(IoException) {
+                    Io.transcode(source, Charset.forName("ISO-8859-1"),
+                        target, Charset.forName("US-ASCII"))
+                }
+            }
+        }
+    }
+
+    @Test void readAllShouldThrowAnExceptionWhenFilesIsNull() {
+        assertException(NullPointerException) {
+            Io.readAll(null, Charset.defaultCharset())
+        }
+    }
+
+    @Test void readAllShouldReadTheFilesInOrder() {
+        def files = [ new File("test/resources/test_file.txt"),
+                      new File("file_not_found.txt"),
+                      new File("test/resources/test_file.ebcdic") ]
+        def contents = Io.readAll(files, Charset.forName("ISO-8859-1"))
+        assert contents.keySet() as List == files
+        assert contents[files[0]] == "Test file contents.\n"
+        assert contents[files[1]] == null
+        assert contents[files[2]].length() == 26
+    }
+
+    @Test void readAllShouldReadManyFiles() {
+        def files = (1..100).collect {
+            new File("test/resources/test_file.txt")
+        } + (1..100).collect { new File("file_not_found_" + it) }
+        def contents = Io.readAll(files, Charset.forName("UTF-8"))
+        assert contents.size() == 101
+    }
+
+    @Test void readAllShouldShareAPoolOfDaemonThreads() {
+        def files = (1..50).collect { new File("file_not_found_" + it) }
+        3.times { Io.readAll(files, Charset.forName("UTF-8")) }
+        def threads = Thread.allStackTraces.keySet().findAll {
+            it.name.startsWith("io-read-") }
+        assert threads && threads.every { it.daemon }
+        assert threads.size() <= 16
+    }
+
+    @Test void readAllShouldThrowTheFirstFailure() {
+        assertException(IoException) {
+            Io.readAll([ new File("test/resources/test_file.ebcdic") ],
+                Charset.forName("UTF-8"))
+        }
+    }
+
+    @Test void readAllShouldAddFailuresToTheFailures() {
+        def executor = Executors.newFixedThreadPool(2)
+        try {
+            def text = new File("test/resources/test_file.txt")
+            def ebcdic = new File("test/resources/test_file.ebcdic")
+            def failures = [:]
+            def contents = Io.readAll([ text, ebcdic ],
+                Charset.forName("UTF-8"), executor, failures)
+            assert contents.keySet() == [ text ] as Set
+            assert failures.keySet() == [ ebcdic ] as Set
+            assert failures[ebcdic] instanceof IoException
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test void readIntoABuilderShouldBeMinusOneWhenTheFileIsNotFound() {
+        def builder = new StringBuilder()
+        assert Io.read(new File("file_not_found.txt"),
+            Charset.forName("UTF-8"), builder) == -1
+        assert Io.read((File)null, Charset.forName("UTF-8"), builder) == -1
+    }
+
+    @Test void readIntoABuilderShouldAppendTheContents() {
+        def builder = new StringBuilder("> ")
+        assert Io.read(new File("test/resources/test_file.ebcdic"),
+            Charset.forName("Cp037"), builder) == 26
+        assert builder.toString() == "> ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+    }
+
+    @Test void readIntoABuilderShouldReadFilesLargerThanTheBuffers() {
+        withTempFile { file ->
+            def contents = "\u00e9abc\n" * 50000
+            file.write(contents, "UTF-8")
+            def builder = new StringBuilder()
+            assert Io.read(file, Charset.forName("UTF-8"), builder) ==
+                contents.length()
+            assert builder.toString() == contents
+        }
+    }
+
+    @Test void readIntoABuilderShouldThrowAnIoExceptionWhenTooLarge() {
+        assertException(IoException) {
+            Io.read(new File("test/resources/test_file.txt"),
+                Charset.forName("UTF-8"), new StringBuilder(), 5)
+        }
+    }
+
+    @Test void readIntoACharBufferShouldDecodeTheContents() {
+        def buffer = java.nio.CharBuffer.allocate(100)
+        buffer.put("> ")
+        assert Io.read(new File("test/resources/test_file.txt"),
+            Charset.forName("UTF-8"), buffer) == 20
+        buffer.flip()
+        assert buffer.toString() == "> Test file contents.\n"
+    }
+
+    @Test void readIntoACharBufferShouldThrowAnIoExceptionWhenFull() {
+        [ "UTF-8", "Cp037" ].each { charset ->
+            assertException(IoException) {
+                Io.read(new File("test/resources/test_file.txt"),
+                    Charset.forName(charset),
+                    java.nio.CharBuffer.allocate(10))
+            }
+        }
+    }
+
+    @Test void readIntoAByteArrayShouldReadTheBytes() {
+        def bytes = new byte[100]
+        assert Io.read(new File("test/resources/test_file.txt"), bytes) == 20
+        assert new String(bytes, 0, 20, "UTF-8") == "Test file contents.\n"
+    }
+
+    @Test void readIntoAByteArrayShouldThrowAnIoExceptionWhenTooSmall() {
+        assertException(IoException) {
+            Io.read(new File("test/resources/test_file.txt"), new byte[19])
+        }
+    }
+
+    @Test void readIntoAByteBufferShouldBeMinusOneWhenTheFileIsNotFound() {
+        assert Io.read(new File("file_not_found.txt"),
+            java.nio.ByteBuffer.allocate(10)) == -1
+    }
+
+    @Test void writeShouldThrowAnExceptionWhenTheFileIsNull() {
+        assertException(NullPointerException) {
+            Io.write((File)null, "ABC", Charset.forName("UTF-8"))
+        }
+    }
+
+    @Test void writeShouldReplaceTheContentsOfTheFile() {
+        withTempFile { file ->
+            file.write("old contents", "UTF-8")
+            assert Io.write(file, "ABC", Charset.forName("Cp037")) == 3
+            assert file.getText("Cp037") == "ABC"
+        }
+    }
+
+    @Test void writeShouldWriteContentsLargerThanTheBuffers() {
+        [ "UTF-8", "UTF-16BE", "Cp037" ].each { charset ->
+            withTempFile { file ->
+                def contents = "ABC \u00e9 xyz\n" * 200000
+                Io.write(file, contents, Charset.forName(charset))
+                assert file.getText(charset) == contents
+            }
+        }
+    }
+
+    @Test void writeShouldJoinASurrogatePairSplitAcrossSequences() {
+        withTempFile { file ->
+            Io.write(file, [ "a\uD83D", new StringBuilder("\uDE00b") ],
+                Charset.forName("UTF-8"))
+            assert file.getText("UTF-8") == "a\uD83D\uDE00b"
+        }
+    }
+
+    @Test void writeShouldThrowAnIoExceptionWhenACharacterCannotBeEncoded() {
+        withTempFile { file ->
+            assertException(IoException) {
+                Io.write(file, "\u20ac", Charset.forName("Cp037"))
+            }
+        }
+    }
+
+    @Test void writeAtomicallyShouldReplaceTheFileAndLeaveNoTemporaryFile() {
+        withTempFile { file ->
+            file.write("old contents", "UTF-8")
+            Io.write(file, [ "new ", "contents" ], Charset.forName("UTF-8"),
+                true)
+            assert file.getText("UTF-8") == "new contents"
+            assert !file.parentFile.list().any {
+                it.startsWith("." + file.name)
+            }
+        }
+    }
+
+    @Test void writeAtomicallyShouldLeaveTheFileWhenTheWriteFails() {
+        withTempFile { file ->
+            file.write("old contents", "UTF-8")
+            assertException(IoException) {
+                Io.write(file, [ "\u20ac" ], Charset.forName("Cp037"), true)
+            }
+            assert file.getText("UTF-8") == "old contents"
+        }
+    }
+
+    // renames like a platform where a rename cannot replace a file
+    static class NoReplaceFile extends File {
+        NoReplaceFile(File file) {
+            super(file.path)
+        }
+
+        boolean renameTo(File dest) {
+            !dest.exists() && super.renameTo(dest)
+        }
+    }
+
+    @Test void replaceShouldRenameTheTargetAsideWhenARenameCannotReplace() {
+        withTempFile { source ->
+            withTempFile { target ->
+                source.write("new contents", "UTF-8")
+                target.write("old contents", "UTF-8")
+                Io.move(new NoReplaceFile(source), target)
+                assert !source.exists()
+                assert target.getText("UTF-8") == "new contents"
+                assert !target.parentFile.list().any {
+                    it.startsWith("." + target.name)
+                }
+            }
+        }
+    }
+
+    @Test void appendShouldWriteToTheEndOfTheFile() {
+        withTempFile { file ->
+            file.write("ABC", "UTF-8")
+            assert Io.append(file, [ "DEF", "GHI" ],
+                Charset.forName("UTF-8")) == 6
+            assert file.getText("UTF-8") == "ABCDEFGHI"
+        }
+    }
+
+    @Test void copyShouldThrowAnExceptionWhenTheSourceIsNull() {
+        assertException(NullPointerException) {
+            Io.copy(null, new File("target.txt"))
+        }
+    }
+
+    @Test void copyShouldThrowAnIoExceptionWhenTheSourceIsNotFound() {
+        withTempFile { target ->
+            assertException(IoException) {
+                Io.copy(new File("file_not_found.txt"), target)
+            }
+        }
+    }
+
+    @Test void copyShouldCopyTheBytes() {
+        withTempFile { target ->
+            target.write("old contents", "UTF-8")
+            assert Io.copy(new File("test/resources/test_file.ebcdic"),
+                target) == 26
+            assert target.getText("Cp037") == "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+        }
+    }
+
+    @Test void copyShouldNotTruncateAFileCopiedToItself() {
+        withTempFile { file ->
+            file.write("ABCDE", "UTF-8")
+            def alias = new File(file.parentFile,
+                "../" + file.parentFile.name + "/" + file.name)
+            assertException(IoException) { Io.copy(file, alias) }
+            assert file.getText("UTF-8") == "ABCDE"
+        }
+    }
+
+    @Test void copyShouldPreserveTheTimestamp() {
+        withTempFile { source ->
+            withTempFile { target ->
+                source.write("ABC", "UTF-8")
+                source.setLastModified(1000000000000)
+                Io.copy(source, target, true)
+                assert target.lastModified() == source.lastModified()
+            }
+        }
+    }
+
+    @Test void moveShouldMoveTheFile() {
+        withTempFile { source ->
+            withTempFile { target ->
+                source.write("ABC", "UTF-8")
+                target.write("old contents", "UTF-8")
+                Io.move(source, target)
+                assert !source.exists()
+                assert target.getText("UTF-8") == "ABC"
+            }
+        }
+    }
+
+    @Test void moveShouldLeaveTheTargetWhenTheSourceIsNotFound() {
+        withTempFile { target ->
+            target.write("old contents", "UTF-8")
+            assertException(IoException) {
+                Io.move(new File("file_not_found.txt"), target)
+            }
+            assert target.getText("UTF-8") == "old contents"
+        }
+    }
+
+    @Test void moveShouldLeaveAFileMovedOntoItself() {
+        withTempFile { file ->
+            file.write("ABC", "UTF-8")
+            Io.move(file, new File(file.parentFile, "./" + file.name))
+            assert file.getText("UTF-8") == "ABC"
+        }
+    }
+
+    @Test void checksumShouldThrowAnIoExceptionWhenTheFileIsNotFound() {
+        assertException(IoException) {
+            Io.checksum(new File("file_not_found.txt"))
+        }
+    }
+
+    @Test void checksumShouldMatchCrc32OfTheWholeFile() {
+        withTempFile { file ->
+            def bytes = new byte[3 * ParallelReader.MIN_CHUNK_SIZE + 17]
+            new Random(1).nextBytes(bytes)
+            file.bytes = bytes
+            def crc = new java.util.zip.CRC32()
+            crc.update(bytes)
+            def executor = Executors.newFixedThreadPool(2)
+            try {
+                assert Io.checksum(file, executor) == crc.value
+            } finally {
+                executor.shutdown()
+            }
+        }
+    }
+
+    @Test void checksumShouldChecksumLargeFilesOnASharedPool() {
+        withTempFile { file ->
+            def bytes = new byte[3 * ParallelReader.MIN_CHUNK_SIZE + 17]
+            new Random(2).nextBytes(bytes)
+            file.bytes = bytes
+            def crc = new java.util.zip.CRC32()
+            crc.update(bytes)
+            3.times { assert Io.checksum(file) == crc.value }
+            def threads = Thread.allStackTraces.keySet().findAll {
+                it.name.startsWith("io-parallel-") }
+            assert threads && threads.every { it.daemon }
+            assert threads.size() <= Runtime.runtime.availableProcessors()
+        }
+    }
+
+    @Test void digestShouldComputeSha256() {
+        def expected = java.security.MessageDigest.getInstance("SHA-256")
+            .digest(new File("test/resources/test_file.txt").bytes)
+        assert Io.digest(new File("test/resources/test_file.txt"),
+            "SHA-256") == expected
+    }
+
+    @Test void digestShouldThrowAnExceptionWhenTheAlgorithmIsUnknown() {
+        assertException(IllegalArgumentException) {
+            Io.digest(new File("test/resources/test_file.txt"), "unknown")
+        }
+    }
+
+    def writeGzip(File file, List<String> members) {
+        def out = new FileOutputStream(file)
+        try {
+            members.each { member ->
+                def gzip = new java.util.zip.GZIPOutputStream(out)
+                gzip.write(member.getBytes("UTF-8"))
+                gzip.finish()
+            }
+        } finally {
+            out.close()
+        }
+    }
+
+    @Test void readShouldInflateAGzipFile() {
+        withTempFile { file ->
+            def contents = "ABC \u00e9 xyz\n" * 100000
+            writeGzip(file, [ contents ])
+            assert Io.read(file, Charset.forName("UTF-8")) == contents
+        }
+    }
+
+    @Test void readShouldInflateEveryMemberOfAGzipFile() {
+        withTempFile { file ->
+            writeGzip(file, [ "one\n", "two\n" ])
+            assert Io.read(file, Charset.forName("UTF-8")) == "one\ntwo\n"
+        }
+    }
+
+    @Test void linesShouldInflateAGzipFile() {
+        withTempFile { file ->
+            writeGzip(file, [ "one\ntwo\n" ])
+            assert Io.lines(file, Charset.forName("UTF-8")).collect() ==
+                [ "one", "two" ]
+        }
+    }
+
+    @Test void readShouldNotTrustTheSizeInAGzipTrailer() {
+        withTempFile { file ->
+            writeGzip(file, [ "one\n" ])
+            def bytes = file.bytes
+            bytes[bytes.length - 1] = 0x7F
+            bytes[bytes.length - 2] = 0xFF
+            file.bytes = bytes
+            assertException(IoException) {
+                Io.read(file, Charset.forName("UTF-8"))
+            }
+        }
+    }
+
+    @Test void readShouldThrowAnIoExceptionWhenAGzipFileIsCorrupt() {
+        withTempFile { file ->
+            writeGzip(file, [ "one\n" ])
+            def bytes = file.bytes
+            bytes[bytes.length - 8] ^= 1
+            file.bytes = bytes
+            assertException(IoException) {
+                Io.read(file, Charset.forName("UTF-8"))
+            }
+        }
+    }
 }
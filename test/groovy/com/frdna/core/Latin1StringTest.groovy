@@ -0,0 +1,79 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import org.junit.Test;
+
+class Latin1StringTest extends TestCase {
+
+    def latin1(String value) {
+        Latin1String.valueOf(value)
+    }
+
+    @Test void valueOfShouldBeNullWhenTheValueIsNull() {
+        assert Latin1String.valueOf((CharSequence) null) == null
+    }
+
+    @Test void valueOfShouldThrowAnExceptionWhenACharacterIsNotLatin1() {
+        assertException(IllegalArgumentException) { latin1("€") }
+    }
+
+    @Test void shouldHoldTheCharacters() {
+        def value = latin1("ABC é")
+        assert value.length() == 5
+        assert value.charAt(4) == 'é'
+        assert value.toString() == "ABC é"
+    }
+
+    @Test void hashCodeShouldMatchTheString() {
+        assert latin1("ABC é").hashCode() == "ABC é".hashCode()
+    }
+
+    @Test void equalsShouldCompareTheCharacters() {
+        assert latin1("ABC").equals(latin1("ABC"))
+        assert !latin1("ABC").equals(latin1("ABD"))
+        assert !latin1("ABC").equals("ABC")
+    }
+
+    @Test void subSequenceShouldBeALatin1String() {
+        assert latin1("ABCDEF").subSequence(1, 4).equals(latin1("BCD"))
+    }
+
+    @Test void stringsShouldWorkOnTheBytes() {
+        assert Strings.trimLowerCase(latin1("  ABC Def  ")) == "abc def"
+        assert Strings.truncate(latin1("ABCDEF"), 3) == "ABC"
+        assert Strings.leftJustify(latin1("AB"), '.' as char, 4) == "AB.."
+        assert Strings.rightJustify(latin1("AB"), '.' as char, 4) == "..AB"
+        assert Strings.join(", ", latin1("A"), null, latin1("B")) == "A, , B"
+        assert Strings.isEmpty(latin1(" \t\r\n"))
+        assert !Strings.isEmpty(latin1(" A "))
+    }
+
+    @Test void verifyShouldWorkOnTheBytes() {
+        assert Verify.alpha(latin1("ABCdef"))
+        assert !Verify.alpha(latin1("ABC1"))
+        assert !Verify.alpha(latin1(""))
+        assert Verify.alphaNumeric(latin1("ABC1"))
+        assert !Verify.alphaNumeric(latin1("ABC 1"))
+        assert Verify.length(latin1("ABC"), 1, 3)
+    }
+}
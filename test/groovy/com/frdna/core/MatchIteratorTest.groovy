@@ -0,0 +1,121 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.nio.charset.Charset;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+class MatchIteratorTest extends TestCase {
+
+    def withTempFile(String contents, String charset, Closure test) {
+        def file = File.createTempFile("match-iterator-test", ".txt")
+        try {
+            file.write(contents, charset)
+            test(file)
+        } finally {
+            file.delete()
+        }
+    }
+
+    def search(File file, String charset, String regex, long windowSize) {
+        new MatchIterator(new FileInputStream(file).channel,
+            Charset.forName(charset), Pattern.compile(regex), windowSize)
+    }
+
+    @Test void shouldThrowAnExceptionWhenTheCharsetIsNotSupported() {
+        withTempFile("a", "UTF-16") { file ->
+            assertException(IllegalArgumentException) {
+                search(file, "UTF-16", "a", 100)
+            }
+        }
+    }
+
+    @Test void searchShouldBeNullWhenTheFileIsNotFound() {
+        assert Io.search(new File("file_not_found.txt"),
+            Charset.forName("UTF-8"), Pattern.compile("a")) == null
+    }
+
+    @Test void shouldFindMatchesWithTheirLines() {
+        withTempFile("one\r\ntwo bad\nthree bad bad\n", "UTF-8") { file ->
+            def matches = Io.search(file, Charset.forName("UTF-8"),
+                Pattern.compile("bad")).collect()
+            assert matches*.lineNumber == [ 2, 3, 3 ]
+            assert matches*.lineOffset == [ 5, 13, 13 ]
+            assert matches*.start == [ 4, 6, 10 ]
+            assert matches*.text == [ "bad", "bad", "bad" ]
+        }
+    }
+
+    @Test void shouldMatchTheEndOfEachLine() {
+        withTempFile("ab\r\ncb\nb", "Cp037") { file ->
+            assert search(file, "Cp037", "^.b\$", 100).collect()*.text ==
+                [ "ab", "cb" ]
+        }
+    }
+
+    def withTempBytes(List<Integer> bytes, Closure test) {
+        def file = File.createTempFile("match-iterator-test", ".txt")
+        try {
+            file.bytes = bytes as byte[]
+            test(file)
+        } finally {
+            file.delete()
+        }
+    }
+
+    @Test void shouldEndEbcdicLinesWithNewLineOrLineFeed() {
+        // "ab" NL "cb" LF "b" in Cp037 and Cp1047
+        def bytes = [ 0x81, 0x82, 0x15, 0x83, 0x82, 0x25, 0x82 ]
+        withTempBytes(bytes) { file ->
+            ["Cp037", "Cp1047"].each { charset ->
+                def matches = search(file, charset, "^.*\$", 100).collect()
+                assert matches*.text == [ "ab", "cb", "b" ]
+                assert matches*.lineOffset == [ 0, 3, 6 ]
+            }
+        }
+    }
+
+    @Test void shouldOnlyStripACarriageReturnBeforeALineEnd() {
+        // "a" 0xFF NL "b" CR NL in Cp037
+        withTempBytes([ 0x81, 0xFF, 0x15, 0x82, 0x0D, 0x15 ]) { file ->
+            assert search(file, "Cp037", "^.*\$", 100).collect()*.text ==
+                [ "a\u009F", "b" ]
+        }
+    }
+
+    @Test void shouldSearchAcrossWindows() {
+        def contents = (1..100).collect { "line $it" }.join("\n")
+        withTempFile(contents, "UTF-8") { file ->
+            assert search(file, "UTF-8", "line \\d+", 32).collect().size() ==
+                100
+        }
+    }
+
+    @Test void shouldThrowAnIoExceptionWhenALineIsLongerThanTheWindow() {
+        withTempFile("short\n" + ("x" * 100) + "\n", "UTF-8") { file ->
+            def matches = search(file, "UTF-8", "x", 32)
+            assertException(IoException) { matches.collect() }
+        }
+    }
+}
@@ -93,4 +93,374 @@ class NumbersTest extends TestCase {
                   (byte) 0x9C ] as byte[],
                 Numbers.pack("+1233456789"))
     }
+
+    @Test void packShouldWriteIntoTheArrayWithLeadingZeros() {
+        def bytes = new byte[5]
+        assert Numbers.pack(-345L, bytes, 1, 5) == 3
+        Assert.assertArrayEquals(
+                [ (byte) 0x00,
+                  (byte) 0x00,
+                  (byte) 0x34,
+                  (byte) 0x5D,
+                  (byte) 0x00 ] as byte[],
+                bytes)
+    }
+
+    @Test void packShouldNotWritePastTheLimitOfABuffer() {
+        def buffer = java.nio.ByteBuffer.allocate(4)
+        buffer.limit(2)
+        assertException(IndexOutOfBoundsException) {
+            Numbers.pack(12345L, buffer, 0, 5)
+        }
+        assert buffer.array() as List == [0, 0, 0, 0] as byte[] as List
+    }
+
+    @Test void packShouldNotWritePastTheEndOfASlice() {
+        def parent = java.nio.ByteBuffer.allocate(4)
+        parent.position(1)
+        def slice = parent.slice()
+        slice.limit(2)
+        assertException(IndexOutOfBoundsException) {
+            Numbers.pack(12345L, slice, 0, 5)
+        }
+        assert parent.array() as List == [0, 0, 0, 0] as byte[] as List
+    }
+
+    @Test void packSignedShouldWriteIntoADirectBuffer() {
+        def buffer = java.nio.ByteBuffer.allocateDirect(4)
+        assert Numbers.packSigned(1234L, buffer, 1, 4) == 3
+        assert buffer.position() == 0
+        assert buffer.get(1) == (byte) 0x01
+        assert buffer.get(2) == (byte) 0x23
+        assert buffer.get(3) == (byte) 0x4C
+    }
+
+    @Test void packShouldPackTheSmallestLong() {
+        def bytes = new byte[10]
+        Numbers.packSigned(Long.MIN_VALUE, bytes, 0, 19)
+        assert Numbers.unpackLong(bytes, 0, 10) ==
+            Long.MIN_VALUE
+    }
+
+    @Test void packShouldThrowAnExceptionWhenTheValueHasTooManyDigits() {
+        assertException(NumberFormatException) {
+            Numbers.pack(1234L, new byte[2], 0, 3)
+        }
+    }
+
+    @Test void packShouldThrowAnExceptionWhenTheArrayIsTooSmall() {
+        assertException(IndexOutOfBoundsException) {
+            Numbers.pack(123L, new byte[2], 1, 3)
+        }
+    }
+
+    @Test void packShouldThrowAnExceptionWhenTheStringIsNotANumber() {
+        assertException(NumberFormatException) { Numbers.pack("1.5") }
+    }
+
+    @Test void unpackLongShouldReadAPackedDecimal() {
+        def bytes = [0x00, 0x12, 0x34, 0x5D] as byte[]
+        assert Numbers.unpackLong(bytes, 1, 3) == -12345L
+        assert Numbers.unpackLong(java.nio.ByteBuffer.wrap(bytes), 1, 3) ==
+            -12345L
+        assert Numbers.unpackLong([0x12, 0x3F] as byte[], 0, 2) == 123L
+    }
+
+    @Test void unpackLongShouldThrowAnExceptionWhenTheValueIsTooLarge() {
+        def bytes = new byte[10]
+        Numbers.pack(Long.MAX_VALUE, bytes, 0, 19)
+        bytes[0] = (byte) 0x99
+        assertException(NumberFormatException) {
+            Numbers.unpackLong(bytes, 0, 10)
+        }
+    }
+
+    @Test void unpackLongShouldThrowAnExceptionForAnInvalidDigit() {
+        assertException(NumberFormatException) {
+            Numbers.unpackLong([0x1A, 0x2C] as byte[], 0, 2)
+        }
+    }
+
+    @Test void unpackLongShouldThrowAnExceptionForAnInvalidSign() {
+        assertException(NumberFormatException) {
+            Numbers.unpackLong([0x12, 0x34] as byte[], 0, 2)
+        }
+    }
+
+    @Test void unpackDecimalShouldApplyTheScale() {
+        def bytes = [0x12, 0x34, 0x5D] as byte[]
+        assert Numbers.unpackDecimal(bytes, 0, 3, 2) == new BigDecimal("-123.45")
+    }
+
+    @Test void unpackDecimalShouldReadValuesLargerThanALong() {
+        def bytes = new byte[12]
+        Numbers.pack(Long.MAX_VALUE, bytes, 2, 19)
+        bytes[0] = 0x09
+        assert Numbers.unpackDecimal(bytes, 0, 12, 3) ==
+            new BigDecimal("9009223372036854775.807")
+    }
+
+    @Test void unpackShouldAppendTheDigits() {
+        def bytes = [0x00, 0x01, 0x23, 0x4D] as byte[]
+        def builder = new StringBuilder("x")
+        assert Numbers.unpack(bytes, 0, 4, 1, builder) == 6
+        assert builder.toString() == "x-123.4"
+    }
+
+    @Test void unpackShouldPadSmallFractions() {
+        def builder = new StringBuilder()
+        Numbers.unpack([0x5C] as byte[], 0, 1, 3, builder)
+        assert builder.toString() == "0.005"
+    }
+
+    @Test void unpackShouldNotWriteANegativeZero() {
+        def builder = new StringBuilder()
+        Numbers.unpack([0x00, 0x0D] as byte[], 0, 2, 0, builder)
+        assert builder.toString() == "0"
+    }
+
+    @Test void unpackShouldNotAppendAnInvalidPackedDecimal() {
+        def builder = new StringBuilder()
+        assertException(NumberFormatException) {
+            Numbers.unpack([0x12, 0xA3] as byte[], 0, 2, 0, builder)
+        }
+        assert builder.length() == 0
+    }
+
+    @Test void addShouldAddInPlace() {
+        def total = [0x00, 0x09, 0x9C] as byte[]
+        Numbers.add([0x00, 0x1C] as byte[], 0, 2, total, 0, 3)
+        assert Numbers.unpackLong(total, 0, 3) == 100L
+        Numbers.add([0x12, 0x3D] as byte[], 0, 2, total, 0, 3)
+        assert Numbers.unpackLong(total, 0, 3) == -23L
+        assert total[2] == (byte) 0x3D
+    }
+
+    @Test void addShouldKeepAnUnsignedSign() {
+        def total = [0x00, 0x1F] as byte[]
+        Numbers.add([0x2C] as byte[], 0, 1, total, 0, 2)
+        assert total as List == [0x00, 0x3F] as byte[] as List
+    }
+
+    @Test void addShouldNotChangeTheTotalOnOverflow() {
+        def total = [0x99, 0x9C] as byte[]
+        assertException(ArithmeticException) {
+            Numbers.add([0x1C] as byte[], 0, 1, total, 0, 2)
+        }
+        assert total as List == [0x99, 0x9C] as byte[] as List
+    }
+
+    @Test void subtractShouldSubtractInPlace() {
+        def total = [0x00, 0x5C] as byte[]
+        Numbers.subtract([0x00, 0x5C] as byte[], 0, 2, total, 0, 2)
+        assert total as List == [0x00, 0x0C] as byte[] as List
+        Numbers.subtract([0x7D] as byte[], 0, 1, total, 0, 2)
+        assert Numbers.unpackLong(total, 0, 2) == 7L
+    }
+
+    @Test void compareShouldCompareValuesOfDifferentLengths() {
+        def small = [0x00, 0x00, 0x5D] as byte[]
+        def large = [0x1C] as byte[]
+        assert Numbers.compare(small, 0, 3, large, 0, 1) < 0
+        assert Numbers.compare(large, 0, 1, small, 0, 3) > 0
+        assert Numbers.compare([0x00, 0x1F] as byte[], 0, 2, large, 0, 1) == 0
+        assert Numbers.compare([0x0D] as byte[], 0, 1,
+            [0x00, 0x0C] as byte[], 0, 2) == 0
+    }
+
+    @Test void negateShouldFlipTheSign() {
+        def bytes = [0x12, 0x3F] as byte[]
+        Numbers.negate(bytes, 0, 2)
+        assert Numbers.unpackLong(bytes, 0, 2) == -123L
+        Numbers.negate(bytes, 0, 2)
+        assert bytes[1] == (byte) 0x3C
+    }
+
+    @Test void packColumnShouldPackFixedWidthValues() {
+        def column = Numbers.packColumn([12L, -345L, 0L] as long[], 3)
+        assert column.remaining() == 6
+        assert column.array() as List ==
+            [0x01, 0x2C, 0x34, 0x5D, 0x00, 0x0C] as byte[] as List
+    }
+
+    @Test void packColumnShouldPackInts() {
+        def column = Numbers.packColumn([7, -8] as int[], 1)
+        assert column.array() as List == [0x7C, 0x8D] as byte[] as List
+    }
+
+    @Test void packColumnShouldMatchInParallel() {
+        def values = new long[PackedColumns.SLICE_SIZE * 2 + 5]
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i % 2 == 0) ? i * 31L : -i
+        }
+        def executor = java.util.concurrent.Executors.newFixedThreadPool(2)
+        try {
+            def column = Numbers.packColumn(values, 11, executor)
+            assert column == Numbers.packColumn(values, 11)
+            assert Numbers.unpackColumn(column, 11, executor) == values
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test void packColumnShouldThrowAnExceptionWhenAValueIsTooLarge() {
+        assertException(NumberFormatException) {
+            Numbers.packColumn([1L, 1000L] as long[], 3)
+        }
+    }
+
+    @Test void unpackColumnShouldStartAtThePosition() {
+        def column = java.nio.ByteBuffer.wrap(
+            [0xFF, 0x01, 0x2C, 0x34, 0x5D] as byte[])
+        column.position(1)
+        assert Numbers.unpackColumn(column, 3) == [12L, -345L] as long[]
+        assert column.position() == 1
+    }
+
+    @Test void unpackColumnShouldThrowAnExceptionForAPartialValue() {
+        assertException(IllegalArgumentException) {
+            Numbers.unpackColumn(java.nio.ByteBuffer.allocate(5), 3)
+        }
+    }
+
+    @Test void zoneShouldWriteEbcdicDigits() {
+        def bytes = new byte[4]
+        assert Numbers.zone(123L, bytes, 1, 3, true) == 3
+        assert bytes as List == [0x00, 0xF1, 0xF2, 0xF3] as byte[] as List
+        Numbers.zone(-123L, bytes, 1, 3, true)
+        assert bytes[3] == (byte) 0xD3
+        Numbers.zoneSigned(123L, bytes, 1, 3, true)
+        assert bytes[3] == (byte) 0xC3
+    }
+
+    @Test void zoneShouldOverpunchAsciiDigits() {
+        def bytes = new byte[4]
+        Numbers.zoneSigned(-1230L, bytes, 0, 4, false)
+        assert new String(bytes, "US-ASCII") == "123}"
+        Numbers.zoneSigned(1231L, bytes, 0, 4, false)
+        assert new String(bytes, "US-ASCII") == "123A"
+        Numbers.zone(1231L, java.nio.ByteBuffer.wrap(bytes), 0, 4, false)
+        assert new String(bytes, "US-ASCII") == "1231"
+    }
+
+    @Test void zoneShouldThrowAnExceptionWhenTheValueHasTooManyDigits() {
+        assertException(NumberFormatException) {
+            Numbers.zone(1234L, new byte[4], 0, 3, true)
+        }
+    }
+
+    @Test void zoneBigDecimalShouldRoundToTheScale() {
+        def bytes = new byte[5]
+        assert Numbers.zoneSigned(new BigDecimal("-12.345"), bytes, 0, 5, 3,
+            false) == 5
+        assert new String(bytes, "US-ASCII") == "1234N"
+        Numbers.zone(new BigDecimal("1.2"), bytes, 0, 5, 3, true)
+        assert bytes == [0xF0, 0xF1, 0xF2, 0xF0, 0xF0] as byte[]
+    }
+
+    @Test void zoneBigDecimalShouldWriteValuesLargerThanALong() {
+        def bytes = new byte[26]
+        def value = new BigDecimal("-12345678901234567890123.45")
+        Numbers.zoneSigned(value, java.nio.ByteBuffer.wrap(bytes), 0, 26, 3,
+            false)
+        assert new String(bytes, "US-ASCII") == "1234567890123456789012345}"
+        assert Numbers.unzoneDecimal(bytes, 0, 26, 3, false) ==
+            new BigDecimal("-12345678901234567890123.450")
+        Numbers.zoneSigned(value.negate(), bytes, 0, 26, 3, true)
+        assert Numbers.unzoneDecimal(bytes, 0, 26, 3, true) ==
+            new BigDecimal("12345678901234567890123.450")
+    }
+
+    @Test void zoneBigDecimalShouldThrowAnExceptionForTooManyDigits() {
+        assertException(NumberFormatException) {
+            Numbers.zone(new BigDecimal("1e25"), new byte[26], 0, 25, 0, true)
+        }
+    }
+
+    @Test void unzoneLongShouldReadEbcdicDigits() {
+        def bytes = [0xF0, 0xF1, 0xF2, 0xD3] as byte[]
+        assert Numbers.unzoneLong(bytes, 0, 4, true) == -123L
+        bytes[3] = (byte) 0xF3
+        assert Numbers.unzoneLong(bytes, 0, 4, true) == 123L
+    }
+
+    @Test void unzoneLongShouldReadAsciiOverpunches() {
+        assert Numbers.unzoneLong("12R".getBytes("US-ASCII"), 0, 3, false) ==
+            -129L
+        assert Numbers.unzoneLong("12{".getBytes("US-ASCII"), 0, 3, false) ==
+            120L
+        assert Numbers.unzoneLong("12p".getBytes("US-ASCII"), 0, 3, false) ==
+            -120L
+    }
+
+    @Test void unzoneLongShouldReadTheSmallestLong() {
+        def bytes = new byte[19]
+        Numbers.zoneSigned(Long.MIN_VALUE, bytes, 0, 19, true)
+        assert Numbers.unzoneLong(bytes, 0, 19, true) == Long.MIN_VALUE
+    }
+
+    @Test void unzoneLongShouldThrowAnExceptionForAnInvalidDigit() {
+        assertException(NumberFormatException) {
+            Numbers.unzoneLong("1 3".getBytes("US-ASCII"), 0, 3, false)
+        }
+    }
+
+    @Test void unzoneLongShouldThrowAnExceptionWhenTheValueIsTooLarge() {
+        def bytes = ("9" * 19).getBytes("US-ASCII")
+        assertException(NumberFormatException) {
+            Numbers.unzoneLong(bytes, 0, 19, false)
+        }
+    }
+
+    @Test void unzoneDecimalShouldApplyTheScale() {
+        def bytes = "12345N".getBytes("US-ASCII")
+        assert Numbers.unzoneDecimal(bytes, 0, 6, 2, false) ==
+            new BigDecimal("-1234.55")
+    }
+
+    @Test void unzoneDecimalShouldReadValuesLargerThanALong() {
+        def bytes = "1234567890123456789012345}".getBytes("US-ASCII")
+        assert Numbers.unzoneDecimal(bytes, 0, bytes.length, 3, false) ==
+            new BigDecimal("-12345678901234567890123.450")
+    }
+
+    @Test void packBigDecimalShouldPadTheScale() {
+        def bytes = new byte[3]
+        assert Numbers.packSigned(new BigDecimal("12.3"), bytes, 0, 5, 2) == 3
+        assert bytes as List == [0x01, 0x23, 0x0C] as byte[] as List
+    }
+
+    @Test void packBigDecimalShouldRoundHalfUp() {
+        def bytes = new byte[3]
+        Numbers.packSigned(new BigDecimal("-12.345"), bytes, 0, 5, 2)
+        assert bytes as List == [0x01, 0x23, 0x5D] as byte[] as List
+    }
+
+    @Test void packBigDecimalShouldReadExponents() {
+        def bytes = new byte[3]
+        Numbers.pack(new BigDecimal("1E+2"), bytes, 0, 5, 0)
+        assert bytes as List == [0x00, 0x10, 0x0F] as byte[] as List
+    }
+
+    @Test void packBigDecimalShouldPackValuesLargerThanALong() {
+        def value = new BigDecimal("-1234567890123456789012.345")
+        def buffer = java.nio.ByteBuffer.allocate(14)
+        assert Numbers.packSigned(value, buffer, 0, 25, 3) == 13
+        assert Numbers.unpackDecimal(buffer, 0, 13, 3) == value
+    }
+
+    @Test void packBigDecimalShouldNotWritePastTheLimitOfABuffer() {
+        def buffer = java.nio.ByteBuffer.allocate(4)
+        buffer.limit(2)
+        assertException(IndexOutOfBoundsException) {
+            Numbers.packSigned(new BigDecimal("1.5"), buffer, 0, 5, 1)
+        }
+        assert buffer.array() as List == [0, 0, 0, 0] as byte[] as List
+    }
+
+    @Test void packBigDecimalShouldThrowAnExceptionWhenTheValueIsTooLarge() {
+        assertException(NumberFormatException) {
+            Numbers.pack(new BigDecimal("1000.5"), new byte[3], 0, 5, 2)
+        }
+    }
 }
@@ -0,0 +1,197 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+class RecordCodecTest extends TestCase {
+
+    def layout(String charset = "Cp037") {
+        new RecordLayout<Account>(Account.class, Charset.forName(charset))
+            .display("name", 0, 8)
+            .zoned("branch", 8, 3)
+            .packed("balance", 11, 4, 2)
+            .binary("id", 15, 4)
+    }
+
+    def account() {
+        def account = new Account()
+        account.name = "Joe"
+        account.branch = -42
+        account.balance = new BigDecimal("-1234.5")
+        account.id = 258
+        account
+    }
+
+    @Test void compileShouldMeasureTheRecord() {
+        assert layout().compile().length() == 19
+    }
+
+    @Test void writeShouldEncodeEveryField() {
+        def buffer = ByteBuffer.allocate(19)
+        assert layout().compile().write(account(), buffer, 0) == 19
+        def bytes = buffer.array()
+        assert new String(bytes, 0, 8, "Cp037") == "Joe     "
+        assert bytes[8..10] == [0xF0, 0xF4, 0xD2] as byte[] as List
+        assert bytes[11..14] == [0x01, 0x23, 0x45, 0x0D] as byte[] as List
+        assert bytes[15..18] == [0x00, 0x00, 0x01, 0x02] as byte[] as List
+    }
+
+    @Test void readShouldDecodeEveryField() {
+        def codec = layout("US-ASCII").compile()
+        def buffer = ByteBuffer.allocate(21)
+        codec.write(account(), buffer, 2)
+        def record = new Record(Charset.forName("US-ASCII")).wrap(
+            buffer, 2, 19)
+        def account = codec.read(record)
+        assert account.name == "Joe"
+        assert account.branch == -42
+        assert account.balance == new BigDecimal("-1234.50")
+        assert account.id == 258
+    }
+
+    @Test void readShouldReuseABean() {
+        def codec = layout().compile()
+        def buffer = ByteBuffer.allocate(19)
+        codec.write(account(), buffer, 0)
+        def bean = new Account()
+        def record = new Record(Charset.forName("Cp037")).wrap(buffer, 0, 19)
+        assert codec.read(record, bean).is(bean)
+        assert bean.name == "Joe"
+    }
+
+    @Test void writeShouldTruncateLongNames() {
+        def account = account()
+        account.name = "Josephine Bloggs"
+        def buffer = ByteBuffer.allocate(19)
+        layout().compile().write(account, buffer, 0)
+        assert new String(buffer.array(), 0, 8, "Cp037") == "Josephin"
+    }
+
+    @Test void writeShouldThrowAnExceptionWhenANumberIsTooLarge() {
+        def account = account()
+        account.branch = 1000
+        assertException(NumberFormatException) {
+            layout().compile().write(account, ByteBuffer.allocate(19), 0)
+        }
+    }
+
+    @Test void zonedDecimalsShouldHoldMoreDigitsThanALong() {
+        def layout = new RecordLayout<Account>(
+                Account.class, Charset.forName("Cp037"))
+            .zoned("balance", 0, 24, 2)
+        def codec = layout.compile()
+        def account = new Account()
+        account.balance = new BigDecimal("-1234567890123456789012.34")
+        def buffer = ByteBuffer.allocate(24)
+        codec.write(account, buffer, 0)
+        def record = new Record(Charset.forName("Cp037")).wrap(buffer, 0, 24)
+        assert codec.read(record).balance == account.balance
+    }
+
+    @Test void writeShouldThrowAnExceptionWhenTheRecordDoesNotFit() {
+        assertException(IndexOutOfBoundsException) {
+            layout().compile().write(account(), ByteBuffer.allocate(20), 2)
+        }
+    }
+
+    @Test void compileShouldThrowAnExceptionForAMissingProperty() {
+        assertException(IllegalArgumentException) {
+            layout().display("missing", 19, 2).compile()
+        }
+    }
+
+    @Test void compileShouldThrowAnExceptionForAnUnsupportedType() {
+        assertException(IllegalArgumentException) {
+            layout().binary("balance", 19, 2).compile()
+        }
+    }
+
+    @Test void binaryShouldThrowAnExceptionForALongField() {
+        assertException(IllegalArgumentException) {
+            layout().binary("id", 19, 9)
+        }
+    }
+
+    def accessorLayout() {
+        new RecordLayout<Account>(Account.class, Charset.forName("Cp037"))
+            .display("name", 0, 8)
+            .accessor([
+                getString: { bean -> bean.name.toUpperCase() },
+                setString: { bean, value -> bean.name = value.toLowerCase() }
+            ] as FieldAccessor.OfString<Account>)
+            .zoned("branch", 8, 3)
+            .packed("balance", 11, 4, 2)
+            .accessor([
+                getDecimal: { bean -> bean.balance },
+                setDecimal: { bean, value -> bean.balance = value }
+            ] as FieldAccessor.OfDecimal<Account>)
+            .binary("id", 15, 4)
+            .accessor([
+                getLong: { bean -> bean.id + 1 },
+                setLong: { bean, value -> bean.id = value - 1 }
+            ] as FieldAccessor.OfLong<Account>)
+    }
+
+    @Test void writeShouldUseTheAccessors() {
+        def buffer = ByteBuffer.allocate(19)
+        accessorLayout().compile().write(account(), buffer, 0)
+        def bytes = buffer.array()
+        assert new String(bytes, 0, 8, "Cp037") == "JOE     "
+        assert bytes[8..10] == [0xF0, 0xF4, 0xD2] as byte[] as List
+        assert bytes[11..14] == [0x01, 0x23, 0x45, 0x0D] as byte[] as List
+        assert bytes[15..18] == [0x00, 0x00, 0x01, 0x03] as byte[] as List
+    }
+
+    @Test void readShouldUseTheAccessors() {
+        def codec = accessorLayout().compile()
+        def buffer = ByteBuffer.allocate(19)
+        codec.write(account(), buffer, 0)
+        def record = new Record(Charset.forName("Cp037")).wrap(buffer, 0, 19)
+        def account = codec.read(record)
+        assert account.name == "joe"
+        assert account.branch == -42
+        assert account.balance == new BigDecimal("-1234.50")
+        assert account.id == 258
+    }
+
+    @Test void accessorShouldThrowAnExceptionWithoutAField() {
+        assertException(IllegalStateException) {
+            new RecordLayout<Account>(Account.class, Charset.forName("Cp037"))
+                .accessor([
+                    getLong: { bean -> 0L }, setLong: { bean, value -> }
+                ] as FieldAccessor.OfLong<Account>)
+        }
+    }
+
+    @Test void compileShouldThrowAnExceptionForAnUnsupportedAccessor() {
+        assertException(IllegalArgumentException) {
+            layout().binary("balance", 19, 2).accessor([
+                getDecimal: { bean -> bean.balance },
+                setDecimal: { bean, value -> bean.balance = value }
+            ] as FieldAccessor.OfDecimal<Account>).compile()
+        }
+    }
+}
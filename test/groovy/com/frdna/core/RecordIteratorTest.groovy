@@ -0,0 +1,113 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+class RecordIteratorTest extends TestCase {
+
+    def iterator(String contents, String charset, String delimiter) {
+        def channel = Channels.newChannel(
+            new ByteArrayInputStream(contents.getBytes(charset)))
+        new RecordIterator(channel, Charset.forName(charset), delimiter)
+    }
+
+    @Test void shouldThrowAnExceptionWhenTheChannelIsNull() {
+        assertException(NullPointerException) {
+            new RecordIterator(null, Charset.defaultCharset())
+        }
+    }
+
+    @Test void shouldThrowAnExceptionWhenTheDelimiterIsEmpty() {
+        assertException(IllegalArgumentException) {
+            iterator("a", "UTF-8", "")
+        }
+    }
+
+    @Test void shouldReadLines() {
+        assert iterator("one\ntwo\r\nthree\n", "UTF-8", null).collect() ==
+            [ "one", "two", "three" ]
+    }
+
+    @Test void shouldReadTheLastLineWithoutATerminator() {
+        assert iterator("one\ntwo", "UTF-8", null).collect() ==
+            [ "one", "two" ]
+    }
+
+    @Test void shouldReadEmptyLines() {
+        assert iterator("one\n\ntwo\n", "UTF-8", null).collect() ==
+            [ "one", "", "two" ]
+    }
+
+    @Test void shouldNotHaveRecordsWhenTheChannelIsEmpty() {
+        assert !iterator("", "UTF-8", null).hasNext()
+    }
+
+    @Test void shouldReadRecordsSplitOnTheDelimiter() {
+        assert iterator("a||b|c||", "UTF-8", "||").collect() ==
+            [ "a", "b|c" ]
+    }
+
+    @Test void shouldReadRecordsLargerThanTheBuffers() {
+        def record = "é" * 40000
+        assert iterator(record + "\n" + record, "UTF-8", null).collect() ==
+            [ record, record ]
+    }
+
+    @Test void shouldDecodeTheRecordsForTheCharset() {
+        assert iterator("ABC\nDEF", "Cp037", null).collect() ==
+            [ "ABC", "DEF" ]
+    }
+
+    @Test void shouldThrowAnIoExceptionWhenTheContentsAreMalformed() {
+        def channel = Channels.newChannel(
+            new ByteArrayInputStream([ (byte) 0xC3 ] as byte[]))
+        def records = new RecordIterator(channel, Charset.forName("UTF-8"))
+        assertException(IoException) { records.next() }
+    }
+
+    @Test void nextShouldThrowAnExceptionWhenThereAreNoMoreRecords() {
+        def records = iterator("one", "UTF-8", null)
+        records.next()
+        assertException(NoSuchElementException) { records.next() }
+    }
+
+    @Test void closeShouldCloseTheChannel() {
+        def channel = Channels.newChannel(
+            new ByteArrayInputStream("one\ntwo".getBytes("UTF-8")))
+        def records = new RecordIterator(channel, Charset.forName("UTF-8"))
+        records.close()
+        assert !channel.isOpen()
+        assert !records.hasNext()
+    }
+
+    @Test void shouldCloseTheChannelAfterTheLastRecord() {
+        def channel = Channels.newChannel(
+            new ByteArrayInputStream("one".getBytes("UTF-8")))
+        def records = new RecordIterator(channel, Charset.forName("UTF-8"))
+        records.collect()
+        assert !channel.isOpen()
+    }
+}
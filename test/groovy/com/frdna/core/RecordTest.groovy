@@ -0,0 +1,194 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+class RecordTest extends TestCase {
+
+    def record(byte[] bytes) {
+        new Record(Charset.forName("Cp037")).wrap(
+            ByteBuffer.wrap(bytes), 0, bytes.length)
+    }
+
+    def record(String contents) {
+        record(contents.getBytes("Cp037"))
+    }
+
+    @Test void shouldThrowAnExceptionWhenTheCharsetIsNull() {
+        assertException(NullPointerException) { new Record(null) }
+    }
+
+    @Test void shouldThrowAnExceptionWhenTheCharsetIsNotSingleByte() {
+        assertException(IllegalArgumentException) {
+            new Record(Charset.forName("UTF-8"))
+        }
+    }
+
+    @Test void wrapShouldThrowAnExceptionWhenTheRangeIsOutsideTheBuffer() {
+        assertException(IndexOutOfBoundsException) {
+            new Record(Charset.forName("Cp037")).wrap(
+                ByteBuffer.allocate(4), 2, 3)
+        }
+    }
+
+    @Test void lengthShouldBeTheNumberOfBytesInTheRecord() {
+        assert record("ABCDEF").length() == 6
+    }
+
+    @Test void getByteShouldGetTheByteAtTheIndex() {
+        assert record("ABC").getByte(1) == (byte) 0xC2
+    }
+
+    @Test void getCharsShouldDecodeTheField() {
+        assert record("ABCDEF").getChars(2, 3).toString() == "CDE"
+    }
+
+    @Test void getCharsShouldBeRelativeToTheRecord() {
+        def bytes = "XXABCDEF".getBytes("Cp037")
+        def record = new Record(Charset.forName("Cp037")).wrap(
+            ByteBuffer.wrap(bytes), 2, 6)
+        assert record.getChars(0, 2).toString() == "AB"
+    }
+
+    @Test void getCharsShouldThrowAnExceptionWhenTheFieldIsOutsideTheRecord() {
+        assertException(IndexOutOfBoundsException) {
+            record("ABC").getChars(2, 2)
+        }
+    }
+
+    @Test void getCharsShouldReturnAViewThatCanBeSubSequenced() {
+        def chars = record("ABCDEF").getChars(1, 4)
+        assert chars.length() == 4
+        assert chars.charAt(0) == 'B'
+        assert chars.subSequence(1, 3).toString() == "CD"
+    }
+
+    @Test void getBytesShouldReturnTheBytesOfTheField() {
+        def bytes = record("ABCDEF").getBytes(1, 2)
+        assert bytes.remaining() == 2
+        assert bytes.get(0) == (byte) 0xC2
+        assert bytes.isReadOnly()
+    }
+
+    @Test void getLongShouldReadADisplayNumber() {
+        assert record("AB 00123 ").getLong(2, 7) == 123
+    }
+
+    @Test void getLongShouldReadASignedDisplayNumber() {
+        assert record("-42").getLong(0, 3) == -42
+        assert record("+42").getLong(0, 3) == 42
+    }
+
+    @Test void getLongShouldReadTheSmallestLong() {
+        assert record("-9223372036854775808").getLong(0, 20) ==
+            Long.MIN_VALUE
+    }
+
+    @Test void getLongShouldThrowAnExceptionWhenTheFieldIsNotANumber() {
+        assertException(NumberFormatException) {
+            record("12A4").getLong(0, 4)
+        }
+    }
+
+    @Test void getLongShouldThrowAnExceptionWhenTheFieldIsBlank() {
+        assertException(NumberFormatException) {
+            record("    ").getLong(0, 4)
+        }
+    }
+
+    @Test void getLongShouldThrowAnExceptionWhenTheNumberIsTooLarge() {
+        assertException(NumberFormatException) {
+            record("9223372036854775808").getLong(0, 19)
+        }
+    }
+
+    @Test void getPackedShouldReadAPositivePackedDecimal() {
+        assert record([ 0x12, 0x3C ] as byte[]).getPacked(0, 2) == 123
+    }
+
+    @Test void getPackedShouldReadAnUnsignedPackedDecimal() {
+        assert record([ 0x01, 0x23, 0x4F ] as byte[]).getPacked(0, 3) ==
+            1234
+    }
+
+    @Test void getPackedShouldReadANegativePackedDecimal() {
+        assert record([ 0x00, 0x12, 0x3D ] as byte[]).getPacked(1, 2) == -123
+    }
+
+    @Test void getPackedShouldThrowAnExceptionWhenADigitIsInvalid() {
+        assertException(NumberFormatException) {
+            record([ 0x1A, 0x3C ] as byte[]).getPacked(0, 2)
+        }
+    }
+
+    @Test void getPackedShouldThrowAnExceptionWhenTheSignIsInvalid() {
+        assertException(NumberFormatException) {
+            record([ 0x12, 0x33 ] as byte[]).getPacked(0, 2)
+        }
+    }
+
+    @Test void getZonedShouldReadAnEbcdicZonedDecimal() {
+        assert record([ 0xF1, 0xF2, 0xD3 ] as byte[]).getZoned(0, 3) == -123
+        assert record("12C").getZoned(0, 3) == 123
+    }
+
+    @Test void getZonedShouldReadAnAsciiZonedDecimal() {
+        def bytes = "x12L".getBytes("US-ASCII")
+        def record = new Record(Charset.forName("US-ASCII")).wrap(
+            ByteBuffer.wrap(bytes), 0, bytes.length)
+        assert record.getZoned(1, 3) == -123
+    }
+
+    @Test void getZonedShouldThrowAnExceptionWhenADigitIsInvalid() {
+        assertException(NumberFormatException) {
+            record("1 3").getZoned(0, 3)
+        }
+    }
+
+    @Test void getPackedShouldApplyTheScale() {
+        assert record([ 0x12, 0x3D ] as byte[]).getPacked(0, 2, 2) ==
+            new BigDecimal("-1.23")
+    }
+
+    @Test void getZonedShouldApplyTheScale() {
+        assert record("12C").getZoned(0, 3, 1) == new BigDecimal("12.3")
+    }
+
+    @Test void getBinaryShouldReadABigEndianNumber() {
+        assert record([ 0x01, 0x02 ] as byte[]).getBinary(0, 2) == 258
+        assert record([ 0xFF, 0xFE ] as byte[]).getBinary(0, 2) == -2
+    }
+
+    @Test void getBinaryShouldThrowAnExceptionForALongField() {
+        assertException(IllegalArgumentException) {
+            record(new byte[9]).getBinary(0, 9)
+        }
+    }
+
+    @Test void toStringShouldDecodeTheRecord() {
+        assert record("ABC").toString() == "ABC"
+    }
+}
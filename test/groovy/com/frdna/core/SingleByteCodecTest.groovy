@@ -0,0 +1,166 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.UnmappableCharacterException;
+
+import org.junit.Test;
+
+class SingleByteCodecTest extends TestCase {
+
+    def codec(String charset) {
+        SingleByteCodec.forCharset(Charset.forName(charset))
+    }
+
+    @Test void forCharsetShouldThrowAnExceptionWhenTheCharsetIsNull() {
+        assertException(NullPointerException) {
+            SingleByteCodec.forCharset(null)
+        }
+    }
+
+    @Test void forCharsetShouldBeNullWhenTheCharsetIsNotSingleByte() {
+        assert codec("UTF-8") == null
+        assert codec("UTF-16") == null
+    }
+
+    @Test void forCharsetShouldCacheTheCodec() {
+        assert codec("Cp037").is(codec("Cp037"))
+    }
+
+    @Test void forCharsetShouldSupportTheEbcdicCodePages() {
+        [ "Cp037", "Cp1047", "Cp500", "ISO-8859-1" ].each {
+            assert codec(it).charset == Charset.forName(it)
+        }
+    }
+
+    @Test void decodeShouldDecodeEveryByteLikeTheCharset() {
+        [ "Cp037", "Cp1047", "Cp500", "ISO-8859-1" ].each { name ->
+            def bytes = (0..255).collect { (byte) it } as byte[]
+            def chars = new char[256]
+            codec(name).decode(bytes, 0, chars, 0, 256)
+            assert new String(chars) == new String(bytes, name)
+        }
+    }
+
+    @Test void decodeShouldDecodeAByte() {
+        assert codec("Cp037").decode((byte) 0xC1) == 'A'
+    }
+
+    @Test void decodeShouldBeUnmappedWhenTheCharsetDoesNotMapTheByte() {
+        assert codec("US-ASCII").decode((byte) 0x80) ==
+            SingleByteCodec.UNMAPPED
+    }
+
+    @Test void decodeShouldThrowAnExceptionWhenAByteIsUnmapped() {
+        assertException(MalformedInputException) {
+            codec("US-ASCII").decode(
+                [ 0x41, 0x80 ] as byte[], 0, new char[2], 0, 2)
+        }
+    }
+
+    @Test void decodeShouldThrowAnExceptionWhenTheRangeIsOutsideTheArray() {
+        assertException(IndexOutOfBoundsException) {
+            codec("Cp037").decode(new byte[2], 1, new char[2], 0, 2)
+        }
+    }
+
+    @Test void decodeShouldDecodeAHeapBuffer() {
+        def bytes = ByteBuffer.wrap("ABCDEF".getBytes("Cp037"))
+        def chars = CharBuffer.allocate(4)
+        codec("Cp037").decode(bytes, chars)
+        assert bytes.position() == 4
+        assert chars.flip().toString() == "ABCD"
+    }
+
+    @Test void decodeShouldDecodeADirectBuffer() {
+        def bytes = ByteBuffer.allocateDirect(6)
+        bytes.put("ABCDEF".getBytes("Cp037")).flip()
+        def chars = CharBuffer.allocate(6)
+        codec("Cp037").decode(bytes, chars)
+        assert chars.flip().toString() == "ABCDEF"
+    }
+
+    @Test void decodeShouldLeaveTheBufferAtTheUnmappedByte() {
+        def bytes = ByteBuffer.allocateDirect(3)
+        bytes.put([ 0x41, 0x42, 0x80 ] as byte[]).flip()
+        assertException(MalformedInputException) {
+            codec("US-ASCII").decode(bytes, CharBuffer.allocate(3))
+        }
+        assert bytes.position() == 2
+    }
+
+    @Test void decodeShouldLeaveAHeapBufferAtTheUnmappedByte() {
+        def bytes = ByteBuffer.wrap([ 0x20, 0x41, 0x42, 0x80 ] as byte[])
+        bytes.position(1)
+        def chars = CharBuffer.allocate(4)
+        chars.put((char) 'x')
+        assertException(MalformedInputException) {
+            codec("US-ASCII").decode(bytes, chars)
+        }
+        assert bytes.position() == 3
+        assert chars.position() == 3
+        assert chars.flip().toString() == "xAB"
+    }
+
+    @Test void decodeShouldLeaveALongDirectBufferAtTheUnmappedByte() {
+        def bytes = ByteBuffer.allocateDirect(200000)
+        200000.times { bytes.put((byte) 0x41) }
+        bytes.put(150000, (byte) 0x80).flip()
+        def chars = CharBuffer.allocate(200000)
+        assertException(MalformedInputException) {
+            codec("US-ASCII").decode(bytes, chars)
+        }
+        assert bytes.position() == 150000
+        assert chars.position() == 150000
+        bytes.put(150000, (byte) 0x42)
+        codec("US-ASCII").decode(bytes, chars)
+        assert !bytes.hasRemaining()
+        assert chars.flip().toString() ==
+            ("A" * 150000) + "B" + ("A" * 49999)
+    }
+
+    @Test void encodeShouldEncodeACharacter() {
+        assert codec("Cp037").encode((char) 'A') == 0xC1
+    }
+
+    @Test void encodeShouldBeNegativeWhenTheCharsetDoesNotMapTheCharacter() {
+        assert codec("Cp037").encode((char) '€') == -1
+    }
+
+    @Test void encodeShouldEncodeABuffer() {
+        def bytes = ByteBuffer.allocate(6)
+        codec("Cp037").encode(CharBuffer.wrap("ABCDEF"), bytes)
+        assert bytes.array() == "ABCDEF".getBytes("Cp037")
+    }
+
+    @Test void encodeShouldThrowAnExceptionWhenACharacterIsUnmappable() {
+        def chars = CharBuffer.wrap("A€")
+        assertException(UnmappableCharacterException) {
+            codec("Cp037").encode(chars, ByteBuffer.allocate(2))
+        }
+        assert chars.position() == 1
+    }
+}
@@ -0,0 +1,115 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+class TailReaderTest extends TestCase {
+
+    def utf8 = Charset.forName("UTF-8")
+
+    def withTempFile(Closure test) {
+        def file = File.createTempFile("tail-reader-test", ".txt")
+        try {
+            test(file)
+        } finally {
+            file.delete()
+        }
+    }
+
+    def append(File file, byte[] bytes, int offset, int length) {
+        def out = new FileOutputStream(file, true)
+        try {
+            out.write(bytes, offset, length)
+        } finally {
+            out.close()
+        }
+    }
+
+    @Test void shouldThrowAnExceptionWhenTheFileIsNull() {
+        assertException(NullPointerException) {
+            new TailReader(null, utf8)
+        }
+    }
+
+    @Test void readShouldBeEmptyWhenTheFileIsNotFound() {
+        assert Io.tail(new File("file_not_found.txt"), utf8).read() == ""
+    }
+
+    @Test void readShouldReturnOnlyTheAppendedCharacters() {
+        withTempFile { file ->
+            def tail = Io.tail(file, utf8)
+            file.append("one\n", "UTF-8")
+            assert tail.read() == "one\n"
+            assert tail.read() == ""
+            file.append("two\n", "UTF-8")
+            assert tail.read() == "two\n"
+            assert tail.position == 8
+        }
+    }
+
+    @Test void readShouldHoldACharacterSplitAcrossReads() {
+        withTempFile { file ->
+            def tail = Io.tail(file, utf8)
+            def bytes = "aé😀".getBytes("UTF-8")
+            append(file, bytes, 0, 2)
+            assert tail.read() == "a"
+            append(file, bytes, 2, 3)
+            assert tail.read() == "é"
+            append(file, bytes, 5, 2)
+            assert tail.read() == "😀"
+        }
+    }
+
+    @Test void readShouldReadAppendsLargerThanTheBuffers() {
+        withTempFile { file ->
+            def tail = Io.tail(file, Charset.forName("Cp037"))
+            def contents = "ABC line\n" * 20000
+            file.append(contents, "Cp037")
+            assert tail.read() == contents
+        }
+    }
+
+    @Test void readShouldRestartWhenTheFileIsTruncated() {
+        withTempFile { file ->
+            def tail = Io.tail(file, utf8)
+            file.write("one\ntwo\n", "UTF-8")
+            tail.read()
+            file.write("new\n", "UTF-8")
+            assert tail.read() == "new\n"
+            assert tail.restarts == 1
+        }
+    }
+
+    @Test void readShouldRestartWhenTheFileIsReplaced() {
+        withTempFile { file ->
+            def tail = Io.tail(file, utf8)
+            file.write("one\n", "UTF-8")
+            tail.read()
+            file.write("two\nthree\n", "UTF-8")
+            assert tail.read() == "two\nthree\n"
+            assert tail.restarts == 1
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+class VariableRecordReaderTest extends TestCase {
+
+    def cp037 = Charset.forName("Cp037")
+
+    def concat(byte[]... parts) {
+        def out = new ByteArrayOutputStream()
+        parts.each { out.write(it) }
+        out.toByteArray()
+    }
+
+    def rdw(String contents) {
+        def bytes = contents.getBytes("Cp037")
+        def length = bytes.length + 4
+        concat([ length >> 8, length & 0xFF, 0, 0 ] as byte[], bytes)
+    }
+
+    def bdw(byte[] records) {
+        def length = records.length + 4
+        concat([ length >> 8, length & 0xFF, 0, 0 ] as byte[], records)
+    }
+
+    def reader(byte[] bytes, boolean blocked) {
+        new VariableRecordReader(
+            Channels.newChannel(new ByteArrayInputStream(bytes)),
+            cp037,
+            blocked)
+    }
+
+    @Test void shouldThrowAnExceptionWhenTheChannelIsNull() {
+        assertException(NullPointerException) {
+            new VariableRecordReader(null, cp037, false)
+        }
+    }
+
+    @Test void shouldReadUnblockedRecords() {
+        def bytes = concat(rdw("ABC"), rdw("DEFGH"), rdw(""))
+        assert reader(bytes, false).collect { it.toString() } ==
+            [ "ABC", "DEFGH", "" ]
+    }
+
+    @Test void shouldReadBlockedRecords() {
+        def bytes = concat(
+            bdw(concat(rdw("ABC"), rdw("DE"))), bdw(rdw("FGHI")))
+        assert reader(bytes, true).collect { it.toString() } ==
+            [ "ABC", "DE", "FGHI" ]
+    }
+
+    @Test void shouldReadExtendedBlockDescriptorWords() {
+        def records = rdw("ABC")
+        def length = records.length + 4
+        def bytes = concat([ 0x80, 0, 0, length ] as byte[], records)
+        assert reader(bytes, true).collect { it.toString() } == [ "ABC" ]
+    }
+
+    @Test void shouldReadRecordsLargerThanASingleRead() {
+        def record = "A" * 32000
+        def bytes = concat(rdw(record), rdw(record), rdw(record), rdw(record))
+        assert reader(bytes, false).collect { it.toString() } ==
+            [ record, record, record, record ]
+    }
+
+    @Test void shouldReuseTheRecord() {
+        def records = reader(concat(rdw("A"), rdw("B")), false)
+        assert records.next().is(records.next())
+    }
+
+    @Test void shouldThrowAnExceptionWhenTheLastRecordIsIncomplete() {
+        def bytes = rdw("ABC")
+        def records = reader(bytes[0..4] as byte[], false)
+        assertException(IoException) { records.hasNext() }
+    }
+
+    @Test void shouldThrowAnExceptionWhenTheLastBlockIsIncomplete() {
+        def bytes = bdw(concat(rdw("ABC"), rdw("DE")))
+        def records = reader(bytes[0..10] as byte[], true)
+        records.next()
+        assertException(IoException) { records.hasNext() }
+    }
+
+    @Test void shouldThrowAnExceptionWhenTheRecordIsLongerThanTheBlock() {
+        def bytes = bdw(rdw("ABC"))
+        // the low byte of the RDW length follows the BDW
+        bytes[5] = (byte) 0x10
+        assertException(IoException) { reader(bytes, true).hasNext() }
+    }
+
+    @Test void shouldThrowAnExceptionWhenTheRecordIsSpanned() {
+        def bytes = rdw("ABC")
+        bytes[2] = (byte) 0x01
+        assertException(IoException) { reader(bytes, false).hasNext() }
+    }
+
+    @Test void nextShouldThrowAnExceptionWhenThereAreNoMoreRecords() {
+        def records = reader(rdw("A"), false)
+        records.next()
+        assertException(NoSuchElementException) { records.next() }
+    }
+}
@@ -0,0 +1,117 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Compares the time taken by the <code>Io</code> read paths across a range of
+ * file sizes.
+ *
+ * Run with the test classpath:
+ * <code>java com.frdna.core.IoBenchmark</code>
+ */
+public final class IoBenchmark {
+
+    private static final int[] SIZES = {
+        16 * 1024, 256 * 1024, 1024 * 1024, 16 * 1024 * 1024,
+        128 * 1024 * 1024 };
+
+    private static final int ITERATIONS = 5;
+
+    private IoBenchmark() { }
+
+    public static void main(final String[] args) throws IOException {
+
+        Charset charset = Charset.forName("ISO-8859-1");
+
+        for (int size : IoBenchmark.SIZES) {
+            File file = IoBenchmark.createFile(size);
+            try {
+                IoBenchmark.run("streamed", file, charset);
+                IoBenchmark.run("mapped", file, charset);
+                IoBenchmark.run("parallel", file, charset);
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    private static void run(
+            final String name,
+            final File file,
+            final Charset charset) {
+
+        // warm up before timing
+        IoBenchmark.read(name, file, charset);
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < IoBenchmark.ITERATIONS; i++) {
+            long start = System.nanoTime();
+            IoBenchmark.read(name, file, charset);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        System.out.println(String.format(
+                "%-10s %12d bytes %10.3f ms",
+                name, file.length(), best / 1000000.0));
+    }
+
+    private static String read(
+            final String name,
+            final File file,
+            final Charset charset) {
+
+        if ("mapped".equals(name)) {
+            return Io.readMapped(file, charset);
+        }
+
+        if ("parallel".equals(name)) {
+            return Io.readParallel(file, charset);
+        }
+
+        return Io.readStreamed(file, charset);
+    }
+
+    private static File createFile(final int size) throws IOException {
+
+        File file = File.createTempFile("io-benchmark", ".txt");
+        byte[] line = new byte[80];
+        Arrays.fill(line, (byte) 'x');
+        line[line.length - 1] = (byte) '\n';
+
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            for (int written = 0; written < size; written += line.length) {
+                out.write(line, 0, Math.min(line.length, size - written));
+            }
+        } finally {
+            Io.closeQuietly(out);
+        }
+
+        return file;
+    }
+}
@@ -0,0 +1,197 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Compares reading and writing records with a layout whose properties are
+ * reached by reflection to one whose properties are reached through
+ * {@link FieldAccessor}s.
+ *
+ * Run with the test classpath:
+ * <code>java com.frdna.core.RecordCodecBenchmark</code>
+ */
+public final class RecordCodecBenchmark {
+
+    private static final int RECORDS = 1000000;
+
+    private static final int ITERATIONS = 10;
+
+    private static final int LENGTH = 19;
+
+    private RecordCodecBenchmark() { }
+
+    public static void main(final String[] args) {
+
+        Charset charset = Charset.forName("Cp037");
+        RecordCodec<Account> reflective =
+                RecordCodecBenchmark.layout(charset, false).compile();
+        RecordCodec<Account> accessors =
+                RecordCodecBenchmark.layout(charset, true).compile();
+
+        Account account = new Account();
+        account.setName("Joe");
+        account.setBranch(-42);
+        account.setBalance(new BigDecimal("-1234.50"));
+        account.setId(258);
+
+        ByteBuffer buffer = ByteBuffer.allocate(
+                RecordCodecBenchmark.RECORDS * RecordCodecBenchmark.LENGTH);
+
+        RecordCodecBenchmark.run(
+                "reflection", reflective, account, buffer, charset);
+        RecordCodecBenchmark.run(
+                "accessors", accessors, account, buffer, charset);
+    }
+
+    private static RecordLayout<Account> layout(
+            final Charset charset,
+            final boolean accessors) {
+
+        RecordLayout<Account> layout =
+                new RecordLayout<Account>(Account.class, charset);
+
+        layout.display("name", 0, 8);
+        if (accessors) {
+            layout.accessor(new FieldAccessor.OfString<Account>() {
+                @Override
+                public String getString(final Account bean) {
+                    return bean.getName();
+                }
+                @Override
+                public void setString(final Account bean, final String value) {
+                    bean.setName(value);
+                }
+            });
+        }
+
+        layout.zoned("branch", 8, 3);
+        if (accessors) {
+            layout.accessor(new FieldAccessor.OfLong<Account>() {
+                @Override
+                public long getLong(final Account bean) {
+                    return bean.getBranch();
+                }
+                @Override
+                public void setLong(final Account bean, final long value) {
+                    bean.setBranch((int) value);
+                }
+            });
+        }
+
+        layout.packed("balance", 11, 4, 2);
+        if (accessors) {
+            layout.accessor(new FieldAccessor.OfDecimal<Account>() {
+                @Override
+                public BigDecimal getDecimal(final Account bean) {
+                    return bean.getBalance();
+                }
+                @Override
+                public void setDecimal(
+                        final Account bean,
+                        final BigDecimal value) {
+                    bean.setBalance(value);
+                }
+            });
+        }
+
+        layout.binary("id", 15, 4);
+        if (accessors) {
+            layout.accessor(new FieldAccessor.OfLong<Account>() {
+                @Override
+                public long getLong(final Account bean) {
+                    return bean.getId();
+                }
+                @Override
+                public void setLong(final Account bean, final long value) {
+                    bean.setId(value);
+                }
+            });
+        }
+
+        return layout;
+    }
+
+    private static void run(
+            final String name,
+            final RecordCodec<Account> codec,
+            final Account account,
+            final ByteBuffer buffer,
+            final Charset charset) {
+
+        Record record = new Record(charset);
+        Account bean = new Account();
+
+        // warm up before timing
+        RecordCodecBenchmark.write(codec, account, buffer);
+        RecordCodecBenchmark.read(codec, record, bean, buffer);
+
+        long write = Long.MAX_VALUE;
+        long read = Long.MAX_VALUE;
+        for (int i = 0; i < RecordCodecBenchmark.ITERATIONS; i++) {
+            long start = System.nanoTime();
+            RecordCodecBenchmark.write(codec, account, buffer);
+            write = Math.min(write, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            RecordCodecBenchmark.read(codec, record, bean, buffer);
+            read = Math.min(read, System.nanoTime() - start);
+        }
+
+        System.out.println(String.format(
+                "%-10s write %10.3f ms %12.0f records/s",
+                name, write / 1000000.0,
+                RecordCodecBenchmark.RECORDS * 1e9 / write));
+        System.out.println(String.format(
+                "%-10s read  %10.3f ms %12.0f records/s",
+                name, read / 1000000.0,
+                RecordCodecBenchmark.RECORDS * 1e9 / read));
+    }
+
+    private static void write(
+            final RecordCodec<Account> codec,
+            final Account account,
+            final ByteBuffer buffer) {
+
+        for (int i = 0; i < RecordCodecBenchmark.RECORDS; i++) {
+            codec.write(account, buffer, i * RecordCodecBenchmark.LENGTH);
+        }
+    }
+
+    private static void read(
+            final RecordCodec<Account> codec,
+            final Record record,
+            final Account bean,
+            final ByteBuffer buffer) {
+
+        for (int i = 0; i < RecordCodecBenchmark.RECORDS; i++) {
+            codec.read(record.wrap(
+                    buffer,
+                    i * RecordCodecBenchmark.LENGTH,
+                    RecordCodecBenchmark.LENGTH),
+                    bean);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/* Copyright (c) 2011 Free Range Data, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.frdna.core;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.util.Random;
+
+/**
+ * Compares decoding single byte charsets with a {@link SingleByteCodec} to
+ * decoding them with the JDK <code>CharsetDecoder</code>.
+ *
+ * Run with the test classpath:
+ * <code>java com.frdna.core.SingleByteCodecBenchmark</code>
+ */
+public final class SingleByteCodecBenchmark {
+
+    private static final String[] CHARSETS = {
+        "Cp037", "Cp1047", "Cp500", "ISO-8859-1" };
+
+    private static final int SIZE = 16 * 1024 * 1024;
+
+    private static final int ITERATIONS = 10;
+
+    private SingleByteCodecBenchmark() { }
+
+    public static void main(final String[] args)
+            throws CharacterCodingException {
+
+        byte[] bytes = new byte[SingleByteCodecBenchmark.SIZE];
+        new Random(0).nextBytes(bytes);
+
+        // keep to the bytes every charset maps
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (0x40 + ((bytes[i] & 0xFF) % 0xBF));
+        }
+
+        for (String name : SingleByteCodecBenchmark.CHARSETS) {
+            Charset charset = Charset.forName(name);
+            SingleByteCodecBenchmark.run(name, "jdk", bytes, charset, false);
+            SingleByteCodecBenchmark.run(name, "codec", bytes, charset, true);
+        }
+    }
+
+    private static void run(
+            final String name,
+            final String decoder,
+            final byte[] bytes,
+            final Charset charset,
+            final boolean codec) throws CharacterCodingException {
+
+        CharBuffer chars = CharBuffer.allocate(bytes.length);
+
+        // warm up before timing
+        SingleByteCodecBenchmark.decode(bytes, chars, charset, codec);
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SingleByteCodecBenchmark.ITERATIONS; i++) {
+            long start = System.nanoTime();
+            SingleByteCodecBenchmark.decode(bytes, chars, charset, codec);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        System.out.println(String.format(
+                "%-10s %-6s %10.3f ms", name, decoder, best / 1000000.0));
+    }
+
+    private static void decode(
+            final byte[] bytes,
+            final CharBuffer chars,
+            final Charset charset,
+            final boolean codec) throws CharacterCodingException {
+
+        chars.clear();
+
+        if (codec) {
+            SingleByteCodec.forCharset(charset).decode(
+                    ByteBuffer.wrap(bytes), chars);
+            return;
+        }
+
+        CharsetDecoder decoder = charset.newDecoder();
+        decoder.decode(ByteBuffer.wrap(bytes), chars, true);
+        decoder.flush(chars);
+    }
+}